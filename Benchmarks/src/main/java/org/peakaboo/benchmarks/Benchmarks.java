@@ -0,0 +1,52 @@
+package org.peakaboo.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.peakaboo.common.Version;
+
+/**
+ * Runs the benchmarks in this module. This accepts the same arguments as JMH's
+ * own runner (run with -h to list them), so that a subset of the benchmarks can
+ * be run with a regular expression, or a single filter with -p filter=Name.
+ * <br/><br/>
+ * Unless told otherwise, the results are written as JSON to a file named for
+ * the Peakaboo version being measured, so that the results from one release
+ * can be compared against the next. When running on Java 9 or later, the
+ * --add-opens arguments which the serializers need should be given to this
+ * JVM, and will be passed along to the JVMs the benchmarks are forked into.
+ *
+ * @author NAS
+ *
+ */
+public class Benchmarks {
+	
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+		CommandLineOptions commandline = new CommandLineOptions(args);
+		if (commandline.shouldHelp()) {
+			commandline.showHelp();
+			return;
+		}
+		
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandline);
+		if (!commandline.getResult().hasValue()) {
+			ResultFormatType format = commandline.getResultFormat().orElse(ResultFormatType.JSON);
+			options.resultFormat(format);
+			options.result("peakaboo-benchmarks-" + Version.longVersionNo + "." + format.toString().toLowerCase());
+		}
+		
+		Runner runner = new Runner(options.build());
+		if (commandline.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.peakaboo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.curvefit.curve.fitting.Curve;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.peak.fitting.FittingFunction;
+import org.peakaboo.curvefit.peak.fitting.functions.ConvolvingVoigtFittingFunction;
+import org.peakaboo.curvefit.peak.fitting.functions.GaussianFittingFunction;
+import org.peakaboo.curvefit.peak.fitting.functions.LorentzFittingFunction;
+import org.peakaboo.curvefit.peak.fitting.functions.PseudoVoigtFittingFunction;
+import org.peakaboo.curvefit.peak.table.Element;
+import org.peakaboo.curvefit.peak.table.PeakTable;
+import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
+import org.peakaboo.curvefit.peak.transition.TransitionShell;
+
+/**
+ * Benchmarks generating a {@link Curve} for a transition series with each of
+ * the {@link FittingFunction}s, as happens for every fitting whenever the
+ * fitting parameters change.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurveBenchmark {
+	
+	@Param({"Gaussian", "Lorentz", "PseudoVoigt", "ConvolvingVoigt"})
+	public String function;
+	
+	private FittingSet fittings;
+	private Class<? extends FittingFunction> functionClass;
+	private ITransitionSeries k, l;
+	
+	@Setup
+	public void setup() {
+		functionClass = function(function);
+		fittings = Synthetic.fittings();
+		fittings.getFittingParameters().setFittingFunction(functionClass);
+		k = PeakTable.SYSTEM.get(Element.Fe, TransitionShell.K);
+		l = PeakTable.SYSTEM.get(Element.Pb, TransitionShell.L);
+	}
+	
+	@Benchmark
+	public Curve generateK() {
+		return new Curve(k, fittings.getFittingParameters());
+	}
+	
+	@Benchmark
+	public Curve generateL() {
+		return new Curve(l, fittings.getFittingParameters());
+	}
+	
+	/**
+	 * Regenerates the curves for a whole {@link FittingSet}, as happens when
+	 * its fitting parameters are changed
+	 */
+	@Benchmark
+	public List<Curve> generateSet() {
+		fittings.getFittingParameters().setFittingFunction(functionClass);
+		return fittings.getCurves();
+	}
+	
+	
+	private static Class<? extends FittingFunction> function(String name) {
+		switch (name) {
+			case "Gaussian": return GaussianFittingFunction.class;
+			case "Lorentz": return LorentzFittingFunction.class;
+			case "PseudoVoigt": return PseudoVoigtFittingFunction.class;
+			case "ConvolvingVoigt": return ConvolvingVoigtFittingFunction.class;
+			default: throw new IllegalArgumentException("Unknown fitting function " + name);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.peakaboo.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.filter.model.Filter;
+import org.peakaboo.filter.model.FilterPluginManager;
+import org.peakaboo.filter.plugins.advanced.DatasetNormalizationFilter;
+import org.peakaboo.filter.plugins.advanced.IdentityFilter;
+import org.peakaboo.filter.plugins.advanced.PeakDetectorFilter;
+import org.peakaboo.filter.plugins.advanced.SpectrumNormalizationFilter;
+import org.peakaboo.filter.plugins.advanced.SubFilter;
+import org.peakaboo.filter.plugins.background.BruknerBackgroundFilter;
+import org.peakaboo.filter.plugins.background.ExponentialComptonBackgroundFilter;
+import org.peakaboo.filter.plugins.background.LinearTrimBackgroundFilter;
+import org.peakaboo.filter.plugins.background.PolynomialBackgroundFilter;
+import org.peakaboo.filter.plugins.background.SpectrumBackgroundFilter;
+import org.peakaboo.filter.plugins.background.SquareSnipBackgroundFilter;
+import org.peakaboo.filter.plugins.mathematical.AdditionMathFilter;
+import org.peakaboo.filter.plugins.mathematical.DerivativeMathFilter;
+import org.peakaboo.filter.plugins.mathematical.IntegralMathFilter;
+import org.peakaboo.filter.plugins.mathematical.MultiplicationMathFilter;
+import org.peakaboo.filter.plugins.mathematical.SubtractionMathFilter;
+import org.peakaboo.filter.plugins.noise.FourierNoiseFilter;
+import org.peakaboo.filter.plugins.noise.LowStatisticsNoiseFilter;
+import org.peakaboo.filter.plugins.noise.SavitskyGolayNoiseFilter;
+import org.peakaboo.filter.plugins.noise.SpringNoiseFilter;
+import org.peakaboo.filter.plugins.noise.WaveletNoiseFilter;
+import org.peakaboo.filter.plugins.noise.WeightedAverageNoiseFilter;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+
+/**
+ * Benchmarks each of the built-in {@link Filter} plugins with its default
+ * settings, applied to a synthetic spectrum.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+	
+	private static final Map<String, Supplier<Filter>> FILTERS = new LinkedHashMap<>();
+	static {
+		FILTERS.put("Identity", IdentityFilter::new);
+		FILTERS.put("SubFilter", SubFilter::new);
+		FILTERS.put("SpectrumNormalization", SpectrumNormalizationFilter::new);
+		FILTERS.put("DatasetNormalization", DatasetNormalizationFilter::new);
+		FILTERS.put("PeakDetector", PeakDetectorFilter::new);
+		
+		FILTERS.put("BruknerBackground", BruknerBackgroundFilter::new);
+		FILTERS.put("LinearTrimBackground", LinearTrimBackgroundFilter::new);
+		FILTERS.put("PolynomialBackground", PolynomialBackgroundFilter::new);
+		FILTERS.put("SquareSnipBackground", SquareSnipBackgroundFilter::new);
+		FILTERS.put("SpectrumBackground", SpectrumBackgroundFilter::new);
+		FILTERS.put("ExponentialComptonBackground", ExponentialComptonBackgroundFilter::new);
+		
+		FILTERS.put("AdditionMath", AdditionMathFilter::new);
+		FILTERS.put("DerivativeMath", DerivativeMathFilter::new);
+		FILTERS.put("IntegralMath", IntegralMathFilter::new);
+		FILTERS.put("MultiplicationMath", MultiplicationMathFilter::new);
+		FILTERS.put("SubtractionMath", SubtractionMathFilter::new);
+		
+		FILTERS.put("FourierNoise", FourierNoiseFilter::new);
+		FILTERS.put("WeightedAverageNoise", WeightedAverageNoiseFilter::new);
+		FILTERS.put("SavitskyGolayNoise", SavitskyGolayNoiseFilter::new);
+		FILTERS.put("SpringNoise", SpringNoiseFilter::new);
+		FILTERS.put("WaveletNoise", WaveletNoiseFilter::new);
+		FILTERS.put("LowStatisticsNoise", LowStatisticsNoiseFilter::new);
+	}
+	
+	//kept in step with FILTERS, since annotation values must be constants
+	@Param({
+		"Identity", "SubFilter", "SpectrumNormalization", "DatasetNormalization", "PeakDetector",
+		"BruknerBackground", "LinearTrimBackground", "PolynomialBackground", "SquareSnipBackground", "SpectrumBackground", "ExponentialComptonBackground",
+		"AdditionMath", "DerivativeMath", "IntegralMath", "MultiplicationMath", "SubtractionMath",
+		"FourierNoise", "WeightedAverageNoise", "SavitskyGolayNoise", "SpringNoise", "WaveletNoise", "LowStatisticsNoise"
+	})
+	public String filter;
+	
+	private Filter instance;
+	private ReadOnlySpectrum data;
+	private DataSet dataset;
+	
+	@Setup
+	public void setup() throws IOException {
+		//some filters, like SubFilter, look up other filters from the plugin manager
+		FilterPluginManager.init(Files.createTempDirectory("peakaboo-filters").toFile());
+		
+		Supplier<Filter> supplier = FILTERS.get(filter);
+		if (supplier == null) {
+			throw new IllegalArgumentException("Unknown filter " + filter);
+		}
+		instance = supplier.get();
+		instance.initialize();
+		dataset = Synthetic.dataset(8, 8);
+		data = dataset.getScanData().get(0);
+	}
+	
+	@Benchmark
+	public ReadOnlySpectrum apply() {
+		return instance.filter(data, dataset);
+	}
+
+}
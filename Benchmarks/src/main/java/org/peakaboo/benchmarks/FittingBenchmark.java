@@ -0,0 +1,100 @@
+package org.peakaboo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.curvefit.curve.fitting.FittingResultSet;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+import org.peakaboo.curvefit.curve.fitting.fitter.LeastSquaresCurveFitter;
+import org.peakaboo.curvefit.curve.fitting.fitter.OptimizingCurveFitter;
+import org.peakaboo.curvefit.curve.fitting.fitter.UnderCurveFitter;
+import org.peakaboo.curvefit.curve.fitting.solver.FittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.FittingSolverPlan;
+import org.peakaboo.curvefit.curve.fitting.solver.GreedyFittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.MultisamplingOptimizingFittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.NonNegativeLeastSquaresFittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.OptimizingFittingSolver;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Benchmarks every {@link FittingSolver} with every {@link CurveFitter} on a
+ * synthetic spectrum, both for a single fit as the plot does, and for repeated
+ * fits against a {@link FittingSolverPlan} as mapping does.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FittingBenchmark {
+	
+	@Param({"Greedy", "Optimizing", "MultisamplingOptimizing", "NonNegativeLeastSquares"})
+	public String solver;
+	
+	@Param({"LeastSquares", "Optimizing", "Under"})
+	public String fitter;
+	
+	private FittingSolver fittingSolver;
+	private CurveFitter curveFitter;
+	private FittingSet fittings;
+	private FittingSolverPlan plan;
+	private Spectrum data;
+	private float[] scalings;
+	
+	@Setup
+	public void setup() {
+		fittingSolver = solver(solver);
+		curveFitter = fitter(fitter);
+		fittings = Synthetic.fittings();
+		data = Synthetic.spectrum();
+		plan = fittingSolver.prepare(fittings, curveFitter);
+		scalings = new float[plan.getCurves().size()];
+	}
+	
+	@Benchmark
+	public FittingResultSet solve() {
+		return fittingSolver.solve(data, fittings, curveFitter);
+	}
+	
+	@Benchmark
+	public float[] solvePlanned() {
+		fittingSolver.solve(plan, data, scalings);
+		return scalings;
+	}
+	
+	
+	private static FittingSolver solver(String name) {
+		switch (name) {
+			case "Greedy": return new GreedyFittingSolver();
+			case "Optimizing": return new OptimizingFittingSolver();
+			case "MultisamplingOptimizing": return new MultisamplingOptimizingFittingSolver();
+			case "NonNegativeLeastSquares": return new NonNegativeLeastSquaresFittingSolver();
+			default: throw new IllegalArgumentException("Unknown solver " + name);
+		}
+	}
+	
+	private static CurveFitter fitter(String name) {
+		switch (name) {
+			case "LeastSquares": return new LeastSquaresCurveFitter();
+			case "Optimizing": return new OptimizingCurveFitter();
+			case "Under": return new UnderCurveFitter();
+			default: throw new IllegalArgumentException("Unknown fitter " + name);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.peakaboo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+import org.peakaboo.curvefit.curve.fitting.fitter.UnderCurveFitter;
+import org.peakaboo.curvefit.curve.fitting.solver.FittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.GreedyFittingSolver;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.filter.model.FilterSet;
+import org.peakaboo.filter.model.FilteredSpectrumCache;
+import org.peakaboo.filter.plugins.background.BruknerBackgroundFilter;
+import org.peakaboo.filter.plugins.noise.WeightedAverageNoiseFilter;
+import org.peakaboo.mapping.Mapping;
+import org.peakaboo.mapping.rawmap.RawMapSet;
+
+/**
+ * Benchmarks {@link Mapping#mapTask(DataSet, FilterSet, FittingSet, CurveFitter, FittingSolver)}
+ * on a generated square data set, with a typical background and noise filter.
+ * Mapping after only the fittings have changed reuses the filtered spectra
+ * from the {@link FilteredSpectrumCache}, so this is measured both with and
+ * without the cache.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+	
+	//width and height of the data set
+	@Param({"32", "128"})
+	public int size;
+	
+	private DataSet dataset;
+	private FilterSet filters;
+	private FittingSet fittings;
+	private CurveFitter fitter;
+	private FittingSolver solver;
+	
+	@Setup
+	public void setup() {
+		dataset = Synthetic.dataset(size, size);
+		filters = new FilterSet();
+		BruknerBackgroundFilter background = new BruknerBackgroundFilter();
+		background.initialize();
+		filters.add(background);
+		WeightedAverageNoiseFilter noise = new WeightedAverageNoiseFilter();
+		noise.initialize();
+		filters.add(noise);
+		fittings = Synthetic.fittings();
+		fitter = new UnderCurveFitter();
+		solver = new GreedyFittingSolver();
+	}
+	
+	/**
+	 * Maps the data set from scratch, filtering every spectrum
+	 */
+	@Benchmark
+	public RawMapSet map() {
+		FilteredSpectrumCache.system().clear();
+		return Mapping.mapTask(dataset, filters, fittings, fitter, solver).run().get();
+	}
+	
+	/**
+	 * Maps the data set again, with the filtered spectra from the last run
+	 */
+	@Benchmark
+	public RawMapSet remap() {
+		return Mapping.mapTask(dataset, filters, fittings, fitter, solver).run().get();
+	}
+
+}
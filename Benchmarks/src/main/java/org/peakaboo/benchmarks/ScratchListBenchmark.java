@@ -0,0 +1,115 @@
+package org.peakaboo.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.scratch.ScratchEncoder;
+import org.peakaboo.framework.scratch.encoders.compressors.Compressors;
+import org.peakaboo.framework.scratch.encoders.serializers.Serializers;
+import org.peakaboo.framework.scratch.list.ScratchList;
+import org.peakaboo.framework.scratch.list.ScratchLists;
+
+/**
+ * Benchmarks reading and writing spectra in a {@link ScratchList} with each
+ * combination of serializer and compressor, for each kind of backing store.
+ * The encoder names are a serializer, optionally followed by a compressor, as
+ * in "fstUnsafe+lz4fast", which is what Peakaboo uses by default.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScratchListBenchmark {
+	
+	private static final int SIZE = 256;
+	
+	@Param({
+		"java", "java+snappy", "java+lz4fast", "java+lz4good", "java+deflate",
+		"kryo", "kryo+snappy", "kryo+lz4fast", "kryo+lz4good", "kryo+deflate",
+		"fst", "fst+snappy", "fst+lz4fast", "fst+lz4good", "fst+deflate",
+		"fstUnsafe", "fstUnsafe+snappy", "fstUnsafe+lz4fast", "fstUnsafe+lz4good", "fstUnsafe+deflate"
+	})
+	public String encoder;
+	
+	@Param({"memory", "disk", "mapped"})
+	public String backing;
+	
+	private ScratchList<Spectrum> list;
+	private Spectrum[] spectra;
+	private int index = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		ScratchEncoder<Spectrum> scratchEncoder = encoder(encoder);
+		switch (backing) {
+			case "memory": list = ScratchLists.memoryBacked(scratchEncoder); break;
+			case "disk": list = ScratchLists.diskBacked(scratchEncoder); break;
+			case "mapped": list = ScratchLists.mappedBacked(scratchEncoder); break;
+			default: throw new IllegalArgumentException("Unknown backing " + backing);
+		}
+		
+		FittingSet fittings = Synthetic.fittings();
+		Random random = new Random(1);
+		spectra = new Spectrum[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			spectra[i] = Synthetic.spectrum(fittings, random);
+			list.add(spectra[i]);
+		}
+	}
+	
+	@Benchmark
+	public Spectrum get() {
+		index = (index + 1) % SIZE;
+		return list.get(index);
+	}
+	
+	@Benchmark
+	public Spectrum set() {
+		index = (index + 1) % SIZE;
+		return list.set(index, spectra[index]);
+	}
+	
+	
+	private static ScratchEncoder<Spectrum> encoder(String name) {
+		String[] parts = name.split("\\+");
+		ScratchEncoder<Spectrum> serializer;
+		switch (parts[0]) {
+			case "java": serializer = Serializers.java(); break;
+			case "kryo": serializer = Serializers.kryo(ISpectrum.class); break;
+			case "fst": serializer = Serializers.fst(ISpectrum.class); break;
+			case "fstUnsafe": serializer = Serializers.fstUnsafe(ISpectrum.class); break;
+			default: throw new IllegalArgumentException("Unknown serializer " + parts[0]);
+		}
+		if (parts.length == 1) {
+			return serializer;
+		}
+		switch (parts[1]) {
+			case "snappy": return serializer.then(Compressors.snappy());
+			case "lz4fast": return serializer.then(Compressors.lz4fast());
+			case "lz4good": return serializer.then(Compressors.lz4good());
+			case "deflate": return serializer.then(Compressors.deflate());
+			default: throw new IllegalArgumentException("Unknown compressor " + parts[1]);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package org.peakaboo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
+
+/**
+ * Benchmarks the arithmetic in {@link SpectrumCalculations} which filtering,
+ * fitting and mapping are built on.
+ *
+ * @author NAS
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpectrumCalculationsBenchmark {
+	
+	private Spectrum a, b, target;
+	private List<ReadOnlySpectrum> scans;
+	
+	@Setup
+	public void setup() {
+		FittingSet fittings = Synthetic.fittings();
+		Random random = new Random(1);
+		a = Synthetic.spectrum(fittings, random);
+		b = Synthetic.spectrum(fittings, random);
+		target = new ISpectrum(a.size());
+		scans = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			scans.add(Synthetic.spectrum(fittings, random));
+		}
+	}
+	
+	@Benchmark
+	public Spectrum multiplyBy() {
+		return SpectrumCalculations.multiplyBy_target(a, target, 1.5f);
+	}
+	
+	@Benchmark
+	public Spectrum divideBy() {
+		return SpectrumCalculations.divideBy_target(a, target, 1.5f);
+	}
+	
+	@Benchmark
+	public Spectrum subtractFromList() {
+		return SpectrumCalculations.subtractFromList(a, target, 100f, 0f);
+	}
+	
+	@Benchmark
+	public Spectrum addLists() {
+		target.copy(a);
+		SpectrumCalculations.addLists_inplace(target, b);
+		return target;
+	}
+	
+	@Benchmark
+	public Spectrum subtractLists() {
+		SpectrumCalculations.subtractLists_target(a, b, target, 0f);
+		return target;
+	}
+	
+	@Benchmark
+	public Spectrum multiplyLists() {
+		target.copy(a);
+		return SpectrumCalculations.multiplyLists_inplace(target, b);
+	}
+	
+	@Benchmark
+	public Spectrum maxLists() {
+		target.copy(a);
+		return SpectrumCalculations.maxLists_inplace(target, b);
+	}
+	
+	@Benchmark
+	public Spectrum logList() {
+		SpectrumCalculations.logList_target(a, target);
+		return target;
+	}
+	
+	@Benchmark
+	public float sum() {
+		return SpectrumCalculations.sumValuesInList(a, 0, a.size());
+	}
+	
+	@Benchmark
+	public float max() {
+		return a.max();
+	}
+	
+	@Benchmark
+	public Spectrum derivative() {
+		return SpectrumCalculations.derivative(a);
+	}
+	
+	@Benchmark
+	public Spectrum integral() {
+		return SpectrumCalculations.integral(a);
+	}
+	
+	@Benchmark
+	public Spectrum datasetAverage() {
+		return SpectrumCalculations.getDatasetAverage(scans);
+	}
+
+}
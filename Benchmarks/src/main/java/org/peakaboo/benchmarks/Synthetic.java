@@ -0,0 +1,137 @@
+package org.peakaboo.benchmarks;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.peakaboo.curvefit.curve.fitting.Curve;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.peak.table.Element;
+import org.peakaboo.curvefit.peak.table.PeakTable;
+import org.peakaboo.curvefit.peak.transition.TransitionShell;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.dataset.StandardDataSet;
+import org.peakaboo.datasource.model.components.datasize.DataSize;
+import org.peakaboo.datasource.model.components.datasize.SimpleDataSize;
+import org.peakaboo.datasource.model.components.scandata.ScanData;
+import org.peakaboo.datasource.model.components.scandata.SimpleScanData;
+import org.peakaboo.datasource.model.internal.EmptyDataSource;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Generates the spectra, fittings and data sets the benchmarks run against.
+ * Spectra are built from the same fittings the benchmarks use, on top of a
+ * decaying background and with counting noise, so that filters and solvers see
+ * something resembling real data. Everything is generated from fixed seeds, so
+ * results are comparable from one run, and one release, to the next.
+ *
+ * @author NAS
+ *
+ */
+final class Synthetic {
+	
+	static final int CHANNELS = 2048;
+	static final float MAX_ENERGY = 20.48f;
+	
+	private static final Element[] K_ELEMENTS = {Element.Ca, Element.Ti, Element.Fe, Element.Cu, Element.Zn};
+	private static final Element[] L_ELEMENTS = {Element.Pb};
+	
+	private Synthetic() {
+		//Not Constructable
+	}
+	
+	/**
+	 * Returns a {@link FittingSet} calibrated for the synthetic spectra, with a
+	 * handful of overlapping K and L series.
+	 */
+	static FittingSet fittings() {
+		FittingSet fittings = new FittingSet();
+		fittings.getFittingParameters().setCalibration(0, MAX_ENERGY, CHANNELS);
+		for (Element element : K_ELEMENTS) {
+			fittings.addTransitionSeries(PeakTable.SYSTEM.get(element, TransitionShell.K));
+		}
+		for (Element element : L_ELEMENTS) {
+			fittings.addTransitionSeries(PeakTable.SYSTEM.get(element, TransitionShell.L));
+		}
+		return fittings;
+	}
+	
+	/**
+	 * Returns a single spectrum generated with a fixed seed
+	 */
+	static Spectrum spectrum() {
+		FittingSet fittings = fittings();
+		return spectrum(fittings, new Random(1));
+	}
+	
+	/**
+	 * Generates a spectrum from the given fittings with random intensities
+	 */
+	static Spectrum spectrum(FittingSet fittings, Random random) {
+		float[] counts = new float[CHANNELS];
+		for (int i = 0; i < CHANNELS; i++) {
+			counts[i] = 20f + 400f * (float) Math.exp(-i / 300d);
+		}
+		for (Curve curve : fittings.getCurves()) {
+			float scale = 200f + random.nextFloat() * 5000f;
+			for (int i = 0; i < CHANNELS; i++) {
+				counts[i] += curve.get().get(i) * scale;
+			}
+		}
+		for (int i = 0; i < CHANNELS; i++) {
+			//counting noise, approximated as normally distributed
+			float noisy = counts[i] + (float) (random.nextGaussian() * Math.sqrt(counts[i]));
+			counts[i] = Math.max(0, Math.round(noisy));
+		}
+		return new ISpectrum(counts, false);
+	}
+	
+	/**
+	 * Generates a rectangular {@link DataSet} of the given dimensions
+	 */
+	static DataSet dataset(int width, int height) {
+		FittingSet fittings = fittings();
+		Random random = new Random(width * 31 + height);
+		
+		SimpleScanData scans = new SimpleScanData("Synthetic");
+		scans.setMaxEnergy(MAX_ENERGY);
+		for (int i = 0; i < width * height; i++) {
+			scans.add(spectrum(fittings, random));
+		}
+		
+		SimpleDataSize size = new SimpleDataSize();
+		size.setDataWidth(width);
+		size.setDataHeight(height);
+		
+		return new StandardDataSet(new SyntheticDataSource(scans, size));
+	}
+	
+	
+	private static class SyntheticDataSource extends EmptyDataSource {
+		
+		private final ScanData scans;
+		private final DataSize size;
+		
+		SyntheticDataSource(ScanData scans, DataSize size) {
+			this.scans = scans;
+			this.size = size;
+		}
+		
+		@Override
+		public ScanData getScanData() {
+			return scans;
+		}
+		
+		@Override
+		public Optional<DataSize> getDataSize() {
+			return Optional.of(size);
+		}
+		
+		@Override
+		public String getFormatName() {
+			return "Synthetic";
+		}
+	
+	}
+
+}
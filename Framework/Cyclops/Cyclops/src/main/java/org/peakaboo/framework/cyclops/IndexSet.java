@@ -0,0 +1,317 @@
+package org.peakaboo.framework.cyclops;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A set of non-negative int indexes, such as the points selected on a map,
+ * stored as a bitmap rather than as a collection of boxed Integers. Membership
+ * tests are constant time, and union, intersection and difference work on 64
+ * indexes at a time. Iteration is always in ascending order.
+ *
+ * @author NAS
+ *
+ */
+public class IndexSet implements Iterable<Integer> {
+	
+	private final BitSet bits;
+	
+	/**
+	 * Creates a new, empty IndexSet
+	 */
+	public IndexSet() {
+		bits = new BitSet();
+	}
+	
+	/**
+	 * Creates a new IndexSet containing the same indexes as the given one
+	 */
+	public IndexSet(IndexSet other) {
+		bits = (BitSet) other.bits.clone();
+	}
+	
+	/**
+	 * Creates a new IndexSet containing each of the given indexes
+	 */
+	public IndexSet(Iterable<Integer> indexes) {
+		this();
+		for (int index : indexes) {
+			add(index);
+		}
+	}
+	
+	private IndexSet(BitSet bits) {
+		this.bits = bits;
+	}
+	
+	/**
+	 * Creates a new IndexSet containing each of the given indexes
+	 */
+	public static IndexSet of(int... indexes) {
+		IndexSet set = new IndexSet();
+		for (int index : indexes) {
+			set.add(index);
+		}
+		return set;
+	}
+	
+	/**
+	 * Creates a new IndexSet containing every index from start (inclusive) to
+	 * end (exclusive)
+	 */
+	public static IndexSet range(int start, int end) {
+		IndexSet set = new IndexSet();
+		set.addRange(start, end);
+		return set;
+	}
+	
+	
+	
+	public void add(int index) {
+		bits.set(index);
+	}
+	
+	/**
+	 * Adds every index from start (inclusive) to end (exclusive)
+	 */
+	public void addRange(int start, int end) {
+		bits.set(start, end);
+	}
+	
+	public void remove(int index) {
+		if (index < 0) return;
+		bits.clear(index);
+	}
+	
+	public boolean contains(int index) {
+		if (index < 0) return false;
+		return bits.get(index);
+	}
+	
+	public int size() {
+		return bits.cardinality();
+	}
+	
+	public boolean isEmpty() {
+		return bits.isEmpty();
+	}
+	
+	public void clear() {
+		bits.clear();
+	}
+	
+	
+	
+	/**
+	 * Adds every index in the given set to this one (union)
+	 */
+	public void addAll(IndexSet other) {
+		bits.or(other.bits);
+	}
+	
+	/**
+	 * Removes every index from this set which is not also in the given set
+	 * (intersection)
+	 */
+	public void retainAll(IndexSet other) {
+		bits.and(other.bits);
+	}
+	
+	/**
+	 * Removes every index in the given set from this one (difference)
+	 */
+	public void removeAll(IndexSet other) {
+		bits.andNot(other.bits);
+	}
+	
+	/**
+	 * Removes every index greater than or equal to the given bound
+	 */
+	public void retainBelow(int bound) {
+		int length = bits.length();
+		if (length > bound) {
+			bits.clear(Math.max(0, bound), length);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the first index in this set which is greater than or equal to the
+	 * given index, or -1 if there is none.
+	 */
+	public int nextIndex(int from) {
+		return bits.nextSetBit(from);
+	}
+	
+	/**
+	 * Returns the smallest index in this set, or -1 if it is empty
+	 */
+	public int first() {
+		return bits.nextSetBit(0);
+	}
+	
+	/**
+	 * Returns the largest index in this set, or -1 if it is empty
+	 */
+	public int last() {
+		return bits.length() - 1;
+	}
+	
+	
+	
+	/**
+	 * Returns a new IndexSet containing these indexes along with each of their
+	 * neighbours above, below, left and right, treating the indexes as points
+	 * laid out row by row on a grid of the given dimensions. Indexes outside of
+	 * the grid are discarded. Rather than visiting each point, whole rows of
+	 * the bitmap are shifted and combined.
+	 */
+	public IndexSet dilate(int width, int height) {
+		int size = width * height;
+		IndexSet source = copy();
+		source.retainBelow(size);
+		
+		IndexSet notLeft = range(0, size);
+		IndexSet notRight = range(0, size);
+		for (int y = 0; y < height; y++) {
+			notLeft.remove(y * width);
+			notRight.remove(y * width + width - 1);
+		}
+		
+		IndexSet dilated = source.copy();
+		
+		//above and below
+		dilated.addAll(source.shift(-width));
+		dilated.addAll(source.shift(width));
+		
+		//points which aren't in the right-most column gain the point to their right
+		IndexSet right = source.copy();
+		right.retainAll(notRight);
+		dilated.addAll(right.shift(1));
+		
+		//points which aren't in the left-most column gain the point to their left
+		IndexSet left = source.copy();
+		left.retainAll(notLeft);
+		dilated.addAll(left.shift(-1));
+		
+		dilated.retainBelow(size);
+		return dilated;
+	}
+	
+	/**
+	 * Returns a new IndexSet with every index moved by the given distance.
+	 * Indexes which would become negative are discarded.
+	 */
+	public IndexSet shift(int distance) {
+		if (distance == 0 || bits.isEmpty()) {
+			return copy();
+		}
+		long[] words = bits.toLongArray();
+		int wordShift = Math.abs(distance) / 64;
+		int bitShift = Math.abs(distance) % 64;
+		
+		long[] shifted;
+		if (distance > 0) {
+			shifted = new long[words.length + wordShift + 1];
+			for (int i = 0; i < words.length; i++) {
+				shifted[i + wordShift] |= words[i] << bitShift;
+				if (bitShift != 0) {
+					shifted[i + wordShift + 1] |= words[i] >>> (64 - bitShift);
+				}
+			}
+		} else {
+			if (wordShift >= words.length) {
+				return new IndexSet();
+			}
+			shifted = new long[words.length - wordShift];
+			for (int i = 0; i < shifted.length; i++) {
+				shifted[i] = words[i + wordShift] >>> bitShift;
+				if (bitShift != 0 && i + wordShift + 1 < words.length) {
+					shifted[i] |= words[i + wordShift + 1] << (64 - bitShift);
+				}
+			}
+		}
+		return new IndexSet(BitSet.valueOf(shifted));
+	}
+	
+	
+	
+	public IndexSet copy() {
+		return new IndexSet(this);
+	}
+	
+	/**
+	 * Calls the given consumer with each index in this set, in ascending order,
+	 * without boxing.
+	 */
+	public void forEachIndex(IntConsumer consumer) {
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			consumer.accept(i);
+		}
+	}
+	
+	public IntStream stream() {
+		return bits.stream();
+	}
+	
+	public int[] toArray() {
+		return bits.stream().toArray();
+	}
+	
+	/**
+	 * Returns the indexes in this set as a new list, for callers which still
+	 * work in terms of boxed Integers.
+	 */
+	public List<Integer> toList() {
+		List<Integer> list = new ArrayList<>(size());
+		forEachIndex(list::add);
+		return list;
+	}
+	
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			
+			private int next = bits.nextSetBit(0);
+			
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+			
+			@Override
+			public int nextInt() {
+				if (next < 0) throw new NoSuchElementException();
+				int current = next;
+				next = bits.nextSetBit(current + 1);
+				return current;
+			}
+		};
+	}
+	
+	
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof IndexSet)) return false;
+		return bits.equals(((IndexSet) obj).bits);
+	}
+	
+	@Override
+	public int hashCode() {
+		return bits.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return bits.toString();
+	}
+
+}
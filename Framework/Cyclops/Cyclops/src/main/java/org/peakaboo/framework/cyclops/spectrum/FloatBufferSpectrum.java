@@ -0,0 +1,180 @@
+package org.peakaboo.framework.cyclops.spectrum;
+
+import java.io.ObjectStreamException;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only Spectrum which is a view over a region of a {@link FloatBuffer},
+ * such as a slice of a memory-mapped file. No data is copied when the view is
+ * created, and reads use only absolute buffer accesses, so a single view may be
+ * read from multiple threads.
+ * <br/><br/>
+ * Because there is no backing float array, this Spectrum cannot be used where
+ * a {@link Spectrum#backingArray()} is required. Use {@link ISpectrum#ISpectrum(ReadOnlySpectrum)}
+ * to obtain a modifiable copy. When serialized, a FloatBufferSpectrum is
+ * replaced by an equivalent {@link ISpectrum}.
+ */
+public class FloatBufferSpectrum implements ReadOnlySpectrum {
+
+	private final FloatBuffer buffer;
+	private final int offset;
+	private final int size;
+
+	/**
+	 * Creates a new view over the given buffer from its position up to its limit
+	 * @param buffer the buffer to read from
+	 */
+	public FloatBufferSpectrum(FloatBuffer buffer) {
+		this(buffer, buffer.position(), buffer.remaining());
+	}
+
+	/**
+	 * Creates a new view over <tt>size</tt> values of the given buffer starting at <tt>offset</tt>
+	 * @param buffer the buffer to read from
+	 * @param offset the absolute index in the buffer of the first value
+	 * @param size the number of values in this Spectrum
+	 */
+	public FloatBufferSpectrum(FloatBuffer buffer, int offset, int size) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public float get(int i) {
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		return buffer.get(offset + i);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public float[] backingArrayCopy() {
+		float[] copy = new float[size];
+		FloatBuffer source = buffer.duplicate();
+		((Buffer) source).position(offset);
+		source.get(copy);
+		return copy;
+	}
+
+	@Override
+	public ReadOnlySpectrum subSpectrum(int start, int stop) {
+		int length = stop - start + 1;
+		float[] copy = new float[length];
+		for (int i = 0; i < length; i++) {
+			copy[i] = buffer.get(offset + start + i);
+		}
+		return new ISpectrum(copy, false);
+	}
+
+	@Override
+	public Stream<Float> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false);
+	}
+
+	@Override
+	public Iterator<Float> iterator() {
+		return new Iterator<Float>() {
+
+			int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Float next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return buffer.get(offset + index++);
+			}
+		};
+	}
+
+	/**
+	 * Hash code returns the integer sum of the first 10 (or less) elements
+	 */
+	@Override
+	public int hashCode() {
+		float sum = 0;
+		for (int i = 0; i < Math.min(10, size); i++) {
+			sum += buffer.get(offset + i);
+		}
+		return (int)sum;
+	}
+
+	@Override
+	public boolean equals(Object oother) {
+		if (!(oother instanceof ReadOnlySpectrum)) {
+			return false;
+		}
+		ReadOnlySpectrum other = (ReadOnlySpectrum) oother;
+		if (other.size() != size) return false;
+		for (int i = 0; i < size; i++) {
+			if (other.get(i) != buffer.get(offset + i)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return toString(" ");
+	}
+
+	@Override
+	public String toString(String delimiter) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(delimiter);
+			}
+			sb.append(buffer.get(offset + i));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public float sum() {
+		float sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += buffer.get(offset + i);
+		}
+		return sum;
+	}
+
+	@Override
+	public float max() {
+		float max = buffer.get(offset);
+		for (int i = 0; i < size; i++) {
+			max = Math.max(max, buffer.get(offset + i));
+		}
+		return max;
+	}
+
+	@Override
+	public float min() {
+		float min = buffer.get(offset);
+		for (int i = 0; i < size; i++) {
+			min = Math.min(min, buffer.get(offset + i));
+		}
+		return min;
+	}
+
+
+	private Object writeReplace() throws ObjectStreamException {
+		return new ISpectrum(backingArrayCopy(), false);
+	}
+
+}
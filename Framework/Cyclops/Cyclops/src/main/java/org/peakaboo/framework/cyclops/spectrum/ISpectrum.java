@@ -134,6 +134,10 @@ public class ISpectrum implements Spectrum
 			this.data = source.backingArrayCopy();
 			this.size = source.size;
 			this.maxIndex = source.maxIndex;
+		} else {
+			this.data = copy.backingArrayCopy();
+			this.size = this.data.length;
+			this.maxIndex = size - 1;
 		}
 				
 	}
@@ -147,7 +151,11 @@ public class ISpectrum implements Spectrum
 	@Override
 	public void copy(ReadOnlySpectrum s)
 	{
-		copy(s.backingArrayCopy());
+		if (s instanceof Spectrum) {
+			copy(((Spectrum) s).backingArray());
+		} else {
+			copy(s.backingArrayCopy());
+		}
 	}
 
 	/**
@@ -439,29 +447,15 @@ public class ISpectrum implements Spectrum
 	}
 
 	public float sum()  {
-		float sum = 0;
-		for (int i = 0; i < size; i++) {
-			sum += data[i];
-		}
-		return sum;
+		return SpectrumKernels.sum(data, 0, size);
 	}
 	
 	public float max() {
-		float max = this.get(0);
-		for (int i = 0; i < size; i++) {
-			float val = data[i];
-			max = Math.max(max, val);
-		}
-		return max;		
+		return SpectrumKernels.max(data, size);
 	}
 	
 	public float min() {
-		float min = data[0];
-		for (int i = 0; i < size; i++) {
-			float val = data[i];
-			min = Math.min(min, val);
-		}
-		return min;		
+		return SpectrumKernels.min(data, size);
 	}
 
 	
@@ -1,9 +1,10 @@
 package org.peakaboo.framework.cyclops.spectrum;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
+import org.peakaboo.framework.cyclops.IndexSet;
+
 public interface Spectrum extends ReadOnlySpectrum {
 
 	/**
@@ -60,31 +61,27 @@ public interface Spectrum extends ReadOnlySpectrum {
 	
 	
 	/**
-	 * Converts a list of integers (points) to a spectrum with matching indices set to 1
+	 * Converts a set of indexes (points) to a spectrum with matching indices set to 1
 	 */
-	static Spectrum fromPoints(List<Integer> points, int size) {
+	static Spectrum fromPoints(IndexSet points, int size) {
 		return fromPoints(points, size, 1f);
 	}
 	/**
-	 * Converts a list of integers (points) to a spectrum with matching indices set to a given value
+	 * Converts a set of indexes (points) to a spectrum with matching indices set to a given value
 	 */
-	static Spectrum fromPoints(List<Integer> points, int size, float value) {
-		Spectrum mask = new ISpectrum(size);
-		for (int i = 0; i < size; i++) {
-			if (points.contains(i)) {
-				mask.add(value);
-			} else {
-				mask.add(0f);
-			}
+	static Spectrum fromPoints(IndexSet points, int size, float value) {
+		Spectrum mask = new ISpectrum(size, 0f);
+		for (int i = points.first(); i >= 0 && i < size; i = points.nextIndex(i + 1)) {
+			mask.set(i, value);
 		}
 		return mask;
 	}
 	
 	/**
-	 * Converts a spectrum to a list of integers (points) with entries for each non-zero element
+	 * Converts a spectrum to a set of indexes (points) with entries for each non-zero element
 	 */
-	static List<Integer> toPoints(ReadOnlySpectrum spectrum) {
-		List<Integer> points = new ArrayList<>();
+	static IndexSet toPoints(ReadOnlySpectrum spectrum) {
+		IndexSet points = new IndexSet();
 		for (int i = 0; i < spectrum.size(); i++) {
 			if (spectrum.get(i) != 0) {
 				points.add(i);
@@ -2,8 +2,7 @@ package org.peakaboo.framework.cyclops.spectrum;
 
 
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import org.peakaboo.framework.cyclops.GridPerspective;
@@ -22,15 +21,26 @@ public class SpectrumCalculations
 	public static final int	MIN_SIZE_FOR_THREADING	= 512;
 
 
+	/**
+	 * Returns the backing array of the given spectrum if it has one, or a copy
+	 * of its values otherwise. The result must not be modified.
+	 */
+	private static float[] array(ReadOnlySpectrum spectrum)
+	{
+		if (spectrum instanceof Spectrum)
+		{
+			return ((Spectrum)spectrum).backingArray();
+		}
+		return spectrum.backingArrayCopy();
+	}
+
+
 	public static Spectrum maxLists(ReadOnlySpectrum l1, ReadOnlySpectrum l2)
 	{
 
 		Spectrum result = new ISpectrum(l1.size());
 		int maxInd = Math.min(l1.size(), l2.size());
-		for (int i = 0; i < maxInd; i++)
-		{
-			result.set(i, Math.max(l1.get(i), l2.get(i)));
-		}
+		SpectrumKernels.max(array(l1), array(l2), result.backingArray(), maxInd);
 
 		return result;
 	}
@@ -39,10 +49,7 @@ public class SpectrumCalculations
 	public static Spectrum maxLists_inplace(final Spectrum s1, final ReadOnlySpectrum s2)
 	{
 		int size = Math.min(s1.size(), s2.size());
-		for (int i = 0; i < size; i++)
-		{
-			s1.set(i, Math.max(s1.get(i), s2.get(i)));
-		}
+		SpectrumKernels.max(s1.backingArray(), array(s2), s1.backingArray(), size);
 		
 
 		return s1;
@@ -57,12 +64,7 @@ public class SpectrumCalculations
 	public static Spectrum abs(ReadOnlySpectrum source)
 	{
 		Spectrum result = new ISpectrum(source.size());
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = Math.abs(source.get(i));
-			result.set(i, newvalue);
-		}
+		SpectrumKernels.abs(array(source), result.backingArray(), source.size());
 
 		return result;
 	}
@@ -150,12 +152,7 @@ public class SpectrumCalculations
 	{
 
 		Spectrum result = new ISpectrum(source.size());
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = source.get(i) * value;
-			result.set(i, newvalue);
-		}
+		SpectrumKernels.multiply(array(source), result.backingArray(), value, source.size());
 
 		return result;
 	}
@@ -172,12 +169,7 @@ public class SpectrumCalculations
 	public static Spectrum multiplyBy_inplace(final Spectrum source, final float value)
 	{	
 		
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = source.get(i) * value;
-			source.set(i, newvalue);
-		}
+		SpectrumKernels.multiply(source.backingArray(), source.backingArray(), value, source.size());
 		
 		return source;
 	}
@@ -193,15 +185,7 @@ public class SpectrumCalculations
 	 */
 	public static Spectrum multiplyBy_target(final ReadOnlySpectrum source, final Spectrum target, final float value)
 	{	
-		//optimization to get rid of get/set call overhead
-		final float[] sourceArray = ((Spectrum)source).backingArray();
-		final float[] targetArray = target.backingArray();
-		
-		final int size = source.size();
-		for (int i = 0; i < size; i++)
-		{
-			targetArray[i] = sourceArray[i] * value;
-		}
+		SpectrumKernels.multiply(array(source), target.backingArray(), value, source.size());
 		
 		return target;
 	}
@@ -220,18 +204,29 @@ public class SpectrumCalculations
 	{
 
 		Spectrum result = new ISpectrum(source.size());
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = source.get(i) / value;
-			result.set(i, newvalue);
-		}
+		SpectrumKernels.divide(array(source), result.backingArray(), value, source.size());
 
 		return result;
 
 	}
 
 
+	/**
+	 * returns the target Spectrum containing the results of dividing source by value
+	 * 
+	 * @param source
+	 * @param target
+	 * @param value
+	 * @return the given target spectrum, now with altered values
+	 */
+	public static Spectrum divideBy_target(final ReadOnlySpectrum source, final Spectrum target, final float value)
+	{
+		SpectrumKernels.divide(array(source), target.backingArray(), value, source.size());
+		
+		return target;
+	}
+
+
 	/**
 	 * Replaces the values in the given list with their equivalences as expressed as divided by value
 	 * 
@@ -241,12 +236,7 @@ public class SpectrumCalculations
 	public static void divideBy_inplace(Spectrum data, final float value)
 	{
 
-		float newvalue;
-		for (int i = 0; i < data.size(); i++)
-		{
-			newvalue = data.get(i) / value;
-			data.set(i, newvalue);
-		}
+		SpectrumKernels.divide(data.backingArray(), data.backingArray(), value, data.size());
 
 	}
 
@@ -291,15 +281,7 @@ public class SpectrumCalculations
 	{
 
 		Spectrum result = new ISpectrum(source.size());
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = source.get(i) - value;
-			if (!Float.isNaN(minimum) && value < minimum) newvalue = minimum;
-			result.set(i, newvalue);
-		}
-
-		return result;
+		return subtractFromList(source, result, value, minimum);
 	}
 
 	
@@ -326,13 +308,8 @@ public class SpectrumCalculations
 	public static Spectrum subtractFromList(ReadOnlySpectrum source, Spectrum target, final float value, final float minimum)
 	{
 
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = source.get(i) - value;
-			if (!Float.isNaN(minimum) && value < minimum) newvalue = minimum;
-			target.set(i, newvalue);
-		}
+		SpectrumKernels.subtract(array(source), value, target.backingArray(), source.size());
+		SpectrumKernels.clamp(target.backingArray(), minimum, source.size());
 
 		return target;
 	}
@@ -361,13 +338,8 @@ public class SpectrumCalculations
 	public static Spectrum subtractListFrom(ReadOnlySpectrum source, Spectrum target, final float value, final float minimum)
 	{
 
-		float newvalue;
-		for (int i = 0; i < source.size(); i++)
-		{
-			newvalue = value - source.get(i);
-			if (!Float.isNaN(minimum) && value < minimum) newvalue = minimum;
-			target.set(i, newvalue);
-		}
+		SpectrumKernels.subtractFrom(value, array(source), target.backingArray(), source.size());
+		SpectrumKernels.clamp(target.backingArray(), minimum, source.size());
 
 		return target;
 	}
@@ -375,16 +347,12 @@ public class SpectrumCalculations
 	
 	public static Spectrum addToList(ReadOnlySpectrum data, float value) {
 		Spectrum copy = new ISpectrum(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			copy.set(i, data.get(i) + value);
-		}
+		SpectrumKernels.add(array(data), copy.backingArray(), value, data.size());
 		return copy;
 	}
 	
 	public static void addToList_inplace(Spectrum data, float value) {
-		for (int i = 0; i < data.size(); i++) {
-			data.set(i, data.get(i) + value);
-		}
+		SpectrumKernels.add(data.backingArray(), data.backingArray(), value, data.size());
 	}
 	
 
@@ -400,12 +368,7 @@ public class SpectrumCalculations
 
 		Spectrum result = new ISpectrum(l1.size());
 		int maxInd = Math.min(l1.size(), l2.size());
-		float value;
-		for (int i = 0; i < maxInd; i++)
-		{
-			value = l1.get(i) + l2.get(i);
-			result.set(i, value);
-		}
+		SpectrumKernels.add(array(l1), array(l2), result.backingArray(), maxInd);
 
 		return result;
 	}
@@ -420,16 +383,8 @@ public class SpectrumCalculations
 	public static void addLists_inplace(final Spectrum l1, final ReadOnlySpectrum l2)
 	{
 
-		//optimization to get rid of get/set call overhead
-		final float[] l1Array = l1.backingArray();
-		final float[] l2Array = ((Spectrum)l2).backingArray();
-		
 		final int maxInd = Math.min(l1.size(), l2.size());
-		
-		for (int i = 0; i < maxInd; i++)
-		{
-			l1Array[i] = l1Array[i] + l2Array[i];
-		}
+		SpectrumKernels.add(l1.backingArray(), array(l2), l1.backingArray(), maxInd);
 		
 	}
 
@@ -460,14 +415,7 @@ public class SpectrumCalculations
 	{
 
 		Spectrum result = new ISpectrum(l1.size());
-		int maxInd = Math.min(l1.size(), l2.size());
-		float value;
-		for (int i = 0; i < maxInd; i++)
-		{
-			value = l1.get(i) - l2.get(i);
-			if (!Float.isNaN(minimum) && value < minimum) value = minimum;
-			result.set(i, value);
-		}
+		subtractLists_target(l1, l2, result, minimum);
 
 		return result;
 	}
@@ -481,14 +429,8 @@ public class SpectrumCalculations
 	 */
 	public static void subtractLists_inplace(Spectrum l1, Spectrum l2)
 	{
-		float[] l1a = l1.backingArray();
-		float[] l2a = ((Spectrum)l2).backingArray();
-		
 		int maxInd = Math.min(l1.size(), l2.size());
-		for (int i = 0; i < maxInd; i++)
-		{
-			l1a[i] = l1a[i] - l2a[i];
-		}
+		SpectrumKernels.subtract(l1.backingArray(), array(l2), l1.backingArray(), maxInd);
 		
 	}
 
@@ -503,47 +445,21 @@ public class SpectrumCalculations
 	public static void subtractLists_inplace(Spectrum l1, ReadOnlySpectrum l2, final float minimum)
 	{
 
-		float[] l1a = l1.backingArray();
-		float[] l2a = ((Spectrum)l2).backingArray();
-		
-		int maxInd = Math.min(l1.size(), l2.size());
-		float value;
-		for (int i = 0; i < maxInd; i++)
-		{
-			value = l1a[i] - l2a[i];
-			if (!Float.isNaN(minimum) && value < minimum) value = minimum;
-			l1a[i] = value;
-		}
+		subtractLists_target(l1, l2, l1, minimum);
 		
 	}
 
 	
 	public static void subtractLists_target(ReadOnlySpectrum l1, ReadOnlySpectrum l2, Spectrum target) {
-		float[] l1a = ((Spectrum)l1).backingArray();
-		float[] l2a = ((Spectrum)l2).backingArray();
-		float[] ta = target.backingArray();
-		
 		int maxInd = Math.min(l1.size(), l2.size());
-		for (int i = 0; i < maxInd; i++)
-		{
-			ta[i] = l1a[i] - l2a[i];
-		}
+		SpectrumKernels.subtract(array(l1), array(l2), target.backingArray(), maxInd);
 	}
 	
 	public static void subtractLists_target(ReadOnlySpectrum l1, ReadOnlySpectrum l2, Spectrum target, final float minimum) {
 		
-		float[] l1a = ((Spectrum)l1).backingArray();
-		float[] l2a = ((Spectrum)l2).backingArray();
-		float[] ta = target.backingArray();
-		
 		int maxInd = Math.min(l1.size(), l2.size());
-		float value;
-		for (int i = 0; i < maxInd; i++)
-		{
-			value = l1a[i] - l2a[i];
-			if (!Float.isNaN(minimum) && value < minimum) value = minimum;
-			ta[i] = value;
-		}
+		SpectrumKernels.subtract(array(l1), array(l2), target.backingArray(), maxInd);
+		SpectrumKernels.clamp(target.backingArray(), minimum, maxInd);
 		
 	}
 
@@ -562,10 +478,7 @@ public class SpectrumCalculations
 
 		int maxInd = Math.min(l1.size(), l2.size());
 		Spectrum result = new ISpectrum(maxInd);
-		for (int i = 0; i < maxInd; i++)
-		{
-			result.set(i, l1.get(i) * l2.get(i));
-		}
+		SpectrumKernels.multiply(array(l1), array(l2), result.backingArray(), maxInd);
 		
 		return result;
 	}
@@ -581,10 +494,7 @@ public class SpectrumCalculations
 	{
 
 		int maxInd = Math.min(l1.size(), l2.size());
-		for (int i = 0; i < maxInd; i++)
-		{
-			l1.set(i, l1.get(i) * l2.get(i));
-		}
+		SpectrumKernels.multiply(l1.backingArray(), array(l2), l1.backingArray(), maxInd);
 		
 		return l1;
 	}
@@ -601,20 +511,17 @@ public class SpectrumCalculations
 	public static Spectrum getDatasetAverage(List<ReadOnlySpectrum> dataset)
 	{
 
-		Spectrum average = new ISpectrum(dataset.get(0).size());
+		int channels = dataset.get(0).size();
+		float[] sums = new float[channels];
 
-		float channelSum;
-		for (int channel = 0; channel < dataset.get(0).size(); channel++)
+		//walk each spectrum in order rather than each channel across all spectra
+		for (ReadOnlySpectrum spectrum : dataset)
 		{
-			channelSum = 0;
-			for (int point = 0; point < dataset.size(); point++)
-			{
-				channelSum += dataset.get(point).get(channel);
-			}
-			average.set(channel, channelSum / dataset.size());
+			SpectrumKernels.add(sums, array(spectrum), sums, channels);
 		}
 
-		return average;
+		SpectrumKernels.divide(sums, sums, dataset.size(), channels);
+		return new ISpectrum(sums, false);
 
 	}
 
@@ -629,44 +536,38 @@ public class SpectrumCalculations
 	public static Spectrum getDatasetMaximums(List<Spectrum> dataset)
 	{
 
-		// a list for eventual maximums, and a list for all values for a particular channel
-		Spectrum maximums = new ISpectrum(dataset.get(0).size());
-		List<Float> valuesAtChannel = new ArrayList<Float>();
+		int channels = dataset.get(0).size();
+		int points = dataset.size();
 
 		// determine a range for the top 10th of a list
-		int section = (int) Math.round((dataset.size() - 1.0) * 0.9);
+		int section = (int) Math.round((points - 1.0) * 0.9);
 		if (section < 0) section = 0;
 
+		// one primitive buffer holds the values for the current channel, and is reused for every channel
+		float[] valuesAtChannel = new float[points];
+		Spectrum maximums = new ISpectrum(channels);
 		float channelMax;
-		for (int channel = 0; channel < dataset.get(0).size(); channel++)
+		for (int channel = 0; channel < channels; channel++)
 		{
 
-			valuesAtChannel.clear();
-			for (int point = 0; point < dataset.size(); point++)
+			for (int point = 0; point < points; point++)
 			{
-				// if (dataset.get(point).get(channel) > channelMax) channelMax =
-				// dataset.get(point).get(channel);
-				valuesAtChannel.add(dataset.get(point).get(channel));
+				valuesAtChannel[point] = dataset.get(point).get(channel);
 			}
 
 			// sort the values for this channel
-			Collections.sort(valuesAtChannel);
+			Arrays.sort(valuesAtChannel);
 
-			// grab the top 10th of the list
-			List<Float> top = valuesAtChannel.subList(section, dataset.size());
-			// if there isn't a tenth to grab, just get the top one
-			if (top.size() == 0)
-			{
-				top = valuesAtChannel.subList(dataset.size() - 1, dataset.size());
-			}
+			// grab the top 10th of the list, or if there isn't a tenth to grab, just get the top one
+			int first = section < points ? section : points - 1;
 
 			// do an averaging
 			channelMax = 0.0f;
-			for (int i = 0; i < top.size(); i++)
+			for (int i = first; i < points; i++)
 			{
-				channelMax += top.get(i);
+				channelMax += valuesAtChannel[i];
 			}
-			channelMax /= top.size();
+			channelMax /= (points - first);
 
 			maximums.set(channel, channelMax);
 		}
@@ -714,13 +615,19 @@ public class SpectrumCalculations
 
 	
 	/**
-	 * Sums the values in the given list
+	 * Sums the values in the given list from start (inclusive) to stop (exclusive)
 	 * 
 	 * @param list
 	 * @return the sum of the values in the list
 	 */
 	public static float sumValuesInList(ReadOnlySpectrum list, int start, int stop)
 	{
+		if (list instanceof Spectrum)
+		{
+			return SpectrumKernels.sum(((Spectrum)list).backingArray(), start, stop);
+		}
+		
+		//copying the whole list just to read part of it would cost more than the sum
 		float sum = 0;
 		for (int i = start; i < stop; i++)
 		{
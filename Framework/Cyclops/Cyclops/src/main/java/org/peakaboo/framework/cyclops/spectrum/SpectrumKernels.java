@@ -0,0 +1,245 @@
+package org.peakaboo.framework.cyclops.spectrum;
+
+/**
+ * Primitive loops over float arrays which the operations in
+ * {@link SpectrumCalculations} and {@link ISpectrum} are built on. Each method
+ * works on the first length entries of the arrays it is given, and checks that
+ * they are long enough up front so that the loops themselves are free of
+ * bounds checks.
+ * <br/><br/>
+ * Element-wise loops are kept as plain counted loops, which the JIT unrolls
+ * and compiles to SIMD instructions on its own. Unrolling them by hand defeats
+ * this and is many times slower. Reductions are a different story: floating
+ * point addition has to be done in order, so a single running total can't be
+ * vectorized, and summing is unrolled over several independent totals
+ * instead.
+ * <br/><br/>
+ * Source and target arrays may be the same array.
+ *
+ * @author NAS
+ *
+ */
+public final class SpectrumKernels
+{
+	
+	private SpectrumKernels() {}
+	
+	
+	/**
+	 * target[i] = source[i] * value
+	 */
+	public static void multiply(float[] source, float[] target, float value, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = source[i] * value;
+		}
+	}
+	
+	/**
+	 * target[i] = source[i] / value
+	 */
+	public static void divide(float[] source, float[] target, float value, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = source[i] / value;
+		}
+	}
+	
+	/**
+	 * target[i] = source[i] + value
+	 */
+	public static void add(float[] source, float[] target, float value, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = source[i] + value;
+		}
+	}
+	
+	/**
+	 * target[i] = source[i] - value
+	 */
+	public static void subtract(float[] source, float value, float[] target, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = source[i] - value;
+		}
+	}
+	
+	/**
+	 * target[i] = value - source[i]
+	 */
+	public static void subtractFrom(float value, float[] source, float[] target, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = value - source[i];
+		}
+	}
+	
+	/**
+	 * target[i] = |source[i]|
+	 */
+	public static void abs(float[] source, float[] target, int length)
+	{
+		check(length, source, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = Math.abs(source[i]);
+		}
+	}
+	
+	/**
+	 * Raises any values below minimum in the target to minimum. Does nothing if
+	 * minimum is NaN.
+	 */
+	public static void clamp(float[] target, float minimum, int length)
+	{
+		if (Float.isNaN(minimum)) return;
+		check(length, target, target);
+		for (int i = 0; i < length; i++)
+		{
+			float value = target[i];
+			target[i] = value < minimum ? minimum : value;
+		}
+	}
+	
+	
+	/**
+	 * target[i] = a[i] + b[i]
+	 */
+	public static void add(float[] a, float[] b, float[] target, int length)
+	{
+		check(length, a, b, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = a[i] + b[i];
+		}
+	}
+	
+	/**
+	 * target[i] = a[i] - b[i]
+	 */
+	public static void subtract(float[] a, float[] b, float[] target, int length)
+	{
+		check(length, a, b, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = a[i] - b[i];
+		}
+	}
+	
+	/**
+	 * target[i] = a[i] * b[i]
+	 */
+	public static void multiply(float[] a, float[] b, float[] target, int length)
+	{
+		check(length, a, b, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = a[i] * b[i];
+		}
+	}
+	
+	/**
+	 * target[i] = max(a[i], b[i])
+	 */
+	public static void max(float[] a, float[] b, float[] target, int length)
+	{
+		check(length, a, b, target);
+		for (int i = 0; i < length; i++)
+		{
+			target[i] = Math.max(a[i], b[i]);
+		}
+	}
+	
+	
+	/**
+	 * Sums the values in [start, stop)
+	 */
+	public static float sum(float[] values, int start, int stop)
+	{
+		if (start < 0 || stop > values.length) throw new ArrayIndexOutOfBoundsException(start < 0 ? start : stop - 1);
+		float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = start;
+		for (; i + 3 < stop; i += 4)
+		{
+			s0 += values[i];
+			s1 += values[i+1];
+			s2 += values[i+2];
+			s3 += values[i+3];
+		}
+		for (; i < stop; i++)
+		{
+			s0 += values[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+	
+	/**
+	 * Returns the largest of the first length values, or NaN if any of them are
+	 * NaN, as {@link Math#max(float, float)} would.
+	 */
+	public static float max(float[] values, int length)
+	{
+		check(length, values, values);
+		float m0 = values[0], m1 = m0, m2 = m0, m3 = m0;
+		int i = 0;
+		for (; i + 3 < length; i += 4)
+		{
+			m0 = Math.max(m0, values[i]);
+			m1 = Math.max(m1, values[i+1]);
+			m2 = Math.max(m2, values[i+2]);
+			m3 = Math.max(m3, values[i+3]);
+		}
+		for (; i < length; i++)
+		{
+			m0 = Math.max(m0, values[i]);
+		}
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+	
+	/**
+	 * Returns the smallest of the first length values, or NaN if any of them are
+	 * NaN, as {@link Math#min(float, float)} would.
+	 */
+	public static float min(float[] values, int length)
+	{
+		check(length, values, values);
+		float m0 = values[0], m1 = m0, m2 = m0, m3 = m0;
+		int i = 0;
+		for (; i + 3 < length; i += 4)
+		{
+			m0 = Math.min(m0, values[i]);
+			m1 = Math.min(m1, values[i+1]);
+			m2 = Math.min(m2, values[i+2]);
+			m3 = Math.min(m3, values[i+3]);
+		}
+		for (; i < length; i++)
+		{
+			m0 = Math.min(m0, values[i]);
+		}
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+	
+	
+	private static void check(int length, float[] a, float[] b)
+	{
+		if (length > a.length || length > b.length) throw new ArrayIndexOutOfBoundsException(length - 1);
+	}
+	
+	private static void check(int length, float[] a, float[] b, float[] c)
+	{
+		check(length, a, b);
+		check(length, c, c);
+	}
+
+}
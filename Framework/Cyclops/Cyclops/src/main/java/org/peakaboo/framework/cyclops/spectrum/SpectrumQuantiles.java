@@ -0,0 +1,198 @@
+package org.peakaboo.framework.cyclops.spectrum;
+
+/**
+ * Answers order statistics (the nth smallest value, percentiles, the maximum)
+ * about the values in a spectrum without sorting them. Values are counted into
+ * a fixed number of equal-width bins once, up front. Each query then finds the
+ * bin holding the requested rank from the running counts, and quickselects
+ * only the values in that bin. Results are exactly what indexing into a copy
+ * of the values sorted with {@link java.util.Arrays#sort(float[])} would give,
+ * including NaN values sorting last.
+ * <br/><br/>
+ * The spectrum is read again on each query, so it should not be modified while
+ * a SpectrumQuantiles built from it is in use.
+ *
+ * @author NAS
+ *
+ */
+public class SpectrumQuantiles {
+	
+	private static final int BINS = 1024;
+	
+	private final float[] values;
+	private final int size;
+	
+	//count of values which are not NaN
+	private final int counted;
+	private float min, max;
+	
+	//histogram over [min, max], null when it isn't needed or can't be built
+	private int[] starts;
+	private double scale;
+	
+	public SpectrumQuantiles(ReadOnlySpectrum data) {
+		this.values = data instanceof Spectrum ? ((Spectrum) data).backingArray() : data.backingArrayCopy();
+		this.size = data.size();
+		
+		int nans = 0;
+		min = Float.POSITIVE_INFINITY;
+		max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			float v = values[i];
+			if (v != v) {
+				nans++;
+				continue;
+			}
+			if (v < min) { min = v; }
+			if (v > max) { max = v; }
+		}
+		counted = size - nans;
+		
+		if (counted == 0 || min == max || Float.isInfinite(min) || Float.isInfinite(max)) {
+			return;
+		}
+		
+		int bins = Math.min(BINS, counted);
+		scale = bins / ((double) max - min);
+		int[] counts = new int[bins];
+		for (int i = 0; i < size; i++) {
+			float v = values[i];
+			if (v == v) {
+				counts[bin(v, bins)]++;
+			}
+		}
+		starts = new int[bins+1];
+		for (int b = 0; b < bins; b++) {
+			starts[b+1] = starts[b] + counts[b];
+		}
+	}
+	
+	private int bin(float v, int bins) {
+		int b = (int) ((v - (double) min) * scale);
+		return b >= bins ? bins-1 : b;
+	}
+	
+	/**
+	 * The number of values, including any NaN values
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the smallest value which is not NaN
+	 */
+	public float min() {
+		if (counted == 0) { return Float.NaN; }
+		return min;
+	}
+	
+	/**
+	 * Returns the largest value, or NaN if any value is NaN, which agrees with
+	 * {@link ReadOnlySpectrum#max()}
+	 */
+	public float max() {
+		if (counted < size) { return Float.NaN; }
+		return max;
+	}
+	
+	/**
+	 * Returns the value which would be at the given index if the values were
+	 * sorted in ascending order
+	 */
+	public float value(int rank) {
+		if (rank < 0 || rank >= size) {
+			throw new IndexOutOfBoundsException("Rank " + rank + " is out of bounds for " + size + " values");
+		}
+		if (rank >= counted) { return Float.NaN; }
+		if (min == max) { return min; }
+		
+		if (starts == null) {
+			//no histogram, so select from all of the values
+			float[] selectable = new float[counted];
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				if (values[i] == values[i]) { selectable[n++] = values[i]; }
+			}
+			return select(selectable, rank);
+		}
+		
+		//find the last bin which starts at or before the requested rank
+		int lo = 0, hi = starts.length - 2;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (starts[mid] <= rank) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		int bin = lo;
+		int bins = starts.length - 1;
+		
+		//collect the values in that bin and select from just those
+		float[] selectable = new float[starts[bin+1] - starts[bin]];
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			float v = values[i];
+			if (v == v && bin(v, bins) == bin) {
+				selectable[n++] = v;
+			}
+		}
+		return select(selectable, rank - starts[bin]);
+	}
+	
+	/**
+	 * Returns the value at the given fraction (0..1) of the way through the
+	 * sorted values, rounding the position down, as in
+	 * <tt>sorted[(int)(size * fraction)]</tt>
+	 */
+	public float quantile(float fraction) {
+		int rank = (int) (size * fraction);
+		return value(Math.max(0, Math.min(size-1, rank)));
+	}
+	
+	/**
+	 * Reorders the given array so that the value at the given rank is the one
+	 * which would be there if the array were sorted, and returns it. None of the
+	 * values may be NaN.
+	 */
+	public static float select(float[] values, int rank) {
+		int lo = 0, hi = values.length - 1;
+		while (hi > lo) {
+			//median of three as the pivot guards against already sorted input
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] < values[lo]) { swap(values, mid, lo); }
+			if (values[hi] < values[lo]) { swap(values, hi, lo); }
+			if (values[hi] < values[mid]) { swap(values, hi, mid); }
+			float pivot = values[mid];
+			
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (values[i] < pivot) { i++; }
+				while (values[j] > pivot) { j--; }
+				if (i <= j) {
+					swap(values, i, j);
+					i++;
+					j--;
+				}
+			}
+			
+			if (rank <= j) {
+				hi = j;
+			} else if (rank >= i) {
+				lo = i;
+			} else {
+				return values[rank];
+			}
+		}
+		return values[rank];
+	}
+	
+	private static void swap(float[] values, int a, int b) {
+		float t = values[a];
+		values[a] = values[b];
+		values[b] = t;
+	}
+
+}
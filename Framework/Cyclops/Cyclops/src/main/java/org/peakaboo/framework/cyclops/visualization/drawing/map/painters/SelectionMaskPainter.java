@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.log.CyclopsLog;
 import org.peakaboo.framework.cyclops.visualization.palette.PaletteColour;
 
@@ -12,13 +13,13 @@ public class SelectionMaskPainter extends RasterColorMapPainter {
 	private int sizeX, sizeY;
 	private PaletteColour selectionColour;
 	
-	public SelectionMaskPainter(PaletteColour c, List<Integer> points, int sizeX, int sizeY) {
+	public SelectionMaskPainter(PaletteColour c, IndexSet points, int sizeX, int sizeY) {
 		super();
 		this.selectionColour = c;
 		configure(sizeX, sizeY, points);	
 	}
 
-	public synchronized void configure(int dataWidth, int dataHeight, List<Integer> points) {
+	public synchronized void configure(int dataWidth, int dataHeight, IndexSet points) {
 		if (this.sizeX != dataWidth || this.sizeY != dataHeight) {
 			super.buffer = null;
 		}
@@ -27,7 +28,7 @@ public class SelectionMaskPainter extends RasterColorMapPainter {
 	
 		// don't bother updating the pixel list, we won't be drawing anything when no
 		// points are in the selection.
-		if (points.size() == 0) {
+		if (points.isEmpty()) {
 			setEnabled(false);
 			return;
 		}
@@ -39,12 +40,12 @@ public class SelectionMaskPainter extends RasterColorMapPainter {
 		for (int i = 0; i < size; i++) {
 			colors.add(transparent);
 		}
-		for (Integer i : points) {
-			if (i >= size || i < 0) {
+		for (int i = points.first(); i >= 0; i = points.nextIndex(i + 1)) {
+			if (i >= size) {
 				CyclopsLog.get().log(Level.FINE, "Selected point " + i + " is out of bounds, ignoring");
-			} else {
-				colors.set(i, selectionColour);
+				break;
 			}
+			colors.set(i, selectionColour);
 		}
 
 		setPixels(colors);
@@ -0,0 +1,62 @@
+package cyclops;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.cyclops.IndexSet;
+
+public class IndexSetTests {
+	
+	@Test
+	public void setOperations() {
+		
+		IndexSet a = IndexSet.of(1, 2, 3, 100);
+		IndexSet b = IndexSet.of(3, 4, 100);
+		
+		IndexSet union = a.copy();
+		union.addAll(b);
+		Assert.assertEquals(IndexSet.of(1, 2, 3, 4, 100), union);
+		
+		IndexSet intersection = a.copy();
+		intersection.retainAll(b);
+		Assert.assertEquals(IndexSet.of(3, 100), intersection);
+		
+		IndexSet difference = a.copy();
+		difference.removeAll(b);
+		Assert.assertEquals(IndexSet.of(1, 2), difference);
+		
+		union.retainBelow(4);
+		Assert.assertArrayEquals(new int[] {1, 2, 3}, union.toArray());
+		Assert.assertEquals(3, union.size());
+		Assert.assertFalse(union.contains(-1));
+	
+	}
+	
+	@Test
+	public void shift() {
+		
+		IndexSet set = IndexSet.of(0, 63, 64, 130);
+		Assert.assertEquals(IndexSet.of(65, 128, 129, 195), set.shift(65));
+		Assert.assertEquals(IndexSet.of(0, 66), set.shift(-64));
+		Assert.assertEquals(new IndexSet(), set.shift(-200));
+	
+	}
+	
+	@Test
+	public void dilate() {
+		
+		//a 4x3 grid with the corner and centre points selected
+		IndexSet set = IndexSet.of(0, 6);
+		IndexSet dilated = set.dilate(4, 3);
+		Assert.assertEquals(IndexSet.of(0, 1, 2, 4, 5, 6, 7, 10), dilated);
+		
+		//points on the right edge don't wrap around to the next row
+		set = IndexSet.of(3);
+		Assert.assertEquals(IndexSet.of(2, 3, 7), set.dilate(4, 3));
+		
+		//points on the left edge don't wrap around to the previous row
+		set = IndexSet.of(4);
+		Assert.assertEquals(IndexSet.of(0, 4, 5, 8), set.dilate(4, 3));
+	
+	}
+
+}
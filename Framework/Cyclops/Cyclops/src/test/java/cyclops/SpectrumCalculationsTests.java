@@ -0,0 +1,74 @@
+package cyclops;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.cyclops.spectrum.FloatBufferSpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
+
+public class SpectrumCalculationsTests {
+	
+	@Test
+	public void sumValuesInRange() {
+		float[] values = new float[100];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+		
+		//backed by an array, and read-only views which are summed through get
+		FloatBuffer buffer = FloatBuffer.allocate(120);
+		buffer.position(20);
+		buffer.put(values);
+		FloatBufferSpectrum view = new FloatBufferSpectrum(buffer, 20, values.length);
+		
+		for (int[] range : new int[][] {{0, 100}, {10, 17}, {5, 5}, {99, 100}}) {
+			float expected = 0;
+			for (int i = range[0]; i < range[1]; i++) {
+				expected += i;
+			}
+			Assert.assertEquals(expected, SpectrumCalculations.sumValuesInList(new ISpectrum(values), range[0], range[1]), 0f);
+			Assert.assertEquals(expected, SpectrumCalculations.sumValuesInList(view, range[0], range[1]), 0f);
+		}
+	}
+	
+	@Test
+	public void datasetMaximums() {
+		Random random = new Random(2009);
+		for (int points : new int[] {1, 5, 10, 97}) {
+			List<Spectrum> dataset = new ArrayList<>();
+			for (int p = 0; p < points; p++) {
+				Spectrum spectrum = new ISpectrum(64);
+				for (int c = 0; c < 64; c++) {
+					spectrum.set(c, random.nextFloat() * 1000f);
+				}
+				dataset.add(spectrum);
+			}
+			
+			//the original implementation, which sorted a list of boxed values for each channel
+			int section = (int) Math.round((points - 1.0) * 0.9);
+			Spectrum maximums = SpectrumCalculations.getDatasetMaximums(dataset);
+			for (int c = 0; c < 64; c++) {
+				List<Float> values = new ArrayList<>();
+				for (Spectrum spectrum : dataset) {
+					values.add(spectrum.get(c));
+				}
+				Collections.sort(values);
+				List<Float> top = values.subList(section, points);
+				float expected = 0;
+				for (float value : top) {
+					expected += value;
+				}
+				expected /= top.size();
+				Assert.assertEquals("points " + points + ", channel " + c, expected, maximums.get(c), 0f);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package cyclops;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumQuantiles;
+
+public class SpectrumQuantilesTests {
+	
+	@Test
+	public void matchesSorted() {
+		
+		Random random = new Random(1);
+		float[] values = new float[5000];
+		for (int i = 0; i < values.length; i++) {
+			//mostly empty with a long tail and a few very hot pixels, like a real map
+			if (random.nextInt(3) == 0) {
+				values[i] = (float) Math.exp(random.nextGaussian() * 2);
+			}
+			if (random.nextInt(1000) == 0) {
+				values[i] = 1e6f;
+			}
+		}
+		values[17] = -3f;
+		
+		SpectrumQuantiles quantiles = new SpectrumQuantiles(new ISpectrum(values));
+		float[] sorted = Arrays.copyOf(values, values.length);
+		Arrays.sort(sorted);
+		
+		for (int rank = 0; rank < sorted.length; rank += 7) {
+			Assert.assertEquals(sorted[rank], quantiles.value(rank), 0f);
+		}
+		Assert.assertEquals(sorted[(int)(sorted.length * 0.999f)], quantiles.quantile(0.999f), 0f);
+		Assert.assertEquals(sorted[sorted.length-1], quantiles.max(), 0f);
+		Assert.assertEquals(-3f, quantiles.min(), 0f);
+	
+	}
+	
+	@Test
+	public void edgeCases() {
+		
+		SpectrumQuantiles flat = new SpectrumQuantiles(new ISpectrum(10, 2f));
+		Assert.assertEquals(2f, flat.value(9), 0f);
+		
+		SpectrumQuantiles nans = new SpectrumQuantiles(new ISpectrum(new float[] {Float.NaN, 3f, 1f, 2f}));
+		Assert.assertEquals(1f, nans.value(0), 0f);
+		Assert.assertEquals(3f, nans.value(2), 0f);
+		Assert.assertTrue(Float.isNaN(nans.value(3)));
+		Assert.assertTrue(Float.isNaN(nans.max()));
+		
+		SpectrumQuantiles infinite = new SpectrumQuantiles(new ISpectrum(new float[] {Float.POSITIVE_INFINITY, 3f, 1f}));
+		Assert.assertEquals(3f, infinite.value(1), 0f);
+	
+	}
+
+}
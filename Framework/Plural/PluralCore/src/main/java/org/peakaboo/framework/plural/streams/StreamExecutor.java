@@ -3,6 +3,10 @@ package org.peakaboo.framework.plural.streams;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -12,30 +16,45 @@ import java.util.stream.StreamSupport;
 import org.peakaboo.framework.eventful.EventfulEnum;
 import org.peakaboo.framework.plural.monitor.TaskMonitor;
 
+/**
+ * A StreamExecutor observes a (usually parallel) stream as a filter, counting
+ * the elements which pass through it to report progress, and cutting the
+ * stream short when the task is aborted. Since {@link #test(Object)} is called
+ * for every element from every worker thread, it takes no locks: the count is
+ * kept in a {@link LongAdder}, the state is only ever read, and listeners are
+ * notified of progress at most once per notification interval rather than
+ * once per some number of elements.
+ */
 public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implements Predicate<Object>, TaskMonitor<T>{
 
-
-	
+	private static final int DEFAULT_INTERVAL = 100;
 	
 	private Thread thread;
 	private StreamExecutor<?> next;
 	private boolean parallel = true;
 	
-	private int count = 0;
-	private int size = -1;
-	private int interval = 100;
-	Optional<T> result = Optional.empty();
+	private final LongAdder count = new LongAdder();
+	private volatile int size = -1;
+	//notification interval in nanoseconds, and the time of the next notification
+	private final long interval;
+	private final AtomicLong nextNotification = new AtomicLong();
+	volatile Optional<T> result = Optional.empty();
 	
-	private State state = State.RUNNING;
+	private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
 	private String name;
 	
 	public StreamExecutor(String name) {
-		this(name, 100);
+		this(name, DEFAULT_INTERVAL);
 	}
 	
+	/**
+	 * @param name the name of this task
+	 * @param notificationInterval the minimum time in milliseconds between progress notifications
+	 */
 	public StreamExecutor(String name, int notificationInterval) {
 		this.name = name;
-		this.interval = notificationInterval;
+		this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(0, notificationInterval));
+		this.nextNotification.set(System.nanoTime() + this.interval);
 	}
 	
 	
@@ -50,12 +69,15 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 	}
 
 	@Override
-	public synchronized boolean test(Object t) {
-		count++;
-		if (count % interval == 0) {
+	public boolean test(Object t) {
+		count.increment();
+		long now = System.nanoTime();
+		long next = nextNotification.get();
+		//only the thread which claims this notification sends it
+		if (now - next >= 0 && nextNotification.compareAndSet(next, now + interval)) {
 			updateListeners(Event.PROGRESS);
 		}
-		return state == State.RUNNING;
+		return state.get() == State.RUNNING;
 	}
 	
 
@@ -76,8 +98,7 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 
 	@Override
 	public void abort() {
-		if (state == State.RUNNING) {
-			state = State.ABORTED;
+		if (state.compareAndSet(State.RUNNING, State.ABORTED)) {
 			updateListeners(Event.ABORTED);
 			removeAllListeners();
 		}
@@ -87,8 +108,7 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 	@Override
 	public void complete() {
 		
-		if (state == State.RUNNING) {
-			state = State.COMPLETED;
+		if (state.compareAndSet(State.RUNNING, State.COMPLETED)) {
 			updateListeners(Event.COMPLETED);
 			removeAllListeners();
 		}
@@ -96,12 +116,12 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 	
 	@Override
 	public State getState() {
-		return state;
+		return state.get();
 	}
 	
 	@Override
 	public int getCount() {
-		return count;
+		return count.intValue();
 	}
 
 	@Override
@@ -119,7 +139,7 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 	}
 
 	public void setResult(T result) {
-		if (state == State.RUNNING) {
+		if (state.get() == State.RUNNING) {
 			this.result = Optional.ofNullable(result);
 			complete();
 		}
@@ -153,7 +173,7 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 			setResult(task.get());
 			
 			//If another StreamExecutor is specified to run after this is done, kick it off now
-			if (this.next != null && state == State.COMPLETED) {
+			if (this.next != null && state.get() == State.COMPLETED) {
 				next.start();
 			}
 		});		
@@ -219,7 +239,7 @@ public class StreamExecutor<T> extends EventfulEnum<TaskMonitor.Event> implement
 			);
 			
 			//If another StreamExecutor is specified to run after this is done, kick it off now
-			if (this.next != null && state == State.COMPLETED) {
+			if (this.next != null && state.get() == State.COMPLETED) {
 				next.start();
 			}
 		});		
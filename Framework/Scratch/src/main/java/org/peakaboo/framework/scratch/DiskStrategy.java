@@ -4,4 +4,6 @@ public enum DiskStrategy {
 	PREFER_MEMORY,
 	REQUIRE_DISK,
 	PREFER_DISK,
+	REQUIRE_MAPPED,
+	PREFER_MAPPED,
 }
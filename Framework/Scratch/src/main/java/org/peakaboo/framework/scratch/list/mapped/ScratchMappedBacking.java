@@ -0,0 +1,258 @@
+package org.peakaboo.framework.scratch.list.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * Stores byte arrays in a temporary file which is memory mapped in fixed-size
+ * segments. Entries are located through a primitive offset/length index rather
+ * than a list of range objects. Writes are appended to the end of the file and
+ * are serialized, but reads take no locks and may proceed concurrently from
+ * any number of threads.
+ * <br/><br/>
+ * Because existing entries are never overwritten in place, and the index and
+ * the mapped segments are published together as one immutable snapshot, a
+ * reader will always see either the old or the new value of an entry being
+ * replaced. Space freed by
+ * {@link #set(int, byte[])} and {@link #remove(int)} is not reclaimed until
+ * {@link #clear()} is called, which also deletes the temporary file.
+ */
+class ScratchMappedBacking {
+
+	//64MB segments
+	private static final int SEGMENT_BITS = 26;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	
+	/*
+	 * Replaced by the writer after every modification. The volatile write makes
+	 * all prior writes to the index arrays and the mapped segments visible to
+	 * any reader which subsequently reads the field.
+	 */
+	private volatile Index index;
+	
+	//only accessed while holding this object's monitor
+	private long writePosition;
+	
+	
+	/*
+	 * The location of each stored value, along with the segments which hold
+	 * them, so that a reader always sees an offset and length together with the
+	 * segments they were written to. An empty slot has a negative length.
+	 * 
+	 * The size is only ever raised by publishing a new Index, after the slots
+	 * below it have been written. Slots at or above the size may be written
+	 * while readers are using the same arrays, but readers never look at them.
+	 * Slots below the size are never changed in place, since a reader could
+	 * otherwise see the offset of one value with the length of another.
+	 */
+	private static class Index {
+		final long[] offsets;
+		final int[] lengths;
+		final MappedByteBuffer[] segments;
+		final int size;
+		
+		Index(long[] offsets, int[] lengths, MappedByteBuffer[] segments, int size) {
+			this.offsets = offsets;
+			this.lengths = lengths;
+			this.segments = segments;
+			this.size = size;
+		}
+		
+		static Index empty() {
+			return new Index(new long[16], new int[16], new MappedByteBuffer[0], 0);
+		}
+	}
+	
+	
+	public ScratchMappedBacking() throws IOException {
+		open();
+		index = Index.empty();
+	}
+	
+	private void open() throws IOException {
+		file = File.createTempFile("ScratchMappedList [temp - ", "]");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		writePosition = 0;
+	}
+	
+	private void close() {
+		if (raf == null) return;
+		try {
+			raf.close();
+		} catch (IOException e) {
+			
+		}
+		//this may fail on platforms which don't allow deleting mapped files, leaving it for deleteOnExit
+		file.delete();
+		raf = null;
+		channel = null;
+		file = null;
+	}
+	
+	
+	
+	///////////////////////////////////////////////////
+	// Reading -- lock-free
+	///////////////////////////////////////////////////
+	
+	public byte[] get(int i) {
+		Index idx = this.index;
+		if (i < 0 || i >= idx.size) return null;
+		int length = idx.lengths[i];
+		if (length < 0) return null;
+		
+		byte[] data = new byte[length];
+		read(idx.segments, idx.offsets[i], data);
+		return data;
+	}
+	
+	public int size() {
+		return index.size;
+	}
+	
+	private static void read(MappedByteBuffer[] segs, long offset, byte[] data) {
+		int done = 0;
+		while (done < data.length) {
+			long position = offset + done;
+			//duplicate so that concurrent readers don't share a buffer position
+			ByteBuffer buffer = segs[(int)(position >>> SEGMENT_BITS)].duplicate();
+			int within = (int)(position & SEGMENT_MASK);
+			int count = (int) Math.min(data.length - done, SEGMENT_SIZE - within);
+			((Buffer) buffer).position(within);
+			buffer.get(data, done, count);
+			done += count;
+		}
+	}
+	
+	
+	
+	///////////////////////////////////////////////////
+	// Writing -- serialized
+	///////////////////////////////////////////////////
+	
+	/**
+	 * Stores the given data at the given index, expanding the list with empty
+	 * entries if needed. Like {@link #set(int, byte[])}, this replaces any
+	 * existing entry rather than shifting later entries.
+	 */
+	public synchronized void add(int i, byte[] data) {
+		put(i, data);
+	}
+	
+	public synchronized void set(int i, byte[] data) {
+		put(i, data);
+	}
+	
+	public synchronized void remove(int i) {
+		Index idx = this.index;
+		if (i < 0 || i >= idx.size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + idx.size);
+		//shift into new arrays, since readers may still be using the old ones
+		long[] offsets = new long[idx.offsets.length];
+		int[] lengths = new int[idx.lengths.length];
+		System.arraycopy(idx.offsets, 0, offsets, 0, i);
+		System.arraycopy(idx.offsets, i+1, offsets, i, idx.size - i - 1);
+		System.arraycopy(idx.lengths, 0, lengths, 0, i);
+		System.arraycopy(idx.lengths, i+1, lengths, i, idx.size - i - 1);
+		this.index = new Index(offsets, lengths, idx.segments, idx.size - 1);
+	}
+	
+	public synchronized void clear() {
+		//the empty index carries no segments, so no reader can reach the closed file through it
+		this.index = Index.empty();
+		close();
+		writePosition = 0;
+	}
+	
+	private void put(int i, byte[] data) {
+		if (raf == null) {
+			try {
+				open();
+			} catch (IOException e) {
+				throw new UnsupportedOperationException("Cannot create backend file", e);
+			}
+		}
+		
+		Index idx = this.index;
+		long offset = writePosition;
+		MappedByteBuffer[] segments = ensureMapped(idx.segments, offset + data.length);
+		write(segments, offset, data);
+		writePosition += data.length;
+		
+		long[] offsets = idx.offsets;
+		int[] lengths = idx.lengths;
+		if (i < idx.size) {
+			//replace the slot in copies, since readers may be using this one
+			offsets = offsets.clone();
+			lengths = lengths.clone();
+			offsets[i] = offset;
+			lengths[i] = data.length;
+			this.index = new Index(offsets, lengths, segments, idx.size);
+			return;
+		}
+		
+		if (i >= offsets.length) {
+			int capacity = Math.max(i+1, offsets.length + (offsets.length >> 1));
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		//fill the slots up to the new size before publishing it
+		Arrays.fill(lengths, idx.size, i, -1);
+		offsets[i] = offset;
+		lengths[i] = data.length;
+		this.index = new Index(offsets, lengths, segments, i+1);
+	}
+	
+	private static void write(MappedByteBuffer[] segs, long offset, byte[] data) {
+		int done = 0;
+		while (done < data.length) {
+			long position = offset + done;
+			ByteBuffer buffer = segs[(int)(position >>> SEGMENT_BITS)].duplicate();
+			int within = (int)(position & SEGMENT_MASK);
+			int count = (int) Math.min(data.length - done, SEGMENT_SIZE - within);
+			((Buffer) buffer).position(within);
+			buffer.put(data, done, count);
+			done += count;
+		}
+	}
+	
+	/*
+	 * Returns segments covering the file up to the given position, mapping new
+	 * ones into a copy of the given array if needed
+	 */
+	private MappedByteBuffer[] ensureMapped(MappedByteBuffer[] segs, long end) {
+		int required = (int)((end + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+		if (required <= segs.length) return segs;
+		
+		MappedByteBuffer[] grown = Arrays.copyOf(segs, required);
+		try {
+			for (int s = segs.length; s < required; s++) {
+				grown[s] = channel.map(MapMode.READ_WRITE, s * SEGMENT_SIZE, SEGMENT_SIZE);
+			}
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("Cannot map backend file", e);
+		}
+		return grown;
+	}
+	
+	
+	
+	@Override
+	protected synchronized void finalize() {
+		close();
+	}
+	
+}
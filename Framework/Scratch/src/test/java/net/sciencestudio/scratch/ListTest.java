@@ -18,6 +18,7 @@ public class ListTest{
 	public void test() throws IOException {
 		testList(ScratchLists.memoryBacked(Serializers.java()));
 		testList(ScratchLists.diskBacked(Serializers.java()));
+		testList(ScratchLists.mappedBacked(Serializers.java()));
 	}
 	
 	
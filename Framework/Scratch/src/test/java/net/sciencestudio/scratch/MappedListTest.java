@@ -0,0 +1,93 @@
+package net.sciencestudio.scratch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.scratch.encoders.serializers.Serializers;
+import org.peakaboo.framework.scratch.list.ScratchList;
+import org.peakaboo.framework.scratch.list.ScratchLists;
+
+public class MappedListTest {
+	
+	@Test
+	public void concurrentReadersSeeWholeEntries() throws IOException, InterruptedException {
+		ScratchList<String> list = ScratchLists.mappedBacked(Serializers.java());
+		int count = 200;
+		for (int i = 0; i < count / 2; i++) {
+			list.add(value(i, 0));
+		}
+		
+		AtomicBoolean done = new AtomicBoolean(false);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		
+		//readers check that every entry below the size decodes to a value for that index
+		List<Thread> readers = new ArrayList<>();
+		for (int t = 0; t < 3; t++) {
+			Thread reader = new Thread(() -> {
+				try {
+					while (!done.get()) {
+						int size = list.size();
+						for (int i = 0; i < size; i++) {
+							String value = list.get(i);
+							Assert.assertNotNull("entry " + i + " of " + size, value);
+							Assert.assertTrue(value, value.startsWith(i + ":"));
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+		
+		//the writer grows the list and replaces entries with values of different lengths
+		for (int version = 1; version < 20; version++) {
+			for (int i = 0; i < count; i++) {
+				if (i < list.size()) {
+					list.set(i, value(i, version));
+				} else {
+					list.add(value(i, version));
+				}
+			}
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		Assert.assertEquals(count, list.size());
+		Assert.assertEquals(value(7, 19), list.get(7));
+	}
+	
+	@Test
+	public void clearAndReuse() throws IOException {
+		ScratchList<String> list = ScratchLists.mappedBacked(Serializers.java());
+		list.add("A");
+		list.add("B");
+		list.remove(0);
+		Assert.assertEquals("B", list.get(0));
+		list.clear();
+		Assert.assertEquals(0, list.size());
+		list.add("C");
+		Assert.assertEquals(1, list.size());
+		Assert.assertEquals("C", list.get(0));
+	}
+	
+	private static String value(int index, int version) {
+		StringBuilder sb = new StringBuilder(index + ":" + version + ":");
+		for (int i = 0; i < (index * 7 + version * 13) % 50; i++) {
+			sb.append('x');
+		}
+		return sb.toString();
+	}
+
+}
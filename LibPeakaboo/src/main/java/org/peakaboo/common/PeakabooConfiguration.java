@@ -11,6 +11,12 @@ public class PeakabooConfiguration {
 
 	public static boolean diskstore = true;
 	public static ScratchEncoder<Spectrum> spectrumEncoder = new CompoundEncoder<>(Serializers.fstUnsafe(ISpectrum.class), Compressors.lz4fast());
+	//disk space allowed for uncompressed storage of data sets with a fixed channel count, 0 to disable
+	public static long fixedWidthBudget = 4L << 30;
+	//disk space allowed for an additional channel-major copy of such data sets, 0 to disable
+	public static long channelMajorBudget = 4L << 30;
+	//disk space allowed for filtered spectra kept for reuse, 0 to disable
+	public static long filteredSpectrumBudget = 4L << 30;
 
 	
 	public static MemorySize memorySize = calcMemoryFootprint();
@@ -29,6 +29,7 @@ import org.peakaboo.display.map.MapRenderSettings;
 import org.peakaboo.display.map.MapScaleMode;
 import org.peakaboo.display.map.Mapper;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.util.Mutable;
 import org.peakaboo.framework.cyclops.visualization.SaveableSurface;
 import org.peakaboo.framework.cyclops.visualization.SurfaceType;
@@ -121,7 +122,7 @@ public class MappingController extends EventfulType<MapUpdateType>
 		return fittingController;
 	}
 	
-	public SelectionDataSource getDataSourceForSubset(List<Integer> points) {
+	public SelectionDataSource getDataSourceForSubset(IndexSet points) {
 		return plotcontroller.data().getDataSourceForSubset(points, getUserDimensions().getDimensions());
 	}
 	
@@ -199,7 +200,7 @@ public class MappingController extends EventfulType<MapUpdateType>
 		MapRenderData data = new MapRenderData();
 		
 		data.mapModeData = this.getFitting().getMapModeData();
-		data.maxIntensity = this.getFitting().sumAllTransitionSeriesMaps().max();
+		data.maxIntensity = this.getFitting().getMaxIntensity();
 		
 		return data;
 		
@@ -235,7 +236,7 @@ public class MappingController extends EventfulType<MapUpdateType>
 			Mapper mapper = new Mapper();
 			MapRenderData data = new MapRenderData();
 			data.mapModeData = composite.getData(Optional.of(ts));
-			data.maxIntensity = controller.getFitting().sumAllTransitionSeriesMaps().max();
+			data.maxIntensity = controller.getFitting().getMaxIntensity();
 			
 			composite.setAllVisible(false);
 			composite.setVisibility(ts, true);
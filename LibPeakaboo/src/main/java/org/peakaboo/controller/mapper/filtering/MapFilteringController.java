@@ -17,6 +17,7 @@ import org.peakaboo.curvefit.peak.table.Element;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
 import org.peakaboo.framework.cyclops.Bounds;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
@@ -96,7 +97,7 @@ public class MapFilteringController extends EventfulType<MapUpdateType> {
 		return new CacheIterable<>(tss.stream().map(this::getAreaMap).collect(Collectors.toList()));
 	}
 	
-	public List<Integer> getInvalidPoints() {
+	public IndexSet getInvalidPoints() {
 		return cachedMaps.getValue().getInvalidPoints();
 	}
 	
@@ -201,7 +202,7 @@ public class MapFilteringController extends EventfulType<MapUpdateType> {
 class CachedMaps {
 	
 	private Map<ITransitionSeries, EventfulSoftCache<AreaMap>> maps;
-	private List<Integer> invalidPoints;
+	private IndexSet invalidPoints;
 	private AreaMap sum;
 	private boolean replottable;
 	
@@ -286,8 +287,8 @@ class CachedMaps {
 		return sum;
 	}
 	
-	public List<Integer> getInvalidPoints() {
-		return Collections.unmodifiableList(invalidPoints);
+	public IndexSet getInvalidPoints() {
+		return invalidPoints.copy();
 	}
 	
 	
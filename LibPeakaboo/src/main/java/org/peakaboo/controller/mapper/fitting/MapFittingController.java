@@ -225,6 +225,18 @@ public class MapFittingController extends EventfulType<MapUpdateType> {
 		return new ISpectrum(sum.getData());
 		
 	}
+	
+	/**
+	 * Returns the largest value in the sum of all maps, for scaling the colours of
+	 * a map. This is kept with the summed map rather than recalculated.
+	 */
+	public float getMaxIntensity() {
+		AreaMap sum = map.getFiltering().getSummedMap();
+		if (sum == null) {
+			return 0f;
+		}
+		return sum.getQuantiles().max();
+	}
 
 
 
@@ -1,11 +1,11 @@
 package org.peakaboo.controller.mapper.fitting.modes;
 
-import java.util.List;
 import java.util.Optional;
 
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
 import org.peakaboo.display.map.modes.composite.CompositeModeData;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
 public class CompositeModeController extends SimpleModeController {
@@ -27,7 +27,7 @@ public class CompositeModeController extends SimpleModeController {
 			data = sumVisibleMaps();
 		}
 
-		List<Integer> invalidPoints = getMap().getFiltering().getInvalidPoints();
+		IndexSet invalidPoints = getMap().getFiltering().getInvalidPoints();
 
 		return new CompositeModeData(data, getSize(), invalidPoints);
 		
@@ -4,7 +4,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.controller.mapper.fitting.modes.components.BinState;
@@ -15,8 +14,10 @@ import org.peakaboo.display.map.MapScaleMode;
 import org.peakaboo.display.map.modes.correlation.CorrelationModeData;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumQuantiles;
 import org.peakaboo.mapping.filter.model.AreaMap;
 import org.peakaboo.mapping.filter.plugin.plugins.clipping.SignalOutlierCorrectionMapFilter;
 
@@ -77,15 +78,10 @@ public class CorrelationModeController extends SimpleModeController {
 		Spectrum xData = super.sumGivenMaps(xTS);
 		Spectrum yData = super.sumGivenMaps(yTS);
 		
-		//Generate histograms and calculate the x/y max values
-		List<Float> xSorted = xData.stream().collect(Collectors.toList());
-		List<Float> ySorted = yData.stream().collect(Collectors.toList());
-		xSorted.sort(Float::compare);
-		ySorted.sort(Float::compare);
-		int index999 = (int)(xSorted.size() * 0.999f);
+		//calculate the x/y max values
 		//max value is 99.9th percentile in histogram
-		float xMax = xSorted.get(index999);
-		float yMax = ySorted.get(index999);
+		float xMax = new SpectrumQuantiles(xData).quantile(0.999f);
+		float yMax = new SpectrumQuantiles(yData).quantile(0.999f);
 		if (xMax == 0) { xMax = 1; }
 		if (yMax == 0) { yMax = 1; }
 		//if it's absolute, we use the larger max to scale both histograms
@@ -98,10 +94,11 @@ public class CorrelationModeController extends SimpleModeController {
 		int bincount = bins.getCount();
 		GridPerspective<Float> grid = new GridPerspective<>(bincount, bincount, 0f);
 		Spectrum correlation = new ISpectrum(bincount*bincount);
+		float[] counts = correlation.backingArray();
 		
 		//we track which points on the original (spatial) maps each bin in the correlation map
 		//comes from so that selections can be mapped back to them
-		translation.initialize(bincount*bincount);
+		translation.initialize(bincount*bincount, xData.size());
 		
 		for (int i = 0; i < xData.size(); i++) {
 
@@ -138,7 +135,7 @@ public class CorrelationModeController extends SimpleModeController {
 				throw new IndexOutOfBoundsException("index " + bindex + "is not within the expected range of 0 to " + bincount*bincount + "\n" + values);
 			}
 			translation.add(bindex, i);
-			correlation.set(bindex, correlation.get(bindex)+1);
+			counts[bindex]++;
 			
 		}
 
@@ -189,7 +186,7 @@ public class CorrelationModeController extends SimpleModeController {
 	}
 	
 	@Override
-	public List<Integer> translateSelectionToSpatial(List<Integer> points) {
+	public IndexSet translateSelectionToSpatial(IndexSet points) {
 		return translation.toSpatial(points);
 	}	
 	
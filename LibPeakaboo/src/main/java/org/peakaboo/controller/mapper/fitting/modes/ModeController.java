@@ -8,6 +8,7 @@ import org.peakaboo.controller.mapper.fitting.MapFittingController;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
 import org.peakaboo.display.map.modes.MapModeData;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.framework.eventful.IEventful;
@@ -66,18 +67,18 @@ public interface ModeController extends IEventful {
 	boolean isTranslatableToSpatial();
 
 	/**
-	 * Given a list of selected points on this map mode, translate the points back
+	 * Given a set of selected points on this map mode, translate the points back
 	 * to spacial indices representing the spectra that generated those points. This
 	 * should only ever be called for map modes where isTranslatable is true
 	 */
-	public List<Integer> translateSelectionToSpatial(List<Integer> points);
+	public IndexSet translateSelectionToSpatial(IndexSet points);
 
 	/**
-	 * Given a list of points that the user has tried to select, return only those
+	 * Given a set of points that the user has tried to select, return only those
 	 * points which are actually selectable. This allows map modes to include
 	 * non-rectangular areas without having to worry about invalid selections
 	 */
-	public List<Integer> filterSelection(List<Integer> points);
+	public IndexSet filterSelection(IndexSet points);
 	
 	/**
 	 * Indicates if the current mode's values can be compared to one another to
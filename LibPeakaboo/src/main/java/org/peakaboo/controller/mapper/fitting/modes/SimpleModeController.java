@@ -3,13 +3,13 @@ package org.peakaboo.controller.mapper.fitting.modes;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.controller.mapper.fitting.modes.components.VisibilityState;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.eventful.Eventful;
 
 public abstract class SimpleModeController extends Eventful implements ModeController {
@@ -73,7 +73,7 @@ public abstract class SimpleModeController extends Eventful implements ModeContr
 	
 
 	@Override
-	public List<Integer> translateSelectionToSpatial(List<Integer> points) {
+	public IndexSet translateSelectionToSpatial(IndexSet points) {
 		return points;
 	}
 
@@ -85,8 +85,8 @@ public abstract class SimpleModeController extends Eventful implements ModeContr
 	
 
 	@Override
-	public List<Integer> filterSelection(List<Integer> points) {
-		return new ArrayList<>(points);
+	public IndexSet filterSelection(IndexSet points) {
+		return points.copy();
 	}
 		
 }
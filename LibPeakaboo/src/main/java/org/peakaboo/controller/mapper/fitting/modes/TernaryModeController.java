@@ -15,6 +15,7 @@ import org.peakaboo.display.map.modes.MapModeData;
 import org.peakaboo.display.map.modes.ternary.TernaryModeData;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.mapping.filter.model.AreaMap;
@@ -87,11 +88,12 @@ public class TernaryModeController extends SimpleModeController {
 		Spectrum allData = super.sumVisibleMaps();
 
 		//initialize translation lookup data
-		translation.initialize(bincount*bincount);
+		translation.initialize(bincount*bincount, xData.size());
 		
 		//final output spectrum and 2D viewer
 		GridPerspective<Float> grid = new GridPerspective<>(bincount, bincount, 0f);
 		Spectrum ternaryplot = new ISpectrum(bincount*bincount);
+		float[] counts = ternaryplot.backingArray();
 		
 		// For each point in the spatial data, get the total intensity and %
 		// contribution from our two groups
@@ -115,7 +117,7 @@ public class TernaryModeController extends SimpleModeController {
 				throw new IndexOutOfBoundsException("index " + bindex + "is not within the expected range of 0 to " + bincount*bincount + "\n" + values);
 			}
 			translation.add(bindex, i);
-			ternaryplot.set(bindex, ternaryplot.get(bindex)+1);
+			counts[bindex]++;
 			
 		}
 		
@@ -171,12 +173,12 @@ public class TernaryModeController extends SimpleModeController {
 	}
 	
 	@Override
-	public List<Integer> translateSelectionToSpatial(List<Integer> points) {
+	public IndexSet translateSelectionToSpatial(IndexSet points) {
 		return translation.toSpatial(points);
 	}
 	
 	@Override
-	public List<Integer> filterSelection(List<Integer> points) {
+	public IndexSet filterSelection(IndexSet points) {
 		return selectability.filter(points);
 	}
 	
@@ -1,11 +1,9 @@
 package org.peakaboo.controller.mapper.fitting.modes.components;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.peakaboo.controller.mapper.fitting.modes.ModeController;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 
 /**
  * Manages state for map modes that want some points to be unselectable. This state component never emits mode update messages. 
@@ -36,15 +34,15 @@ public class SelectabilityState extends AbstractState {
 		return get(grid.getIndexFromXY(x, y));
 	}
 
-	public List<Integer> selectables() {
-		List<Integer> indices = new ArrayList<>();
+	public IndexSet selectables() {
+		IndexSet indices = new IndexSet();
 		for (int i = 0; i < selectable.length; i++) {
 			if (selectable[i]) { indices.add(i); }
 		}
 		return indices;
 	}
-	public List<Integer> unselectables() {
-		List<Integer> indices = new ArrayList<>();
+	public IndexSet unselectables() {
+		IndexSet indices = new IndexSet();
 		for (int i = 0; i < selectable.length; i++) {
 			if (!selectable[i]) { indices.add(i); }
 		}
@@ -59,11 +57,11 @@ public class SelectabilityState extends AbstractState {
 	}
 	
 	/**
-	 * Filter a list of indexes so that only those which are selectable are returned
+	 * Filter a set of indexes so that only those which are selectable are returned
 	 */
-	public List<Integer> filter(List<Integer> indexList) {
-		List<Integer> filtered = new ArrayList<>();
-		for (int index : indexList) {
+	public IndexSet filter(IndexSet indexes) {
+		IndexSet filtered = new IndexSet();
+		for (int index = indexes.first(); index >= 0; index = indexes.nextIndex(index + 1)) {
 			if (get(index)) { filtered.add(index); }
 		}
 		return filtered;
@@ -1,33 +1,48 @@
 package org.peakaboo.controller.mapper.fitting.modes.components;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 import org.peakaboo.controller.mapper.fitting.modes.ModeController;
+import org.peakaboo.framework.cyclops.IndexSet;
 
+/**
+ * Manages state for map modes that need to translate selected bins back to the
+ * spatial points counted in them. While the mode generates its data, only the
+ * bin of each point is recorded. The bin-to-point lookup is built from that in
+ * two passes the first time a selection is translated.
+ */
 public class TranslationState extends AbstractState {
-
-	private Map<Integer, List<Integer>> translation = new LinkedHashMap<>();
+	
+	//the bin each pixel was counted in, or -1 if it wasn't counted
+	private int[] pixelBins = new int[0];
+	private int bins;
+	
+	//pixels for bin b are stored in pixels[offsets[b]] to pixels[offsets[b+1]-1]
+	private int[] offsets, pixels;
+	
 	private boolean valid;
 	
 	public TranslationState(ModeController mode) {
 		super(mode);
 	}
-
-	public void initialize(int size) {
-		translation.clear();
-		for (int i = 0; i < size; i++) {
-			translation.put(i, new ArrayList<>());
+	
+	/**
+	 * Prepares to record the translation from the given number of bins back to
+	 * the given number of spatial points
+	 */
+	public synchronized void initialize(int bins, int points) {
+		this.bins = bins;
+		if (pixelBins.length != points) {
+			pixelBins = new int[points];
 		}
+		Arrays.fill(pixelBins, -1);
+		offsets = null;
+		pixels = null;
 		this.valid = true;
 	}
 	
 	public void add(int bin, int index) {
-		translation.get(bin).add(index);
+		pixelBins[index] = bin;
 	}
 	
 	public boolean isValid() {
@@ -38,17 +53,48 @@ public class TranslationState extends AbstractState {
 		this.valid = false;
 	}
 	
-	public List<Integer> toSpatial(List<Integer> points) {
+	public IndexSet toSpatial(IndexSet points) {
 		if (!isValid()) {
 			//regenerate data, including translation map
 			mode.getData();
 		}
-		Set<Integer> translated = new HashSet<>();
-		for (int i : points) {
-			translated.addAll(translation.get(i));
+		IndexSet translated = new IndexSet();
+		synchronized (this) {
+			buildIndex();
+			for (int bin = points.first(); bin >= 0 && bin < bins; bin = points.nextIndex(bin + 1)) {
+				for (int i = offsets[bin]; i < offsets[bin+1]; i++) {
+					translated.add(pixels[i]);
+				}
+			}
 		}
-		return new ArrayList<>(translated);
-	}	
+		return translated;
+	}
 	
+	private void buildIndex() {
+		if (offsets != null) {
+			return;
+		}
 		
+		//count the pixels in each bin, then convert the counts to starting offsets
+		int[] binOffsets = new int[bins+1];
+		for (int bin : pixelBins) {
+			if (bin >= 0) { binOffsets[bin+1]++; }
+		}
+		for (int bin = 0; bin < bins; bin++) {
+			binOffsets[bin+1] += binOffsets[bin];
+		}
+		
+		//place each pixel at the next free position for its bin
+		int[] binPixels = new int[binOffsets[bins]];
+		int[] cursor = Arrays.copyOf(binOffsets, bins);
+		for (int pixel = 0; pixel < pixelBins.length; pixel++) {
+			int bin = pixelBins[pixel];
+			if (bin >= 0) { binPixels[cursor[bin]++] = pixel; }
+		}
+		
+		pixels = binPixels;
+		offsets = binOffsets;
+	}
+
+
 }
@@ -12,6 +12,7 @@ import org.peakaboo.datasource.model.components.physicalsize.PhysicalSize;
 import org.peakaboo.datasource.model.internal.SelectionDataSource;
 import org.peakaboo.framework.cyclops.Bounds;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.SISize;
 import org.peakaboo.framework.eventful.EventfulType;
 import org.peakaboo.mapping.rawmap.RawMapSet;
@@ -100,11 +101,11 @@ public class RawDataController extends EventfulType<MapUpdateType> {
 	
 	
 	/**
-	 * Returns a list of indexes (referring to points in this map) which are invalid
+	 * Returns the set of indexes (referring to points in this map) which are invalid
 	 * in the underlying source dataset (eg: the corners in a replotted circular selection)
 	 */
-	public List<Integer> getInvalidPoints() {
-		List<Integer> invalidPoints = new ArrayList<>();
+	public IndexSet getInvalidPoints() {
+		IndexSet invalidPoints = new IndexSet();
 		//TODO: Hack
 		DataSource ds = mapModel.sourceDataset.getDataSource();
 		if (ds instanceof SelectionDataSource) {
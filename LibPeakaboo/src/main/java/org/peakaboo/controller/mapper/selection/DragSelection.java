@@ -1,8 +1,5 @@
 package org.peakaboo.controller.mapper.selection;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 
 import org.peakaboo.controller.mapper.MapUpdateType;
@@ -10,6 +7,7 @@ import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.Range;
 
 /**
@@ -20,7 +18,7 @@ import org.peakaboo.framework.cyclops.Range;
 class DragSelection extends AbstractSelection {
 
 	private Coord<Integer> start, end;
-	private List<Integer> points = new ArrayList<>();
+	private IndexSet points = new IndexSet();
 	
 	public DragSelection(MappingController map) {
 		super(map);
@@ -70,7 +68,7 @@ class DragSelection extends AbstractSelection {
 	/**
 	 * generate a list of indexes in the map which are selected
 	 */
-	private List<Integer> getPoints() {
+	private IndexSet getPoints() {
 		trimSelectionToBounds();
 		points.clear();
 		
@@ -95,26 +93,24 @@ class DragSelection extends AbstractSelection {
 
 	}
 	
-	private List<Integer> getPointsRectangle(GridPerspective<Float> grid) {
+	private IndexSet getPointsRectangle(GridPerspective<Float> grid) {
 		points.clear();
 		
-		final int xstart = getStart().x;
-		final int ystart = getStart().y;
-		
-		final int xend = getEnd().x;
-		final int yend = getEnd().y;
+		final int xstart = Math.min(getStart().x, getEnd().x);
+		final int ystart = Math.min(getStart().y, getEnd().y);
+		final int xend = Math.max(getStart().x, getEnd().x);
+		final int yend = Math.max(getStart().y, getEnd().y);
 		
-		for (int y : new Range(ystart, yend)) {
-			for (int x : new Range(xstart, xend)) {
-				points.add( grid.getIndexFromXY(x, y) );
-			}
+		//each row of the rectangle is a contiguous run of indexes
+		for (int y = ystart; y <= yend; y++) {
+			points.addRange(grid.getIndexFromXY(xstart, y), grid.getIndexFromXY(xend, y) + 1);
 		}
 		
 		return points;
 		
 	}
 	
-	private List<Integer> getPointsEllipse(GridPerspective<Float> grid) {
+	private IndexSet getPointsEllipse(GridPerspective<Float> grid) {
 		points.clear();
 		
 		final int xstart = Math.min(getStart().x, getEnd().x);
@@ -164,27 +160,27 @@ class DragSelection extends AbstractSelection {
 	}
 
 	@Override
-	public List<Integer> selectPoint(Coord<Integer> clickedAt, boolean singleSelect) {
+	public IndexSet selectPoint(Coord<Integer> clickedAt, boolean singleSelect) {
 		start = null;
 		end = null;
-		return Collections.emptyList();
+		return new IndexSet();
 	}
 
 	@Override
-	public List<Integer> startDragSelection(Coord<Integer> point) {
+	public IndexSet startDragSelection(Coord<Integer> point) {
 		setStart(point);
 		setEnd(null);
 		return getPoints();
 	}
 
 	@Override
-	public List<Integer> addDragSelection(Coord<Integer> point) {
+	public IndexSet addDragSelection(Coord<Integer> point) {
 		setEnd(point);
 		return getPoints();
 	}
 
 	@Override
-	public List<Integer> releaseDragSelection(Coord<Integer> point) {
+	public IndexSet releaseDragSelection(Coord<Integer> point) {
 		return addDragSelection(point);
 	}
 	
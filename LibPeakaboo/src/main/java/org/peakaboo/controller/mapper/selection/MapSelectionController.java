@@ -1,10 +1,6 @@
 package org.peakaboo.controller.mapper.selection;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 import org.peakaboo.controller.mapper.MapUpdateType;
 import org.peakaboo.controller.mapper.MappingController;
@@ -13,6 +9,7 @@ import org.peakaboo.datasource.model.internal.SubsetDataSource;
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.eventful.EventfulType;
 import org.peakaboo.framework.eventful.cache.EventfulCache;
 import org.peakaboo.framework.eventful.cache.EventfulNullableCache;
@@ -35,13 +32,13 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 	
 	private ModeController currentMode;
 	
-	private List<Integer> currentSelection = new ArrayList<>();
-	private List<Integer> newSelection = new ArrayList<>();
+	private IndexSet currentSelection = new IndexSet();
+	private IndexSet newSelection = new IndexSet();
 	private boolean modify = false;
 	private Coord<Integer> dragFocalPoint;
 	
 	//cache values for the selected points, one suitable for display and the other for accessing datasets
-	private EventfulCache<List<Integer>> displayPointCache, logicalPointCache;
+	private EventfulCache<IndexSet> displayPointCache, logicalPointCache;
 	
 	public MapSelectionController(MappingController mappingController) {
 		this.map = mappingController;
@@ -84,18 +81,17 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 		
 		displayPointCache = new EventfulNullableCache<>(() -> {
 			boolean spatial = map.getFitting().getActiveMode().isSpatial();
-			List<Integer> points = mergeSelections(dragFocalPoint, modify);
+			IndexSet points = mergeSelections(dragFocalPoint, modify);
 			points = trimSelectionToBounds(points, false);
 			if (spatial) {
-				List<Integer> invalidPoints = map.getFiltering().getInvalidPoints();
-				points.removeAll(invalidPoints);
+				points.removeAll(map.getFiltering().getInvalidPoints());
 			}
 			return points;
 		});
 		
 		logicalPointCache = new EventfulNullableCache<>(() -> {
 			boolean spatial = map.getFitting().getActiveMode().isSpatial();
-			List<Integer> points = mergeSelections(dragFocalPoint, modify);
+			IndexSet points = mergeSelections(dragFocalPoint, modify);
 			points = trimSelectionToBounds(translateToSpatial(points), true);
 			
 			/*
@@ -104,8 +100,7 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 			 * that doesn't have a real data point backing it
 			 */
 			if (spatial) {
-				List<Integer> invalidPoints =  map.getFiltering().getInvalidPoints();
-				points.removeAll(invalidPoints);
+				points.removeAll(map.getFiltering().getInvalidPoints());
 			}
 
 			return points;
@@ -150,7 +145,7 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 	 * display modes (eg correlation) back to the data's underlying indexes before
 	 * removing selection points with no backing data (ie invalid points)
 	 */
-	public List<Integer> getDisplayPoints() {
+	public IndexSet getDisplayPoints() {
 		return displayPointCache.getValue();
 	}
 	
@@ -161,7 +156,7 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 	 * will translate selections made in non-spatial map modes (eg correlation) and
 	 * remove any points for which no backing data exists.
 	 */
-	public List<Integer> getLogicalPoints() {
+	public IndexSet getLogicalPoints() {
 		return logicalPointCache.getValue();
 	}
 	
@@ -174,7 +169,7 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 	 *         otherwise
 	 */
 	public boolean isReplottable() {
-		return hasSelection() && isSelectable() && getLogicalPoints().size() > 0;
+		return hasSelection() && isSelectable() && !getLogicalPoints().isEmpty();
 	}
 	
 	public boolean isSelectable() {
@@ -250,27 +245,25 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 		updateListeners(MapUpdateType.SELECTION);
 	}
 	
-	private List<Integer> mergeSelections(Coord<Integer> point, boolean modify) {
-		List<Integer> merged = new ArrayList<>();
+	private IndexSet mergeSelections(Coord<Integer> point, boolean modify) {
+		IndexSet merged;
 		if (!modify) {
 			if (newSelection.isEmpty()) {
-				merged.addAll(currentSelection);
+				merged = currentSelection.copy();
 			} else {
-				merged.addAll(newSelection);				
+				merged = newSelection.copy();
 			}
 		} else {
-			Set<Integer> set = new HashSet<>();
 			GridPerspective<Float> grid = new GridPerspective<>(size().x, size().y, 0f);
 			
-			set.addAll(currentSelection);
-			if (set.contains(grid.getIndexFromXY(point)))	{
+			merged = currentSelection.copy();
+			if (merged.contains(grid.getIndexFromXY(point)))	{
 				//if it already contains the focalpoint, do subtraction
-				set.removeAll(newSelection);
+				merged.removeAll(newSelection);
 			} else {
 				//it doesn't already contain the focal point, so add
-				set.addAll(newSelection);
+				merged.addAll(newSelection);
 			}
-			merged.addAll(set);
 
 		}
 		return map.getFitting().getActiveMode().filterSelection(merged);
@@ -304,7 +297,7 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 		return getSelection().getParameters();
 	}
 	
-	public List<Integer> trimSelectionToBounds(List<Integer> points, boolean spatial) {
+	public IndexSet trimSelectionToBounds(IndexSet points, boolean spatial) {
 		
 		//This is a bit tricky -- the fitting map mode generally comes before filtering
 		//since it has to select which transition series get included and how, but it also
@@ -320,21 +313,17 @@ public class MapSelectionController extends EventfulType<MapUpdateType> {
 		int y = dimensions.y;
 		int size = x*y;
 
-		List<Integer> trimmed = new ArrayList<>();
-		for (int i : points) {
-			if (i >= 0 && i < size) {
-				trimmed.add(i);
-			}
-		}
+		IndexSet trimmed = points.copy();
+		trimmed.retainBelow(size);
 		return trimmed;
 	}
 	
 	/**
-	 * Given a list of selected points (for the current map mode), translate the points back
+	 * Given a set of selected points (for the current map mode), translate the points back
 	 * to the spectra that generated those points. If there is no translation, the points will
 	 * simply be returned.
 	 */
-	private List<Integer> translateToSpatial(List<Integer> points) {
+	private IndexSet translateToSpatial(IndexSet points) {
 		return map.getFitting().getActiveMode().translateSelectionToSpatial(points);
 	}
 	
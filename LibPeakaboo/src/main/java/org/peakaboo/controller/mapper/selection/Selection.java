@@ -1,19 +1,19 @@
 package org.peakaboo.controller.mapper.selection;
 
-import java.util.List;
 import java.util.Optional;
 
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 
 public interface Selection {
 	
 	Optional<Group> getParameters();
 	
-	List<Integer> selectPoint(Coord<Integer> clickedAt, boolean singleSelect);
+	IndexSet selectPoint(Coord<Integer> clickedAt, boolean singleSelect);
 	
-	List<Integer> startDragSelection(Coord<Integer> point);
-	List<Integer> addDragSelection(Coord<Integer> point);
-	List<Integer> releaseDragSelection(Coord<Integer> point);
+	IndexSet startDragSelection(Coord<Integer> point);
+	IndexSet addDragSelection(Coord<Integer> point);
+	IndexSet releaseDragSelection(Coord<Integer> point);
 
 }
\ No newline at end of file
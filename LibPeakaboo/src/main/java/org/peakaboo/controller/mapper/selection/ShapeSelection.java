@@ -1,27 +1,20 @@
 package org.peakaboo.controller.mapper.selection;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.Stack;
 
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.IntPair;
 
 class ShapeSelection extends AbstractSelection {
 
-	private List<Integer> points = new ArrayList<>();
-	
-	private static final int EMPTY = 0;
-	private static final int INSIDE = 1;
-	private static final int OUTSIDE = 2;
+	//the trace, and once released, the filled shape. The first and last points
+	//of the trace are tracked separately, since the set doesn't preserve order
+	private IndexSet points = new IndexSet();
+	private int firstIndex, lastIndex;
 	
 	
 	public ShapeSelection(MappingController mappingController) {
@@ -29,13 +22,13 @@ class ShapeSelection extends AbstractSelection {
 	}
 
 	@Override
-	public List<Integer> startDragSelection(Coord<Integer> point) {
+	public IndexSet startDragSelection(Coord<Integer> point) {
 		points.clear();
 		return addDragSelection(point);
 	}
 
 	@Override
-	public List<Integer> addDragSelection(Coord<Integer> point) {
+	public IndexSet addDragSelection(Coord<Integer> point) {
 		point = bounded(point);
 		GridPerspective<Float> grid = grid();
 		int index = grid.getIndexFromXY(point.x, point.y);
@@ -45,25 +38,25 @@ class ShapeSelection extends AbstractSelection {
 		// all of the points, so we interpolate
 		if (!points.isEmpty()) {
 			//check if the last point is touching
-			int lastIndex = points.get(points.size()-1);
 			IntPair lastPoint = grid.getXYFromIndex(lastIndex);
 			if (Math.abs(lastPoint.first - point.x) > 1 || Math.abs(lastPoint.second - point.y) > 1) {
 				interpolate(lastIndex, index, grid);
 			}
+		} else {
+			firstIndex = index;
 		}
 		
-		if (!points.contains(index)) {
-			points.add(index);
-		}
+		points.add(index);
+		lastIndex = index;
 		return points;
 	}
 
-	public List<Integer> releaseDragSelection(Coord<Integer> point) {
+	public IndexSet releaseDragSelection(Coord<Integer> point) {
 		//add the last point
 		addDragSelection(point);
 		
 		//interpolate between the first and last points
-		interpolate(points.get(0), points.get(points.size()-1), grid());
+		interpolate(firstIndex, lastIndex, grid());
 		
 		//fill in the traced area now that the user is done making the selection
 		fillTrace();
@@ -73,103 +66,75 @@ class ShapeSelection extends AbstractSelection {
 	
 	private void fillTrace() {
 		GridPerspective<Float> grid = grid();
+		int size = grid.width*grid.height;
 		
 		//we establish some pixels which are definitely outside the shape and then 'flood-fill' the remainder by adjacency
-		Set<Integer> outside = new HashSet<>();
-		Set<Integer> inside = new HashSet<>();
-		inside.addAll(points);
+		IndexSet outside = new IndexSet();
 
 		//we start by adding all edge pixels which are not included in the trace
 		//X - top & bottom
 		for (int x = 0; x < grid.width; x++) {
 			int index = grid.getIndexFromXY(x, 0);
-			if (!inside.contains(index)) {
+			if (!points.contains(index)) {
 				outside.add(index);
 			}
 			index = grid.getIndexFromXY(x, grid.height-1);
-			if (!inside.contains(index)) {
+			if (!points.contains(index)) {
 				outside.add(index);
 			}
 		}
 		//Y - left and right
 		for (int y = 0; y < grid.height; y++) {
 			int index = grid.getIndexFromXY(0, y);
-			if (!inside.contains(index)) {
+			if (!points.contains(index)) {
 				outside.add(index);
 			}
 			index = grid.getIndexFromXY(grid.width-1, y);
-			if (!inside.contains(index)) {
+			if (!points.contains(index)) {
 				outside.add(index);
 			}
 		}
 
 		//if there *are* no outside edge points, then the entire area is selected
 		if (outside.isEmpty()) {
-			points.clear();
-			for (int i = 0; i < grid.width*grid.height; i++) {
-				points.add(i);
-			}
+			points = IndexSet.range(0, size);
 			return;
 		}
 
 		//if there *are* outside edge points, we flood fill in the rest of the outside
-		//create an array representing the selection state of each pixel
-		// * 0 = empty
-		// * 1 = inside
-		// * 2 = outside
-		List<Integer> values = new ArrayList<>();
-		for (int i = 0; i < grid.width*grid.height; i++) {
-			values.add(EMPTY);
-		}
-		//set all inside points
-		for (int i : points) {
-			values.set(i, INSIDE); 
-		}
-		//set all outside points
-		for (int i : outside) {
-			values.set(i, OUTSIDE);
-		}
-		
-		//then floodfill the values matrix from each original outside point
-		Deque<Integer> stack = new ArrayDeque<>();
-		stack.addAll(outside);
-		floodFill(values, stack, grid);
+		floodFill(outside, grid);
 		
-		//read the value matrix and use it to build a new points list
-		points.clear();
-		for (int i = 0; i < grid.width*grid.height; i++) {
-			if (values.get(i) != OUTSIDE) {
-				points.add(i);
-			}
-		}
+		//everything which isn't outside the trace is part of the selection
+		points = IndexSet.range(0, size);
+		points.removeAll(outside);
 	}
 	
-	private void floodFill(List<Integer> values, Deque<Integer> stack, GridPerspective<Float> grid) {	
+	private void floodFill(IndexSet outside, GridPerspective<Float> grid) {	
 		
 		/*
-		 * We track all pixels we've visited to or are going to visit. This ensures we
-		 * only visit each pixel once and provides a fast 'contains' check so that we
-		 * don't put the same pixel in the stack more than once.
+		 * Pixels are marked as outside as soon as they are pushed onto the stack. This
+		 * ensures we only visit each pixel once, so the stack can never hold more
+		 * entries than there are pixels.
 		 */
-		Set<Integer> visiting = new HashSet<>(stack);
+		int[] stack = new int[grid.width*grid.height];
+		int top = 0;
+		for (int i = outside.first(); i >= 0; i = outside.nextIndex(i + 1)) {
+			stack[top++] = i;
+		}
 		
-		while (!stack.isEmpty()) {
-			int index = stack.pop();
-			values.set(index, OUTSIDE);
-
-			//recurse
+		int[] neighbours = new int[4];
+		while (top > 0) {
+			int index = stack[--top];
 
-			int[] neighbours = new int[] { 
-					grid.north(index), 
-					grid.south(index), 
-					grid.east(index), 
-					grid.west(index) 
-				};
+			neighbours[0] = grid.north(index);
+			neighbours[1] = grid.south(index);
+			neighbours[2] = grid.east(index);
+			neighbours[3] = grid.west(index);
 			
 			for (int i : neighbours) {
-				if (i >= 0 && values.get(i) == EMPTY && !visiting.contains(i)) { 
-					stack.add(i);
-					visiting.add(i);
+				if (i >= 0 && !points.contains(i) && !outside.contains(i)) { 
+					outside.add(i);
+					stack[top++] = i;
 				}
 			}
 						
@@ -227,9 +192,7 @@ class ShapeSelection extends AbstractSelection {
 			ix = Math.round(x);
 			iy = Math.round(y);
 			index = grid.getIndexFromXY(ix, iy);
-			if (!points.contains(index)) {
-				points.add(index);
-			}
+			points.add(index);
 			
 			x += advanceX;
 			y += advanceY;
@@ -265,7 +228,7 @@ class ShapeSelection extends AbstractSelection {
 
 
 	@Override
-	public List<Integer> selectPoint(Coord<Integer> clickedAt, boolean singleSelect) {
+	public IndexSet selectPoint(Coord<Integer> clickedAt, boolean singleSelect) {
 		points.clear();
 		return points;
 	}
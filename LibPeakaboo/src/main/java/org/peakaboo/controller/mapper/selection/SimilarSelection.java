@@ -1,11 +1,6 @@
 package org.peakaboo.controller.mapper.selection;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.display.map.modes.MapModes;
@@ -19,8 +14,8 @@ import org.peakaboo.framework.autodialog.model.style.editors.IntegerSpinnerStyle
 import org.peakaboo.framework.autodialog.model.style.editors.RealSpinnerStyle;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.Pair;
-import org.peakaboo.framework.cyclops.Range;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
@@ -32,7 +27,7 @@ import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
 class SimilarSelection extends AbstractSelection {
 
-	private List<Integer> indexes = new ArrayList<>();
+	private IndexSet indexes = new IndexSet();
 	
 	
 	private Parameter<Float> threshold;
@@ -47,13 +42,13 @@ class SimilarSelection extends AbstractSelection {
 	}
 
 
-	public List<Integer> selectPoint(Coord<Integer> clickedAt, boolean contiguous) {
+	public IndexSet selectPoint(Coord<Integer> clickedAt, boolean contiguous) {
 		indexes.clear();
 		
 		MapModes displayMode = map.getFitting().getMapDisplayMode();
-		Pair<Spectrum, List<Integer>> displayModeData = getDisplayModeData();
+		Pair<Spectrum, IndexSet> displayModeData = getDisplayModeData();
 		Spectrum data = displayModeData.first;
-		List<Integer> invalid = displayModeData.second;
+		IndexSet invalid = displayModeData.second;
 		
 		
 		Coord<Integer> mapSize = mapSize();
@@ -72,7 +67,7 @@ class SimilarSelection extends AbstractSelection {
 		}
 
 		
-		List<Integer> points;
+		IndexSet points;
 		if (! contiguous) {
 			points = selectNonContiguous(data, invalid, value, grid);
 		} else {
@@ -96,10 +91,10 @@ class SimilarSelection extends AbstractSelection {
 	 * Returns a Spectrum representing scalar data for the map based on the current map display mode. Also returns a list of unselectable points
 	 * @return
 	 */
-	private Pair<Spectrum, List<Integer>> getDisplayModeData() {
+	private Pair<Spectrum, IndexSet> getDisplayModeData() {
 		MapModes displayMode = map.getFitting().getMapDisplayMode();
 		Spectrum data = null;
-		List<Integer> unselectable = new ArrayList<>();
+		IndexSet unselectable = new IndexSet();
 		
 		switch(displayMode) {
 		case COMPOSITE:
@@ -135,36 +130,36 @@ class SimilarSelection extends AbstractSelection {
 			throw new UnsupportedOperationException("Cannot perform similarity-based selection on this map mode");
 		}
 		
-		return new Pair<Spectrum, List<Integer>>(data, unselectable);
+		return new Pair<Spectrum, IndexSet>(data, unselectable);
 	}
 	
-	private List<Integer> selectContiguous(Spectrum data, 
-			List<Integer> invalid,
+	private IndexSet selectContiguous(Spectrum data, 
+			IndexSet invalid,
 			Coord<Integer> clickedAt,
 			GridPerspective<Float> grid
 		) {
 		
 
-		List<Integer> points = new ArrayList<>();
-		//hashsets are faster for `contains` operations, which is what these will be heavily used for
-		Set<Integer> pointSet = new HashSet<>();
-		Set<Integer> invalidPoints = new HashSet<>(invalid);
+		IndexSet points = new IndexSet();
+		//points are visited in the order they were added, and each point is only added once
+		int[] queue = new int[grid.width * grid.height];
+		int queued = 0;
 		float value = grid.get(data, clickedAt.x, clickedAt.y);
 		float thresholdValue = threshold.getValue();
 		int point = grid.getIndexFromXY(clickedAt.x, clickedAt.y);
 		points.add(point);
-		pointSet.add(point);
+		queue[queued++] = point;
 		int cursor = 0;
-		while (cursor < points.size()) {
-			point = points.get(cursor);
+		while (cursor < queued) {
+			point = queue[cursor];
 			int x, y;
 			
 			int[] neighbours = new int[] {grid.north(point), grid.south(point), grid.east(point), grid.west(point)};
 			for (int neighbour : neighbours) {
 				//out-of-bounds, re-tread, invalid point checks
 				if (neighbour == -1) { continue; }
-				if (pointSet.contains(neighbour)) { continue; }
-				if (invalidPoints.contains(neighbour)) { continue; }
+				if (points.contains(neighbour)) { continue; }
+				if (invalid.contains(neighbour)) { continue; }
 				
 				x = grid.getXYFromIndex(neighbour).first;
 				y = grid.getXYFromIndex(neighbour).second;
@@ -175,7 +170,7 @@ class SimilarSelection extends AbstractSelection {
 				float otherMax = other * thresholdValue;
 				if (value >= otherMin && value <= otherMax) {
 					points.add(neighbour);
-					pointSet.add(neighbour);
+					queue[queued++] = neighbour;
 				}
 			}
 
@@ -186,12 +181,12 @@ class SimilarSelection extends AbstractSelection {
 	}
 
 
-	private List<Integer> selectNonContiguous(Spectrum data, List<Integer> invalid, float value, GridPerspective<Float> grid) {
+	private IndexSet selectNonContiguous(Spectrum data, IndexSet invalid, float value, GridPerspective<Float> grid) {
 		//All points, even those not touching
-		List<Integer> points = new ArrayList<>();
+		IndexSet points = new IndexSet();
 		float thresholdValue = threshold.getValue();
-		for (int y : new Range(0, grid.height-1)) {
-			for (int x : new Range(0, grid.width-1)) {
+		for (int y = 0; y < grid.height; y++) {
+			for (int x = 0; x < grid.width; x++) {
 				float other = grid.get(data, x, y);
 				// match +/- threshold percent
 				float otherMin = other / thresholdValue;
@@ -205,32 +200,9 @@ class SimilarSelection extends AbstractSelection {
 		return points;
 	}
 	
-	private List<Integer> padSelection(List<Integer> points) {
-		Set<Integer> pointSet = new HashSet<>();
-		pointSet.addAll(points);
-	
+	private IndexSet padSelection(IndexSet points) {
 		Coord<Integer> mapSize = mapSize();
-		int w = mapSize.x;
-		int h = mapSize.y;
-		GridPerspective<Float> grid = new GridPerspective<>(w, h, null);
-		
-		//visit all existing points
-		for (Integer point : points) {
-			
-			int[] neighbours = new int[] {grid.north(point), grid.south(point), grid.east(point), grid.west(point)};
-			for (int neighbour : neighbours) {
-				//out-of-bounds, re-tread checks
-				if (neighbour == -1) continue;
-				if (pointSet.contains(neighbour)) continue;
-
-				pointSet.add(neighbour);
-				
-			}
-		}
-		
-		return new ArrayList<>(pointSet);
-		
-		
+		return points.dilate(mapSize.x, mapSize.y);
 	}
 
 	@Override
@@ -239,18 +211,18 @@ class SimilarSelection extends AbstractSelection {
 	}
 
 	@Override
-	public List<Integer> startDragSelection(Coord<Integer> point) {
-		return Collections.emptyList();
+	public IndexSet startDragSelection(Coord<Integer> point) {
+		return new IndexSet();
 	}
 
 	@Override
-	public List<Integer> addDragSelection(Coord<Integer> point) {
-		return Collections.emptyList();
+	public IndexSet addDragSelection(Coord<Integer> point) {
+		return new IndexSet();
 	}
 
 	@Override
-	public List<Integer> releaseDragSelection(Coord<Integer> point) {
-		return Collections.emptyList();
+	public IndexSet releaseDragSelection(Coord<Integer> point) {
+		return new IndexSet();
 	}
 
 
@@ -26,6 +26,7 @@ import org.peakaboo.datasource.model.components.scandata.ScanData;
 import org.peakaboo.display.plot.PlotData;
 import org.peakaboo.filter.model.Filter;
 import org.peakaboo.filter.model.FilterSet;
+import org.peakaboo.filter.model.FilteredScans;
 import org.peakaboo.framework.cyclops.SigDigits;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.eventful.EventfulType;
@@ -232,13 +233,16 @@ public class PlotController extends EventfulType<PlotUpdateType>
 		return Plural.build("Exporting Data", "Writing", (execset, exec) -> {
 			FilterSet filters = filtering().getActiveFilters();
 			ScanData data = data().getDataSet().getScanData();
+			//reuses any spectra already filtered with these settings, eg while mapping
+			FilteredScans scans = filters.filtered(data().getDataSet());
 			
 			exec.setWorkUnits(data.scanCount());
 
 			try (Writer writer = new OutputStreamWriter(new FileOutputStream(saveFile))) {
 				int count = 0;
-				for (ReadOnlySpectrum spectrum : data) {
-					spectrum = filters.applyFiltersUnsynchronized(spectrum, data().getDataSet());
+				for (int index = 0; index < data.scanCount(); index++) {
+					ReadOnlySpectrum spectrum = scans.get(index);
+					if (spectrum == null) continue;
 					writer.write(spectrum.toString(", ") + "\n");
 
 					//abort test
@@ -24,7 +24,9 @@ import org.peakaboo.datasource.model.datafile.DataFile;
 import org.peakaboo.datasource.model.internal.SelectionDataSource;
 import org.peakaboo.datasource.plugin.DataSourcePlugin;
 import org.peakaboo.filter.model.FilterSet;
+import org.peakaboo.filter.model.FilteredSpectrumCache;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.eventful.Eventful;
 import org.peakaboo.framework.eventful.EventfulListener;
@@ -122,7 +124,7 @@ public class DataController extends Eventful
 
 	}
 
-	public SelectionDataSource getDataSourceForSubset(List<Integer> points, Coord<Integer> dimensions) {
+	public SelectionDataSource getDataSourceForSubset(IndexSet points, Coord<Integer> dimensions) {
 		return new SelectionDataSource(dataModel.getDataSource(), dimensions, points);
 	}
 
@@ -146,7 +148,10 @@ public class DataController extends Eventful
 			
 		// really shouldn't have to do this, but there is a reference to old datasets floating around somewhere
 		// (task listener?) which is preventing them from being garbage-collected
-		if (old != null && old != dsp) old.discard();
+		if (old != null && old != dsp) {
+			FilteredSpectrumCache.system().discard(old);
+			old.discard();
+		}
 	
 		updateListeners();
 
@@ -68,7 +68,7 @@ public class AutoEnergyCalibration {
 		
 		
 		//SCORE THE ENERGY PAIRS AND CREATE AN INDEX -> SCORE MAP
-		StreamExecutor<List<EnergyCalibration>> scorer = new StreamExecutor<>("Searching for Calibrations", energies.size() / 100);
+		StreamExecutor<List<EnergyCalibration>> scorer = new StreamExecutor<>("Searching for Calibrations");
 		
 		scorer.setTask(new Range(0, energies.size()-1), stream -> {
 
@@ -122,7 +122,7 @@ public class AutoEnergyCalibration {
 			int dataWidth
 		) {
 		
-		StreamExecutor<EnergyCalibration> scorer = new StreamExecutor<>("Evaluating Candidates", 5);
+		StreamExecutor<EnergyCalibration> scorer = new StreamExecutor<>("Evaluating Candidates");
 		scorer.setTask(energies, stream -> {
 			
 			//build a new model for experimenting with
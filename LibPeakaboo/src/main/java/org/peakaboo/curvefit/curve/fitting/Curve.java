@@ -3,10 +3,8 @@ package org.peakaboo.curvefit.curve.fitting;
 
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import org.peakaboo.curvefit.peak.fitting.FittingFunction;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
@@ -48,6 +46,17 @@ public class Curve implements Comparable<Curve>
 	Spectrum						normalizedCurve;
 	private float normalizedSum;
 	private float normalizedMax;
+	
+	//Normalized values below this are treated as zero, so that the curve has a 
+	//finite support which scaling and summing operations can be limited to
+	private static final float		SUPPORT_THRESHOLD = 1e-6f;
+	//Gaps in the support narrower than this are bridged rather than starting a new window
+	private static final int		WINDOW_GAP = 8;
+	//The non-zero support of normalizedCurve as a few dense windows. Each window's
+	//values are a copy of normalizedCurve starting at the matching windowStart
+	private int[]					windowStarts;
+	private float[][]				windowValues;
+	private RangeSet				support;
 
 	
 	
@@ -57,7 +66,8 @@ public class Curve implements Comparable<Curve>
 	
 	//Areas (in channels) where the curve is strong enough that we need to consider it.
 	private RangeSet				intenseRanges;
-	private Set<Integer>			intenseChannels;
+	//The channels in intenseRanges, in ascending order
+	private int[]					intenseChannels;
 	
 	//how large a footprint this curve has, used in scoring fittings
 	private int						baseSize;
@@ -77,7 +87,7 @@ public class Curve implements Comparable<Curve>
 		
 		//constraintMask = DataTypeFactory.<Boolean> listInit(dataWidth);
 		intenseRanges = new RangeSet();
-		intenseChannels = new LinkedHashSet<>();
+		intenseChannels = new int[0];
 		
 		if (ts != null) setTransitionSeries(ts);
 		
@@ -137,7 +147,72 @@ public class Curve implements Comparable<Curve>
 	 * @return a scaled fit
 	 */
 	public Spectrum scaleInto(float scale, Spectrum target) {
-		return SpectrumCalculations.multiplyBy_target(normalizedCurve, target, scale);
+		float[] ta = target.backingArray();
+		Arrays.fill(ta, 0, Math.min(ta.length, normalizedCurve.size()), 0f);
+		for (int w = 0; w < windowStarts.length; w++) {
+			int start = windowStarts[w];
+			float[] values = windowValues[w];
+			int stop = Math.min(ta.length, start + values.length);
+			for (int i = start; i < stop; i++) {
+				ta[i] = values[i - start] * scale;
+			}
+		}
+		return target;
+	}
+	
+	/**
+	 * Adds a scaled fit based on the given scale value to the target Spectrum.
+	 * Only channels within this curve's {@link #getSupport() support} are
+	 * visited, so this costs time proportional to the width of the curve rather
+	 * than the width of the spectrum.
+	 * 
+	 * @param scale
+	 *            amount to scale the fitting by
+	 * @param target
+	 *            target Spectrum to add the scaled fit to
+	 * @return the target Spectrum
+	 */
+	public Spectrum scaleAdd(float scale, Spectrum target) {
+		float[] ta = target.backingArray();
+		for (int w = 0; w < windowStarts.length; w++) {
+			int start = windowStarts[w];
+			float[] values = windowValues[w];
+			int stop = Math.min(ta.length, start + values.length);
+			for (int i = start; i < stop; i++) {
+				ta[i] += values[i - start] * scale;
+			}
+		}
+		return target;
+	}
+	
+	/**
+	 * Subtracts a scaled fit based on the given scale value from the target
+	 * Spectrum, keeping all values in the support no lower than the given
+	 * minimum. Only channels within this curve's {@link #getSupport() support} 
+	 * are visited.
+	 * 
+	 * @param scale
+	 *            amount to scale the fitting by
+	 * @param target
+	 *            target Spectrum to subtract the scaled fit from
+	 * @param minimum
+	 *            the lowest value allowed, or NaN for no limit
+	 * @return the target Spectrum
+	 */
+	public Spectrum scaleSubtract(float scale, Spectrum target, float minimum) {
+		float[] ta = target.backingArray();
+		boolean clamp = !Float.isNaN(minimum);
+		for (int w = 0; w < windowStarts.length; w++) {
+			int start = windowStarts[w];
+			float[] values = windowValues[w];
+			int stop = Math.min(ta.length, start + values.length);
+			for (int i = start; i < stop; i++) {
+				float value = ta[i] - values[i - start] * scale;
+				if (clamp && value < minimum) value = minimum;
+				ta[i] = value;
+			}
+		}
+		return target;
 	}
 
 
@@ -182,11 +257,20 @@ public class Curve implements Comparable<Curve>
 	}
 	
 	/**
-	 * Returns a Set of Integers containing the channels for which this Curve is intense or
-	 * significant.
+	 * Returns a RangeSet containing the channels for which this Curve is non-zero.
+	 * This always includes the {@link #getIntenseRanges() intense ranges}.
+	 */
+	public RangeSet getSupport() {
+		return support;
+	}
+	
+	/**
+	 * Returns a sorted array containing the channels for which this Curve is
+	 * intense or significant. The returned array is shared and must not be
+	 * modified.
 	 */
-	public Set<Integer> getIntenseChannels() {
-		return Collections.unmodifiableSet(intenseChannels);
+	public int[] getIntenseChannelIndex() {
+		return intenseChannels;
 	}
 	
 	
@@ -231,10 +315,16 @@ public class Curve implements Comparable<Curve>
 			
 		}
 		
-		intenseChannels.clear();
-		for (int channel : intenseRanges) {
-			intenseChannels.add(channel);
+		int[] channels = new int[intenseRanges.size()];
+		int count = 0;
+		for (Range intense : intenseRanges.getRanges()) {
+			for (int channel = intense.getStart(); channel <= intense.getStop(); channel++) {
+				channels[count++] = channel;
+			}
 		}
+		channels = Arrays.copyOf(channels, count);
+		Arrays.sort(channels);
+		intenseChannels = channels;
 		
 		
 
@@ -296,11 +386,66 @@ public class Curve implements Comparable<Curve>
 		{
 			normalizedCurve = SpectrumCalculations.divideBy(fit, normalizationScale);
 		}
+		
+		calculateWindows();
 		normalizedSum = normalizedCurve.sum();
 		normalizedMax = normalizedCurve.max();
 
 
 	}
+	
+	/**
+	 * Zeroes the negligible tails of the normalized curve and records the
+	 * remaining non-zero channels, along with the intense ranges, as a small
+	 * number of dense windows.
+	 */
+	private void calculateWindows() {
+		float[] values = normalizedCurve.backingArray();
+		int size = values.length;
+		
+		boolean[] inSupport = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			if (Math.abs(values[i]) < SUPPORT_THRESHOLD) {
+				values[i] = 0f;
+			} else {
+				inSupport[i] = true;
+			}
+		}
+		for (Range range : intenseRanges.getRanges()) {
+			for (int i = Math.max(0, range.getStart()); i <= Math.min(size-1, range.getStop()); i++) {
+				inSupport[i] = true;
+			}
+		}
+		
+		List<Range> windows = new ArrayList<>();
+		int i = 0;
+		while (i < size) {
+			if (!inSupport[i]) { i++; continue; }
+			int start = i;
+			int stop = i;
+			int gap = 0;
+			while (i < size && gap <= WINDOW_GAP) {
+				if (inSupport[i]) {
+					stop = i;
+					gap = 0;
+				} else {
+					gap++;
+				}
+				i++;
+			}
+			windows.add(new Range(start, stop));
+		}
+		
+		windowStarts = new int[windows.size()];
+		windowValues = new float[windows.size()][];
+		support = new RangeSet();
+		for (int w = 0; w < windows.size(); w++) {
+			Range window = windows.get(w);
+			windowStarts[w] = window.getStart();
+			windowValues[w] = Arrays.copyOfRange(values, window.getStart(), window.getStop()+1);
+			support.addRange(window);
+		}
+	}
 
 	
 	public String toString()
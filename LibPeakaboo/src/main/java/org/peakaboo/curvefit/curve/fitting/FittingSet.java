@@ -58,6 +58,49 @@ public class FittingSet
 		return getCurves().stream().filter(c -> c.getTransitionSeries().isVisible()).collect(Collectors.toList());
 	}
 	
+	/**
+	 * Returns a sorted array containing every channel which is intense or
+	 * significant for at least one visible {@link Curve}. This is the union of
+	 * each visible Curve's {@link Curve#getIntenseChannelIndex()}.
+	 */
+	public int[] getVisibleIntenseChannelIndex() {
+		return intenseChannelUnion(getVisibleCurves());
+	}
+	
+	/**
+	 * Returns a sorted array containing every channel which is intense or
+	 * significant for at least one of the given {@link Curve}s.
+	 */
+	public static int[] intenseChannelUnion(List<Curve> curves) {
+		int width = 0;
+		for (Curve curve : curves) {
+			int[] channels = curve.getIntenseChannelIndex();
+			if (channels.length > 0) {
+				width = Math.max(width, channels[channels.length-1] + 1);
+			}
+		}
+		
+		boolean[] intense = new boolean[width];
+		int count = 0;
+		for (Curve curve : curves) {
+			for (int channel : curve.getIntenseChannelIndex()) {
+				if (!intense[channel]) {
+					intense[channel] = true;
+					count++;
+				}
+			}
+		}
+		
+		int[] union = new int[count];
+		int index = 0;
+		for (int channel = 0; channel < width; channel++) {
+			if (intense[channel]) {
+				union[index++] = channel;
+			}
+		}
+		return union;
+	}
+	
 	public synchronized void addTransitionSeries(ITransitionSeries ts)
 	{
 
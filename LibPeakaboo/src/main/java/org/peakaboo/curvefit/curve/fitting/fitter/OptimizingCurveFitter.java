@@ -11,10 +11,8 @@ import org.apache.commons.math3.optim.univariate.UnivariateOptimizer;
 import org.apache.commons.math3.optim.univariate.UnivariatePointValuePair;
 import org.peakaboo.curvefit.curve.fitting.Curve;
 import org.peakaboo.curvefit.curve.fitting.FittingResult;
-import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
 public class OptimizingCurveFitter implements CurveFitter {
 
@@ -34,7 +32,7 @@ public class OptimizingCurveFitter implements CurveFitter {
 		UnivariateFunction score = scoringFunction(data, curve);
 		
 		double guess = 0;
-		for (int channel : curve.getIntenseChannels()) {
+		for (int channel : curve.getIntenseChannelIndex()) {
 			guess = Math.max(guess, data.get(channel));
 		}
 		
@@ -56,19 +54,20 @@ public class OptimizingCurveFitter implements CurveFitter {
 	}
 	
 	protected UnivariateFunction scoringFunction(ReadOnlySpectrum data, Curve curve) {
+		//only the intense channels are scored, so the residual is only calculated there
+		float[] da = array(data);
+		float[] ca = array(curve.get());
+		int[] channels = curve.getIntenseChannelIndex();
 		return new UnivariateFunction() {
 			
-			Spectrum scaled = new ISpectrum(data.size());
-			Spectrum residual = new ISpectrum(data.size());
-			
 			@Override
 			public double value(double scale) {
-				curve.scaleInto((float) scale, scaled);
-				SpectrumCalculations.subtractLists_target(data, scaled, residual);
+				float fscale = (float) scale;
 				
 				float score = 0;
-				for (int i : curve.getIntenseChannels()) {
-					float value = residual.get(i);
+				for (int c = 0; c < channels.length; c++) {
+					int i = channels[c];
+					float value = da[i] - ca[i] * fscale;
 					if (value < 0) {
 						value *= overfitPenalty;
 					}
@@ -80,6 +79,17 @@ public class OptimizingCurveFitter implements CurveFitter {
 		};
 	}
 	
+	/*
+	 * The scoring function only reads the values, so a Spectrum's own backing
+	 * array is used rather than a copy
+	 */
+	private static float[] array(ReadOnlySpectrum spectrum) {
+		if (spectrum instanceof Spectrum) {
+			return ((Spectrum) spectrum).backingArray();
+		}
+		return spectrum.backingArrayCopy();
+	}
+	
 	@Override
 	public String name() {
 		return "Optimizing";
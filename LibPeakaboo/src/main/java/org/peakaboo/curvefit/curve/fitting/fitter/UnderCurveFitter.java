@@ -38,15 +38,20 @@ public class UnderCurveFitter implements CurveFitter {
 	private float getRatioForCurveUnderData(ReadOnlySpectrum data, Curve curve)
 	{
 			
+		int[] channels = curve.getIntenseChannelIndex();
+		ReadOnlySpectrum normalized = curve.get();
+		int size = data.size();
+		
 		float topIntensity = Float.MIN_VALUE;
 		boolean dataConsidered = false;
 		float currentIntensity;
 		float cutoff;
 		
 		//look at every point in the ranges covered by transitions, find the max intensity
-		for (Integer i : curve.getIntenseChannels())
+		for (int c = 0; c < channels.length; c++)
 		{
-			if (i < 0 || i >= data.size()) continue;
+			int i = channels[c];
+			if (i < 0 || i >= size) continue;
 			currentIntensity = data.get(i);
 			if (currentIntensity > topIntensity) topIntensity = currentIntensity;
 			dataConsidered = true;
@@ -73,15 +78,16 @@ public class UnderCurveFitter implements CurveFitter {
 
 		
 		//look at every point in the ranges covered by transitions 
-		for (Integer i : curve.getIntenseChannels())
+		for (int c = 0; c < channels.length; c++)
 		{
-			if (i < 0 || i >= data.size()) continue;
+			int i = channels[c];
+			if (i < 0 || i >= size) continue;
 			
 			
-			if (curve.get().get(i) >= cutoff)
+			if (normalized.get(i) >= cutoff)
 			{
 				
-				thisFactor = data.get(i) / curve.get().get(i);
+				thisFactor = data.get(i) / normalized.get(i);
 				if (thisFactor < smallestFactor && !Float.isNaN(thisFactor)) 
 				{
 					smallestFactor = thisFactor;
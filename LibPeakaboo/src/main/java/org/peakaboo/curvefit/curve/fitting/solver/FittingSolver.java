@@ -1,6 +1,10 @@
 package org.peakaboo.curvefit.curve.fitting.solver;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.peakaboo.curvefit.curve.fitting.Curve;
+import org.peakaboo.curvefit.curve.fitting.FittingResult;
 import org.peakaboo.curvefit.curve.fitting.FittingResultSet;
 import org.peakaboo.curvefit.curve.fitting.FittingSet;
 import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
@@ -18,4 +22,32 @@ public interface FittingSolver {
 	
 	FittingResultSet solve(ReadOnlySpectrum data, FittingSet fittings, CurveFitter fitter);
 	
+	/**
+	 * Prepares a {@link FittingSolverPlan} for fitting many spectra against the
+	 * same {@link FittingSet}. The plan may be used from many threads at once.
+	 */
+	default FittingSolverPlan prepare(FittingSet fittings, CurveFitter fitter) {
+		return new FittingSolverPlan(fittings, fitter);
+	}
+	
+	/**
+	 * Fits the given data using a plan from {@link #prepare(FittingSet, CurveFitter)},
+	 * storing the scale of each of the plan's {@link FittingSolverPlan#getCurves() Curves}
+	 * in the matching entry of scalings. Unlike 
+	 * {@link #solve(ReadOnlySpectrum, FittingSet, CurveFitter)}, this does not
+	 * build a {@link FittingResultSet}, and implementations should avoid 
+	 * allocating anything for each spectrum.
+	 */
+	default void solve(FittingSolverPlan plan, ReadOnlySpectrum data, float[] scalings) {
+		FittingResultSet results = solve(data, plan.getFittings(), plan.getFitter());
+		List<Curve> curves = plan.getCurves();
+		Arrays.fill(scalings, 0f);
+		for (FittingResult result : results.getFits()) {
+			int index = curves.indexOf(result.getCurve());
+			if (index >= 0) {
+				scalings[index] = result.getCurveScale();
+			}
+		}
+	}
+	
 }
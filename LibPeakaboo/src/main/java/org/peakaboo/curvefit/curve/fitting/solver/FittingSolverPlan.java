@@ -0,0 +1,90 @@
+package org.peakaboo.curvefit.curve.fitting.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.peakaboo.curvefit.curve.fitting.Curve;
+import org.peakaboo.curvefit.curve.fitting.FittingParameters;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+
+/**
+ * A FittingSolverPlan holds everything a {@link FittingSolver} can work out
+ * from a {@link FittingSet} before seeing any data, such as which
+ * {@link Curve}s are visible and which channels they cover. When many spectra
+ * are fitted against the same FittingSet, the plan is prepared once with
+ * {@link FittingSolver#prepare(FittingSet, CurveFitter)} and then reused for
+ * every spectrum. FittingSolvers may extend this class to keep their own
+ * precomputed values and per-thread scratch space.
+ * <br/><br/>
+ * A plan describes the FittingSet as it was when the plan was prepared. Since a
+ * FittingSet generates new Curves whenever its contents or
+ * {@link FittingParameters} change, {@link #isCurrent(FittingSet, CurveFitter)}
+ * can be used to check that a plan is still valid.
+ *
+ * @author NAS
+ *
+ */
+public class FittingSolverPlan {
+
+	private final FittingSet fittings;
+	private final CurveFitter fitter;
+	private final List<Curve> source;
+	private final List<Curve> curves;
+	private final int[] intenseChannels;
+
+	/**
+	 * Prepares a plan for the visible {@link Curve}s of the given FittingSet,
+	 * in the order they appear in the FittingSet
+	 */
+	public FittingSolverPlan(FittingSet fittings, CurveFitter fitter) {
+		this.fittings = fittings;
+		this.fitter = fitter;
+		this.source = fittings.getCurves();
+		this.curves = Collections.unmodifiableList(fittings.getVisibleCurves());
+		this.intenseChannels = FittingSet.intenseChannelUnion(this.curves);
+	}
+
+	public FittingSet getFittings() {
+		return fittings;
+	}
+
+	public CurveFitter getFitter() {
+		return fitter;
+	}
+
+	/**
+	 * Returns the visible {@link Curve}s this plan was prepared for. Solvers
+	 * using this plan report the scale of each Curve at the same index.
+	 */
+	public List<Curve> getCurves() {
+		return curves;
+	}
+
+	/**
+	 * Returns the sorted union of the intense channels of this plan's Curves.
+	 * The returned array is shared and must not be modified.
+	 */
+	public int[] getIntenseChannelIndex() {
+		return intenseChannels;
+	}
+
+	/**
+	 * Returns true if this plan was prepared for the given FittingSet and
+	 * CurveFitter, and the FittingSet has not changed since.
+	 */
+	public boolean isCurrent(FittingSet fittings, CurveFitter fitter) {
+		if (fittings != this.fittings || fitter != this.fitter) return false;
+		if (fittings.getCurves() != source) return false;
+		//visibility can be changed on shared ITransitionSeries without regenerating curves
+		int visible = 0;
+		for (Curve curve : source) {
+			if (curve.getTransitionSeries().isVisible()) {
+				if (visible >= curves.size() || curves.get(visible) != curve) return false;
+				visible++;
+			}
+		}
+		return visible == curves.size();
+	}
+
+}
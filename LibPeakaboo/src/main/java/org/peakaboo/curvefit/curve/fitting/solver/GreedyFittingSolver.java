@@ -12,7 +12,6 @@ import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
 public class GreedyFittingSolver implements FittingSolver {
 
@@ -38,19 +37,22 @@ public class GreedyFittingSolver implements FittingSolver {
 		FittingParameters resultParameters = FittingParameters.copy(fittings.getFittingParameters());
 		
 		Spectrum remainder = new ISpectrum(data);
-		Spectrum scaled = new ISpectrum(data.size());
+		boolean first = true;
 		
 		// calculate the curves
 		for (Curve curve : fittings.getCurves()) {
 			if (!curve.getTransitionSeries().isVisible()) { continue; }
 			
 			FittingResult result = fitter.fit(remainder, curve);
-			curve.scaleInto(result.getCurveScale(), scaled);
-			SpectrumCalculations.subtractLists_inplace(remainder, scaled, 0.0f);
+			curve.scaleSubtract(result.getCurveScale(), remainder, 0.0f);
+			if (first) {
+				clampRemainder(remainder);
+				first = false;
+			}
 			
 			//should this be done through a method addFit?
 			resultFits.add(result);
-			SpectrumCalculations.addLists_inplace(resultTotalFit, scaled);
+			curve.scaleAdd(result.getCurveScale(), resultTotalFit);
 		}
 
 		
@@ -59,4 +61,65 @@ public class GreedyFittingSolver implements FittingSolver {
 		
 	}
 	
+	@Override
+	public FittingSolverPlan prepare(FittingSet fittings, CurveFitter fitter) {
+		return new GreedyPlan(fittings, fitter);
+	}
+	
+	@Override
+	public void solve(FittingSolverPlan plan, ReadOnlySpectrum data, float[] scalings) {
+		if (!(plan instanceof GreedyPlan)) {
+			plan = prepare(plan.getFittings(), plan.getFitter());
+		}
+		List<Curve> curves = plan.getCurves();
+		if (curves.isEmpty()) { return; }
+		
+		Spectrum remainder = ((GreedyPlan) plan).remainder(data);
+		
+		CurveFitter fitter = plan.getFitter();
+		for (int i = 0; i < curves.size(); i++) {
+			Curve curve = curves.get(i);
+			float scale = fitter.fit(remainder, curve).getCurveScale();
+			curve.scaleSubtract(scale, remainder, 0.0f);
+			if (i == 0) {
+				clampRemainder(remainder);
+			}
+			scalings[i] = scale;
+		}
+	}
+	
+	/**
+	 * Subtracting a fit from the whole remainder would clamp every channel at 0,
+	 * but curves only subtract over their own support. The first curve is fitted
+	 * against the unclamped data, and the rest of the remainder is clamped once
+	 * after its subtraction, so later curves see the same remainder as before.
+	 */
+	private static void clampRemainder(Spectrum remainder) {
+		float[] ra = remainder.backingArray();
+		for (int i = 0; i < ra.length; i++) {
+			if (ra[i] < 0.0f) ra[i] = 0.0f;
+		}
+	}
+	
+	private static class GreedyPlan extends FittingSolverPlan {
+		
+		//per-thread copy of the data which fitted curves are subtracted from
+		private final ThreadLocal<Spectrum> remainders = ThreadLocal.withInitial(() -> new ISpectrum(0));
+		
+		GreedyPlan(FittingSet fittings, CurveFitter fitter) {
+			super(fittings, fitter);
+		}
+		
+		Spectrum remainder(ReadOnlySpectrum data) {
+			Spectrum remainder = remainders.get();
+			if (remainder.size() != data.size()) {
+				remainder = new ISpectrum(data.size());
+				remainders.set(remainder);
+			}
+			remainder.copy(data);
+			return remainder;
+		}
+		
+	}
+	
 }
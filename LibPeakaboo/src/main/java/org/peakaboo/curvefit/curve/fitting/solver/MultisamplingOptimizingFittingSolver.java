@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 import org.apache.commons.math3.analysis.MultivariateFunction;
 import org.apache.commons.math3.optim.PointValuePair;
@@ -38,9 +37,34 @@ public class MultisamplingOptimizingFittingSolver extends OptimizingFittingSolve
 		List<Curve> curves = new ArrayList<>(fittings.getVisibleCurves());
 		sortCurves(curves);
 		
+		int[] intenseChannels = fittings.getVisibleIntenseChannelIndex();
+		EvaluationContext context = new EvaluationContext(data, fittings, curves);
+		double[] scalings = multisample(curves, intenseChannels, context, fitter, data);
+		context.curves = curves;
 		
-		Set<Integer> intenseChannels = getIntenseChannels(curves);
+		return evaluate(scalings, context);
 		
+	}
+	
+	@Override
+	public void solve(FittingSolverPlan plan, ReadOnlySpectrum data, float[] scalings) {
+		OptimizingPlan optimizing = optimizingPlan(plan);
+		if (optimizing.sorted.isEmpty()) { return; }
+		
+		EvaluationContext context = optimizing.context(data);
+		double[] point = multisample(optimizing.sorted, optimizing.getIntenseChannelIndex(), context, optimizing.getFitter(), data);
+		for (int i = 0; i < point.length; i++) {
+			scalings[optimizing.order[i]] = (float) point[i];
+		}
+	}
+	
+	/**
+	 * Optimizes the scalings for several permutations of the given curves and
+	 * averages the results. The context is reused for every permutation.
+	 * @return the averaged scalings, in the same order as curves
+	 */
+	private double[] multisample(List<Curve> curves, int[] intenseChannels, EvaluationContext context, CurveFitter fitter, ReadOnlySpectrum data) {
+		int size = curves.size();
 		List<Curve> perm = new ArrayList<>(curves);
 		int counter = 0;
 		double[] scalings = new double[size];
@@ -49,7 +73,7 @@ public class MultisamplingOptimizingFittingSolver extends OptimizingFittingSolve
 			
 			
 			double[] guess = getInitialGuess(size, perm, fitter, data);
-			EvaluationContext context = new EvaluationContext(data, fittings, perm);
+			context.curves = perm;
 			MultivariateFunction cost = getCostFunction(context, intenseChannels);
 			PointValuePair result = optimizeCostFunction(cost, guess, 0.02d);
 			double[] permScalings = result.getPoint();
@@ -71,12 +95,8 @@ public class MultisamplingOptimizingFittingSolver extends OptimizingFittingSolve
 		for (int i = 0; i < scalings.length; i++) {
 			scalings[i] /= counter;
 		}
-
-		EvaluationContext context = new EvaluationContext(data, fittings, curves);
-		
-		return evaluate(scalings, context);
-		
 		
+		return scalings;
 	}
 	
 	private String a2s(double[] scalings) {
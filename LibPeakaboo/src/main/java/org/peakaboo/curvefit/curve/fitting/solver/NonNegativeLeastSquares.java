@@ -0,0 +1,215 @@
+package org.peakaboo.curvefit.curve.fitting.solver;
+
+import java.util.Arrays;
+
+/**
+ * Solves non-negative least squares problems of the form <i>min ||Ax - b||
+ * subject to x &ge; 0</i> using the Lawson-Hanson active set method.
+ * Problems are given in their normal form, as the Gram matrix <i>A<sup>T</sup>A</i>
+ * and the projection <i>A<sup>T</sup>b</i>, so that the cost of solving does not
+ * depend on the number of rows in <i>A</i>.
+ *
+ * @author NAS
+ *
+ */
+public class NonNegativeLeastSquares {
+
+	private NonNegativeLeastSquares() {}
+
+	/**
+	 * Working space for solving problems with a given number of variables, so
+	 * that repeated solves don't need to allocate. A Workspace may only be used
+	 * by one thread at a time.
+	 */
+	public static class Workspace {
+		final double[] s;
+		final double[] gradient;
+		final boolean[] passive;
+		//variables which can't be solved for independently of the passive set
+		final boolean[] degenerate;
+		final double[][] system;
+		final int[] indices;
+
+		public Workspace(int n) {
+			s = new double[n];
+			gradient = new double[n];
+			passive = new boolean[n];
+			degenerate = new boolean[n];
+			system = new double[n][n + 1];
+			indices = new int[n];
+		}
+	}
+
+	/**
+	 * Finds the non-negative x minimizing ||Ax - b||
+	 * @param gram the n by n Gram matrix A<sup>T</sup>A
+	 * @param projection the length n vector A<sup>T</sup>b
+	 * @return the solution x
+	 */
+	public static double[] solve(double[][] gram, double[] projection) {
+		double[] x = new double[projection.length];
+		solve(gram, projection, x, new Workspace(projection.length));
+		return x;
+	}
+
+	/**
+	 * Finds the non-negative x minimizing ||Ax - b||, storing it in the given
+	 * array and using the given {@link Workspace} rather than allocating
+	 * @param gram the n by n Gram matrix A<sup>T</sup>A
+	 * @param projection the length n vector A<sup>T</sup>b
+	 * @param x the length n array to store the solution in
+	 * @param workspace a Workspace for n variables
+	 */
+	public static void solve(double[][] gram, double[] projection, double[] x, Workspace workspace) {
+		int n = projection.length;
+		double[] s = workspace.s;
+		double[] gradient = workspace.gradient;
+		boolean[] passive = workspace.passive;
+		boolean[] degenerate = workspace.degenerate;
+		double[][] system = workspace.system;
+		int[] indices = workspace.indices;
+		Arrays.fill(x, 0, n, 0d);
+		Arrays.fill(passive, false);
+		Arrays.fill(degenerate, false);
+
+		//scale the convergence tolerance to the size of the problem
+		double scale = 0;
+		for (int i = 0; i < n; i++) {
+			scale = Math.max(scale, Math.abs(projection[i]));
+		}
+		if (scale == 0) {
+			return;
+		}
+		double tolerance = scale * 1e-10;
+
+		int maxIterations = 3 * n + 10;
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			//the negative gradient of the objective at x
+			for (int i = 0; i < n; i++) {
+				double value = projection[i];
+				for (int j = 0; j < n; j++) {
+					value -= gram[i][j] * x[j];
+				}
+				gradient[i] = value;
+			}
+
+			//pick the active variable which would most improve the fit
+			int best = -1;
+			double bestValue = tolerance;
+			for (int i = 0; i < n; i++) {
+				if (!passive[i] && !degenerate[i] && gradient[i] > bestValue) {
+					best = i;
+					bestValue = gradient[i];
+				}
+			}
+			if (best == -1) {
+				break;
+			}
+			passive[best] = true;
+
+			//solve the unconstrained problem over the passive variables, stepping
+			//back towards x whenever that solution leaves the feasible region.
+			//every step back removes at least one variable, so this runs at most
+			//n times
+			for (int step = 0; step <= n; step++) {
+				if (!solvePassive(gram, projection, passive, s, system, indices) || (step == 0 && s[best] <= 0)) {
+					//the new variable is degenerate with the existing ones, or rounding
+					//leaves it unable to improve the fit
+					passive[best] = false;
+					degenerate[best] = true;
+					break;
+				}
+
+				//find the passive variable which reaches 0 first on the way from x to s
+				int limit = -1;
+				double alpha = 1;
+				for (int i = 0; i < n; i++) {
+					if (!passive[i] || s[i] > 0) continue;
+					double distance = x[i] - s[i];
+					double ratio = distance > 0 ? x[i] / distance : 0;
+					if (limit == -1 || ratio < alpha) {
+						limit = i;
+						alpha = ratio;
+					}
+				}
+				if (limit == -1) {
+					System.arraycopy(s, 0, x, 0, n);
+					break;
+				}
+
+				for (int i = 0; i < n; i++) {
+					x[i] += alpha * (s[i] - x[i]);
+					if (passive[i] && x[i] <= 0) {
+						x[i] = 0;
+						passive[i] = false;
+					}
+				}
+				//rounding may leave the limiting variable just above 0
+				x[limit] = 0;
+				passive[limit] = false;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			if (x[i] < 0) x[i] = 0;
+		}
+	}
+
+	/**
+	 * Solves the normal equations restricted to the passive variables, storing
+	 * the result in s with all other entries set to 0.
+	 * @return false if the restricted system is singular
+	 */
+	private static boolean solvePassive(double[][] gram, double[] projection, boolean[] passive, double[] s, double[][] system, int[] indices) {
+		int n = projection.length;
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			s[i] = 0;
+			if (passive[i]) {
+				indices[m++] = i;
+			}
+		}
+
+		//augmented matrix for the passive variables
+		for (int r = 0; r < m; r++) {
+			for (int c = 0; c < m; c++) {
+				system[r][c] = gram[indices[r]][indices[c]];
+			}
+			system[r][m] = projection[indices[r]];
+		}
+
+		//gaussian elimination with partial pivoting
+		for (int col = 0; col < m; col++) {
+			int pivot = col;
+			for (int r = col + 1; r < m; r++) {
+				if (Math.abs(system[r][col]) > Math.abs(system[pivot][col])) {
+					pivot = r;
+				}
+			}
+			if (Math.abs(system[pivot][col]) <= 1e-12 * Math.abs(gram[indices[col]][indices[col]]) || system[pivot][col] == 0) {
+				return false;
+			}
+			double[] swap = system[col];
+			system[col] = system[pivot];
+			system[pivot] = swap;
+
+			for (int r = col + 1; r < m; r++) {
+				double factor = system[r][col] / system[col][col];
+				if (factor == 0) continue;
+				for (int c = col; c <= m; c++) {
+					system[r][c] -= factor * system[col][c];
+				}
+			}
+		}
+
+		for (int r = m - 1; r >= 0; r--) {
+			double value = system[r][m];
+			for (int c = r + 1; c < m; c++) {
+				value -= system[r][c] * s[indices[c]];
+			}
+			s[indices[r]] = value / system[r][r];
+		}
+		return true;
+	}
+
+}
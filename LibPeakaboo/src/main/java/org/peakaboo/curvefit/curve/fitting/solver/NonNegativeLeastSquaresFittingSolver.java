@@ -0,0 +1,191 @@
+package org.peakaboo.curvefit.curve.fitting.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.peakaboo.curvefit.curve.fitting.Curve;
+import org.peakaboo.curvefit.curve.fitting.FittingParameters;
+import org.peakaboo.curvefit.curve.fitting.FittingResult;
+import org.peakaboo.curvefit.curve.fitting.FittingResultSet;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Since the total fit is linear in the curve scalings, the best scalings can
+ * be found directly rather than by searching for them. This solver finds the
+ * non-negative scalings which minimize the sum of squared residuals over the
+ * intense channels of the visible {@link Curve}s using the Lawson-Hanson
+ * active set method.
+ * <br/><br/>
+ * The Gram matrix of the curves only depends on the {@link FittingSet}, so it
+ * is calculated once per {@link FittingSolverPlan} and reused for every
+ * spectrum fitted against the same curves. Each spectrum then only requires
+ * projecting the data onto the curves and solving a system no larger than the
+ * number of curves. The {@link CurveFitter} is not used.
+ *
+ * @author NAS
+ *
+ */
+public class NonNegativeLeastSquaresFittingSolver implements FittingSolver {
+
+	//the most recently prepared plan, reused while its FittingSet is unchanged
+	private volatile LeastSquaresPlan lastPlan;
+
+	@Override
+	public String name() {
+		return "Least-Squares";
+	}
+
+	@Override
+	public String toString() {
+		return name();
+	}
+
+	@Override
+	public FittingResultSet solve(ReadOnlySpectrum data, FittingSet fittings, CurveFitter fitter) {
+		LeastSquaresPlan plan = lastPlan;
+		if (plan == null || !plan.isCurrent(fittings, fitter)) {
+			plan = new LeastSquaresPlan(fittings, fitter);
+			lastPlan = plan;
+		}
+
+		List<Curve> curves = plan.getCurves();
+		if (curves.isEmpty()) {
+			return new FittingResultSet(
+					new ISpectrum(data.size()),
+					new ISpectrum(data),
+					new ArrayList<>(),
+					FittingParameters.copy(fittings.getFittingParameters())
+				);
+		}
+
+		float[] scalings = new float[curves.size()];
+		solve(plan, data, scalings);
+
+		List<FittingResult> fits = new ArrayList<>();
+		Spectrum total = new ISpectrum(data.size());
+		for (int i = 0; i < curves.size(); i++) {
+			Curve curve = curves.get(i);
+			curve.scaleAdd(scalings[i], total);
+			fits.add(new FittingResult(curve, scalings[i]));
+		}
+
+		Spectrum residual = new ISpectrum(data);
+		float[] ra = residual.backingArray();
+		float[] ta = total.backingArray();
+		for (int i = 0; i < ra.length; i++) {
+			ra[i] -= ta[i];
+		}
+
+		return new FittingResultSet(total, residual, fits, fittings.getFittingParameters().copy());
+	}
+
+	@Override
+	public FittingSolverPlan prepare(FittingSet fittings, CurveFitter fitter) {
+		return new LeastSquaresPlan(fittings, fitter);
+	}
+
+	@Override
+	public void solve(FittingSolverPlan plan, ReadOnlySpectrum data, float[] scalings) {
+		LeastSquaresPlan leastSquares;
+		if (plan instanceof LeastSquaresPlan) {
+			leastSquares = (LeastSquaresPlan) plan;
+		} else {
+			leastSquares = new LeastSquaresPlan(plan.getFittings(), plan.getFitter());
+		}
+		int n = leastSquares.getCurves().size();
+		if (n == 0) { return; }
+
+		Scratch scratch = leastSquares.scratch.get();
+		int[] channels = leastSquares.getIntenseChannelIndex();
+		int count = Math.min(channels.length, leastSquares.channelsBelow(data.size()));
+		for (int i = 0; i < n; i++) {
+			float[] column = leastSquares.columns[i];
+			double dot = 0;
+			for (int c = 0; c < count; c++) {
+				dot += column[c] * data.get(channels[c]);
+			}
+			scratch.projection[i] = dot;
+		}
+
+		NonNegativeLeastSquares.solve(leastSquares.gram, scratch.projection, scratch.solution, scratch.workspace);
+		for (int i = 0; i < n; i++) {
+			scalings[i] = (float) scratch.solution[i];
+		}
+	}
+
+
+	/**
+	 * The parts of the least-squares problem which depend only on the Curves:
+	 * the curve values at each intense channel and their Gram matrix.
+	 */
+	private static class LeastSquaresPlan extends FittingSolverPlan {
+
+		//curve values at each of the intense channels, one row per curve
+		final float[][] columns;
+		//columns[i] . columns[j]
+		final double[][] gram;
+		final ThreadLocal<Scratch> scratch;
+
+		LeastSquaresPlan(FittingSet fittings, CurveFitter fitter) {
+			super(fittings, fitter);
+			List<Curve> curves = getCurves();
+			int[] channels = getIntenseChannelIndex();
+			int n = curves.size();
+
+			columns = new float[n][channels.length];
+			for (int i = 0; i < n; i++) {
+				ReadOnlySpectrum curve = curves.get(i).get();
+				for (int c = 0; c < channels.length; c++) {
+					if (channels[c] < curve.size()) {
+						columns[i][c] = curve.get(channels[c]);
+					}
+				}
+			}
+
+			gram = new double[n][n];
+			for (int i = 0; i < n; i++) {
+				for (int j = i; j < n; j++) {
+					double dot = 0;
+					for (int c = 0; c < channels.length; c++) {
+						dot += (double) columns[i][c] * columns[j][c];
+					}
+					gram[i][j] = dot;
+					gram[j][i] = dot;
+				}
+			}
+
+			scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+		}
+
+		/**
+		 * Returns the number of intense channels which are less than the given
+		 * channel count
+		 */
+		int channelsBelow(int size) {
+			int[] channels = getIntenseChannelIndex();
+			int count = channels.length;
+			while (count > 0 && channels[count-1] >= size) {
+				count--;
+			}
+			return count;
+		}
+
+	}
+
+	private static class Scratch {
+		final double[] projection;
+		final double[] solution;
+		final NonNegativeLeastSquares.Workspace workspace;
+
+		Scratch(int n) {
+			projection = new double[n];
+			solution = new double[n];
+			workspace = new NonNegativeLeastSquares.Workspace(n);
+		}
+	}
+
+}
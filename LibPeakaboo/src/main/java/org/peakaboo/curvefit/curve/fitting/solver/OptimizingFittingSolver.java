@@ -1,10 +1,9 @@
 package org.peakaboo.curvefit.curve.fitting.solver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.math3.analysis.MultivariateFunction;
 import org.apache.commons.math3.optim.InitialGuess;
@@ -23,6 +22,8 @@ import org.peakaboo.curvefit.curve.fitting.FittingSet;
 import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
 import org.peakaboo.curvefit.peak.table.Element;
 import org.peakaboo.curvefit.peak.transition.TransitionShell;
+import org.peakaboo.framework.cyclops.Range;
+import org.peakaboo.framework.cyclops.RangeSet;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
@@ -49,7 +50,7 @@ public class OptimizingFittingSolver implements FittingSolver {
 		
 		List<Curve> curves = new ArrayList<>(fittings.getVisibleCurves());
 		sortCurves(curves);
-		Set<Integer> intenseChannels = getIntenseChannels(curves);
+		int[] intenseChannels = fittings.getVisibleIntenseChannelIndex();
 		EvaluationContext context = new EvaluationContext(data, fittings, curves);
 		MultivariateFunction cost = getCostFunction(context, intenseChannels);
 		double[] guess = getInitialGuess(size, curves, fitter, data);
@@ -64,6 +65,37 @@ public class OptimizingFittingSolver implements FittingSolver {
 		
 	}
 	
+	@Override
+	public FittingSolverPlan prepare(FittingSet fittings, CurveFitter fitter) {
+		return new OptimizingPlan(fittings, fitter);
+	}
+	
+	@Override
+	public void solve(FittingSolverPlan plan, ReadOnlySpectrum data, float[] scalings) {
+		OptimizingPlan optimizing = optimizingPlan(plan);
+		int size = optimizing.sorted.size();
+		if (size == 0) { return; }
+		
+		EvaluationContext context = optimizing.context(data);
+		MultivariateFunction cost = getCostFunction(context, optimizing.getIntenseChannelIndex());
+		double[] guess = getInitialGuess(size, optimizing.sorted, optimizing.getFitter(), data);
+		double[] point = optimizeCostFunction(cost, guess, 0.01d).getPoint();
+		for (int i = 0; i < size; i++) {
+			scalings[optimizing.order[i]] = (float) point[i];
+		}
+	}
+	
+	/**
+	 * Returns the given plan as an {@link OptimizingPlan}, preparing a new one
+	 * if it was prepared by a different kind of solver.
+	 */
+	protected OptimizingPlan optimizingPlan(FittingSolverPlan plan) {
+		if (plan instanceof OptimizingPlan) {
+			return (OptimizingPlan) plan;
+		}
+		return new OptimizingPlan(plan.getFittings(), plan.getFitter());
+	}
+	
 	protected FittingResultSet getEmptyResult(ReadOnlySpectrum data, FittingSet fittings) {
 		return new FittingResultSet(
 				new ISpectrum(data.size()), 
@@ -122,15 +154,7 @@ public class OptimizingFittingSolver implements FittingSolver {
 		return guess;
 	}
 	
-	protected Set<Integer> getIntenseChannels(List<Curve> curves) {
-		Set<Integer> intenseChannels = new LinkedHashSet<>();
-		for (Curve curve : curves) {
-			intenseChannels.addAll(curve.getIntenseChannels());
-		}
-		return intenseChannels;
-	}
-	
-	protected MultivariateFunction getCostFunction(EvaluationContext context, Set<Integer> intenseChannels) {
+	protected MultivariateFunction getCostFunction(EvaluationContext context, int[] intenseChannels) {
 		return new MultivariateFunction() {
 			
 			@Override
@@ -171,24 +195,37 @@ public class OptimizingFittingSolver implements FittingSolver {
 		});
 	}
 
+	/**
+	 * Calculates the total fit and the residual for the given scalings. Only
+	 * channels in the combined support of the curves are calculated, since the
+	 * fit is zero everywhere else.
+	 */
 	private void test(double[] point, EvaluationContext context) {
+		float[] da = context.dataArray;
+		float[] ta = context.total.backingArray();
+		float[] ra = context.residual.backingArray();
+		
+		for (Range range : context.support) {
+			Arrays.fill(ta, range.getStart(), range.getStop()+1, 0f);
+		}
 		int index = 0;
-		context.scratch.zero();
-		context.total.zero();
 		for (Curve curve : context.curves) {
 			float scale = (float) point[index++];
-			curve.scaleInto(scale, context.scratch);
-			SpectrumCalculations.addLists_inplace(context.total, context.scratch);
+			curve.scaleAdd(scale, context.total);
+		}
+		for (Range range : context.support) {
+			for (int i = range.getStart(); i <= range.getStop(); i++) {
+				ra[i] = da[i] - ta[i];
+			}
 		}
-		SpectrumCalculations.subtractLists_target(context.data, context.total, context.residual);
 
 	}
 	
-	private float score(double[] point, Set<Integer> intenseChannels, Spectrum residual) {
+	private float score(double[] point, int[] intenseChannels, Spectrum residual) {
 		float[] ra = residual.backingArray();
 		float score = 0;
-		for (int i : intenseChannels) {
-			float channelValue = ra[i];
+		for (int c = 0; c < intenseChannels.length; c++) {
+			float channelValue = ra[intenseChannels[c]];
 			
 			//Negative values mean that we've fit more signal than exists
 			//We penalize this to prevent making up data where none exists.
@@ -210,12 +247,10 @@ public class OptimizingFittingSolver implements FittingSolver {
 		int index = 0;
 		List<FittingResult> fits = new ArrayList<>();
 		Spectrum total = new ISpectrum(context.data.size());
-		Spectrum scaled = new ISpectrum(context.data.size());
 		for (Curve curve : context.curves) {
 			float scale = (float) point[index++];
-			curve.scaleInto(scale, scaled);
+			curve.scaleAdd(scale, total);
 			fits.add(new FittingResult(curve, scale));
-			SpectrumCalculations.addLists_inplace(total, scaled);
 		}
 		Spectrum residual = SpectrumCalculations.subtractLists(context.data, total);
 		
@@ -224,19 +259,95 @@ public class OptimizingFittingSolver implements FittingSolver {
 	
 	protected class EvaluationContext {
 		public ReadOnlySpectrum data;
+		public float[] dataArray;
 		public FittingSet fittings;
 		public List<Curve> curves;
-		public Spectrum scratch;
+		//the union of the supports of all curves, clipped to the data
+		public List<Range> support;
 		public Spectrum total;
 		public Spectrum residual;
 		public EvaluationContext(ReadOnlySpectrum data, FittingSet fittings, List<Curve> curves) {
-			this.data = data;
+			this(fittings, curves, data.size());
+			load(data);
+		}
+		
+		/**
+		 * Creates a reusable context for data of the given size. Data must be
+		 * given with {@link #load(ReadOnlySpectrum)} before evaluating.
+		 */
+		public EvaluationContext(FittingSet fittings, List<Curve> curves, int size) {
 			this.fittings = fittings;
 			this.curves = curves;
-			this.scratch = new ISpectrum(data.size());
-			this.total = new ISpectrum(data.size());
-			this.residual = new ISpectrum(data.size());
+			this.dataArray = new float[size];
+			this.total = new ISpectrum(size);
+			this.residual = new ISpectrum(size);
+			
+			RangeSet union = new RangeSet();
+			for (Curve curve : curves) {
+				union.addRangeSet(curve.getSupport());
+			}
+			this.support = new ArrayList<>();
+			for (Range range : union.getRanges()) {
+				int start = Math.max(0, range.getStart());
+				int stop = Math.min(size-1, range.getStop());
+				if (start <= stop) {
+					this.support.add(new Range(start, stop));
+				}
+			}
+		}
+		
+		/**
+		 * Sets the data which this context evaluates fittings against. The data
+		 * must be the size this context was created for.
+		 */
+		public void load(ReadOnlySpectrum data) {
+			this.data = data;
+			if (data instanceof Spectrum) {
+				System.arraycopy(((Spectrum) data).backingArray(), 0, dataArray, 0, dataArray.length);
+			} else {
+				for (int i = 0; i < dataArray.length; i++) {
+					dataArray[i] = data.get(i);
+				}
+			}
 		}
 	}
 	
+	/**
+	 * A {@link FittingSolverPlan} which also keeps the Curves in the order they
+	 * are optimized in, and a reusable {@link EvaluationContext} per thread.
+	 */
+	protected class OptimizingPlan extends FittingSolverPlan {
+		
+		//the plan's curves, sorted with sortCurves
+		public final List<Curve> sorted;
+		//the index in getCurves() of each curve in sorted
+		public final int[] order;
+		private final ThreadLocal<EvaluationContext> contexts = new ThreadLocal<>();
+		
+		public OptimizingPlan(FittingSet fittings, CurveFitter fitter) {
+			super(fittings, fitter);
+			sorted = new ArrayList<>(getCurves());
+			sortCurves(sorted);
+			order = new int[sorted.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = getCurves().indexOf(sorted.get(i));
+			}
+		}
+		
+		/**
+		 * Returns this thread's EvaluationContext, loaded with the given data
+		 */
+		public EvaluationContext context(ReadOnlySpectrum data) {
+			EvaluationContext context = contexts.get();
+			if (context == null || context.dataArray.length != data.size()) {
+				context = new EvaluationContext(getFittings(), sorted, data.size());
+				contexts.set(context);
+			}
+			context.curves = sorted;
+			context.load(data);
+			return context;
+		}
+		
+	}
+	
 }
@@ -5,16 +5,29 @@ import org.peakaboo.curvefit.peak.fitting.FittingFunction;
 import org.peakaboo.curvefit.peak.transition.Transition;
 
 public class ConvolvingVoigtFittingFunction implements FittingFunction {
-
+	
+	//below this, the signal is considered to be 0
+	private static final float SIGNAL_CUTOFF = 0.0001f;
+	
 	private FittingContext context;
 	
-	private FittingFunction signal;
+	private LorentzFittingFunction signal;
+	//the same signal centred at 0, for looking up convolved values by distance
+	private LorentzFittingFunction centredSignal;
 	
 	@Override
 	public void initialize(FittingContext context) {
 		this.context = context;
 		signal = lorentz();
-		FittingContext copy = new FittingContext(context) {
+		signal.initialize(signalContext(context));
+		
+		Transition centre = new Transition(0f, 1f, "Centre for Voigt Fitting Function");
+		centredSignal = lorentz();
+		centredSignal.initialize(signalContext(new FittingContext(context.getFittingParameters(), centre, context.getTransitionSeriesType())));
+	}
+	
+	private FittingContext signalContext(FittingContext context) {
+		return new FittingContext(context) {
 			/*
 			 * Hardcoded as 10ev because according to Handbook of X-Ray Spectrometry rev. 2
 			 * p242, lorentz function represents actual xray emission, and is therefore on
@@ -26,9 +39,8 @@ public class ConvolvingVoigtFittingFunction implements FittingFunction {
 				return 0.010f;
 			}
 		};
-		signal.initialize(copy);
 	}
-
+	
 	@Override
 	public float forEnergy(float energy) {
 		return forEnergyAbsolute(energy) * context.getHeight();
@@ -36,53 +48,25 @@ public class ConvolvingVoigtFittingFunction implements FittingFunction {
 	
 	@Override
 	public float forEnergyAbsolute(float energy) {
-		if(signal.forEnergyAbsolute(energy) < 0.0001) {
+		if(signal.forEnergyAbsolute(energy) < SIGNAL_CUTOFF) {
 			return 0;
 		}
-		//Create a kernel transition+fittingfunction centered around the current energy
-		Transition fake = new Transition(energy, 1f, "Fake Transition for Voigt Fitting Function");
-		FittingContext copy = new FittingContext(context.getFittingParameters(), fake, context.getTransitionSeriesType());
-		FittingFunction kernel = gaussian();
-		kernel.initialize(copy);
-		
-		return convolveForEnergy(energy, kernel);
-
+		//The Gaussian kernel is centred around the current energy, and takes its
+		//FWHM from it. The convolved values for that FWHM are tabulated by distance
+		float fwhm = context.getFittingParameters().getFWHM(energy);
+		return VoigtProfileTable.value(energy - context.getEnergy(), fwhm, centredSignal);
+	
 	}
 	
 	/**
-	 * Solves a function convolution at the given energy 
+	 * Returns the distance from the peak beyond which the given signal falls
+	 * below the cutoff, and this function returns 0
 	 */
-	private float convolveForEnergy(float energy, FittingFunction kernel) {
-		float max = kernel.forEnergyAbsolute(energy);
-		float deltaEnergy = 0f;
-		float sum = 0f;
-		float kernelValue, signalValue;
-		float normalizer = 0;
-		while (true) {
-			//kernel is centered at `energy`, so we can take advantage of 
-			//symmetry to only call it once for +/-
-			kernelValue = kernel.forEnergyAbsolute(energy + deltaEnergy);
-			signalValue = signal.forEnergyAbsolute(energy + deltaEnergy) + signal.forEnergyAbsolute(energy - deltaEnergy);
-			
-			if (kernelValue < 0.001f * max && kernelValue < 0.1f && signalValue < 0.2f) break;
-			
-			sum += kernelValue * signalValue; //same as kernel * signal1 + kernel * signal2
-			normalizer += kernelValue + kernelValue;
-			
-			deltaEnergy += 0.002;
-		}
-		
-		if (normalizer == 0) {
-			sum = 0;
-		} else {
-			sum /= normalizer;
-		}
-		
-		return sum;
-	}
-	
-	private GaussianFittingFunction gaussian() {
-		return new GaussianFittingFunction();
+	static float cutoffDistance(LorentzFittingFunction signal) {
+		float gamma = signal.getGamma();
+		//gamma / (pi * (d^2 + gamma^2)) = cutoff
+		double squared = gamma / (Math.PI * SIGNAL_CUTOFF) - gamma * gamma;
+		return (float) Math.sqrt(Math.max(0, squared));
 	}
 	
 	private LorentzFittingFunction lorentz() {
@@ -94,11 +78,11 @@ public class ConvolvingVoigtFittingFunction implements FittingFunction {
 	public String name() {
 		return "Convolving Voigt";
 	}
-
+	
 	@Override
 	public String toString() {
 		return name() + " (Beta)";
 	}
-	
-	
+
+
 }
@@ -0,0 +1,139 @@
+package org.peakaboo.curvefit.peak.fitting.functions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.peakaboo.curvefit.peak.fitting.FittingContext;
+import org.peakaboo.curvefit.peak.fitting.FittingFunction;
+import org.peakaboo.curvefit.peak.transition.Transition;
+
+/**
+ * Tabulated values of the numerically convolved Voigt profile used by
+ * {@link ConvolvingVoigtFittingFunction}. The convolved value only depends on
+ * the distance from the peak, the FWHM of the Gaussian kernel and the width of
+ * the Lorentz signal, so rather than convolving for every channel of every
+ * transition, the profile is convolved once at a set of distances for a set of
+ * FWHM values and then interpolated.
+ * <br/><br/>
+ * FWHM values are bucketed on a logarithmic scale, and tables for each bucket
+ * are generated as needed and shared between all fitting functions with the
+ * same Lorentz width.
+ *
+ * @author NAS
+ *
+ */
+class VoigtProfileTable {
+
+	//ratio between the FWHM values of adjacent buckets, as a power of e
+	private static final double BUCKET_STEP = Math.log(1.02);
+	//number of samples per FWHM of distance from the peak
+	private static final int SAMPLES_PER_FWHM = 64;
+	//step size of the numerical convolution in keV
+	private static final float CONVOLUTION_STEP = 0.002f;
+	//upper bound on cached tables, to keep memory use in check as parameters change
+	private static final int MAX_TABLES = 512;
+
+	private static final Map<Long, float[]> tables = new ConcurrentHashMap<>();
+
+	private VoigtProfileTable() {}
+
+	/**
+	 * Returns the value of the convolved profile at the given distance from the
+	 * peak
+	 * @param distance the distance from the peak in keV
+	 * @param fwhm the FWHM of the Gaussian kernel in keV
+	 * @param lorentz the Lorentz signal, centred at 0
+	 */
+	static float value(float distance, float fwhm, LorentzFittingFunction lorentz) {
+		distance = Math.abs(distance);
+		double position = Math.log(fwhm) / BUCKET_STEP;
+		int bucket = (int) Math.floor(position);
+		float weight = (float) (position - bucket);
+
+		float low = interpolate(table(bucket, lorentz), distance, bucketFWHM(bucket));
+		float high = interpolate(table(bucket+1, lorentz), distance, bucketFWHM(bucket+1));
+		return low + (high - low) * weight;
+	}
+
+	private static float interpolate(float[] table, float distance, float fwhm) {
+		float position = distance / fwhm * SAMPLES_PER_FWHM;
+		int index = (int) position;
+		if (index >= table.length - 1) {
+			return 0f;
+		}
+		float weight = position - index;
+		return table[index] + (table[index+1] - table[index]) * weight;
+	}
+
+	private static float bucketFWHM(int bucket) {
+		return (float) Math.exp(bucket * BUCKET_STEP);
+	}
+
+	private static float[] table(int bucket, LorentzFittingFunction lorentz) {
+		long key = ((long) bucket << 32) | (Float.floatToIntBits(lorentz.getGamma()) & 0xFFFFFFFFL);
+		float[] table = tables.get(key);
+		if (table != null) {
+			return table;
+		}
+		if (tables.size() >= MAX_TABLES) {
+			tables.clear();
+		}
+		return tables.computeIfAbsent(key, k -> generate(bucketFWHM(bucket), lorentz));
+	}
+
+	/**
+	 * Convolves the profile at evenly spaced distances from the peak, out to
+	 * the point where {@link ConvolvingVoigtFittingFunction} stops evaluating
+	 * it.
+	 */
+	private static float[] generate(float fwhm, LorentzFittingFunction lorentz) {
+		float limit = ConvolvingVoigtFittingFunction.cutoffDistance(lorentz);
+		int samples = (int) Math.ceil(limit / fwhm * SAMPLES_PER_FWHM) + 2;
+		float[] table = new float[samples];
+		for (int i = 0; i < samples; i++) {
+			float distance = (float) i / SAMPLES_PER_FWHM * fwhm;
+			table[i] = convolve(distance, fwhm, lorentz);
+		}
+		return table;
+	}
+
+	/**
+	 * Solves the convolution of the Lorentz signal with a Gaussian kernel of
+	 * the given FWHM centred at the given distance from the peak
+	 */
+	private static float convolve(float distance, float fwhm, LorentzFittingFunction signal) {
+		Transition centre = new Transition(distance, 1f, "Kernel for Voigt Profile Table");
+		FittingFunction kernel = new GaussianFittingFunction();
+		kernel.initialize(new FittingContext(null, centre, null) {
+			@Override
+			public float getFWHM() {
+				return fwhm;
+			}
+		});
+
+		float max = kernel.forEnergyAbsolute(distance);
+		float deltaEnergy = 0f;
+		float sum = 0f;
+		float kernelValue, signalValue;
+		float normalizer = 0;
+		while (true) {
+			//kernel is centered at `distance`, so we can take advantage of
+			//symmetry to only call it once for +/-
+			kernelValue = kernel.forEnergyAbsolute(distance + deltaEnergy);
+			signalValue = signal.forEnergyAbsolute(distance + deltaEnergy) + signal.forEnergyAbsolute(distance - deltaEnergy);
+
+			if (kernelValue < 0.001f * max && kernelValue < 0.1f && signalValue < 0.2f) break;
+
+			sum += kernelValue * signalValue; //same as kernel * signal1 + kernel * signal2
+			normalizer += kernelValue + kernelValue;
+
+			deltaEnergy += CONVOLUTION_STEP;
+		}
+
+		if (normalizer == 0) {
+			return 0;
+		}
+		return sum / normalizer;
+	}
+
+}
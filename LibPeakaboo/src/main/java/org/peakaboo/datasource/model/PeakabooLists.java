@@ -43,7 +43,7 @@ public final class PeakabooLists {
 	
 	public static <T> ScratchList<T> create(ScratchEncoder<T> encoder) {
 		//Config for disk-backed
-		DiskStrategy onDisk = PeakabooConfiguration.diskstore ? DiskStrategy.PREFER_DISK : DiskStrategy.PREFER_MEMORY;
+		DiskStrategy onDisk = PeakabooConfiguration.diskstore ? DiskStrategy.PREFER_MAPPED : DiskStrategy.PREFER_MEMORY;
 		return ScratchLists.get(onDisk, encoder);
 
 	}
@@ -0,0 +1,199 @@
+package org.peakaboo.datasource.model.components.scandata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Stores a transposed, channel-major copy of a data set in a memory-mapped
+ * temporary file, so that the values of a single channel across all scans can
+ * be read without retrieving and decoding every spectrum.
+ * <br/><br/>
+ * Since the number of scans isn't known while a data set is loading, scans are
+ * grouped into blocks of {@link #BLOCK_SCANS}. Within a block, the values for
+ * each channel are contiguous, so reading one channel is a handful of bulk
+ * reads rather than one read per scan.
+ *
+ * @author NAS
+ *
+ */
+public class ChannelMajorStore {
+
+	public static final int BLOCK_SCANS = 4096;
+
+	private final int channels;
+	private final int maxScans;
+	private final long blockBytes;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	//republished by the writer after every modification
+	private volatile FloatBuffer[] blocks;
+	private volatile int size;
+
+	/**
+	 * Creates a new store for spectra of the given channel count
+	 * @param channels the number of channels in every spectrum
+	 * @param budget the maximum number of bytes this store may occupy
+	 * @throws IOException if the backing file could not be created
+	 */
+	public ChannelMajorStore(int channels, long budget) throws IOException {
+		this.channels = channels;
+		this.blockBytes = (long) channels * BLOCK_SCANS * 4L;
+		this.maxScans = (int) Math.min(Integer.MAX_VALUE - BLOCK_SCANS, (budget / blockBytes) * BLOCK_SCANS);
+
+		File file = File.createTempFile("ChannelMajorStore [temp - ", "]");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+
+		blocks = new FloatBuffer[0];
+		size = 0;
+	}
+
+
+	/**
+	 * Returns the channel count of the spectra in this store
+	 */
+	public int channels() {
+		return channels;
+	}
+
+	/**
+	 * Returns the number of scans in this store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if the given spectrum can be stored at the given index
+	 * without exceeding this store's channel count or budget.
+	 */
+	public boolean accepts(int index, ReadOnlySpectrum spectrum) {
+		return spectrum != null && spectrum.size() == channels && index >= 0 && index < maxScans;
+	}
+
+	/**
+	 * Writes the values of the given spectrum into the strips for each channel
+	 * at the given scan index. The spectrum must be accepted by
+	 * {@link #accepts(int, ReadOnlySpectrum)}.
+	 */
+	public synchronized void set(int index, ReadOnlySpectrum spectrum) {
+		if (!accepts(index, spectrum)) {
+			throw new IllegalArgumentException("Spectrum cannot be stored in this ChannelMajorStore");
+		}
+
+		ensureMapped(index);
+		FloatBuffer block = blocks[index / BLOCK_SCANS];
+		int within = index % BLOCK_SCANS;
+		if (spectrum instanceof Spectrum) {
+			float[] values = ((Spectrum) spectrum).backingArray();
+			for (int c = 0; c < channels; c++) {
+				block.put(c * BLOCK_SCANS + within, values[c]);
+			}
+		} else {
+			for (int c = 0; c < channels; c++) {
+				block.put(c * BLOCK_SCANS + within, spectrum.get(c));
+			}
+		}
+
+		//publish
+		this.size = Math.max(size, index+1);
+	}
+
+	/**
+	 * Returns a new Spectrum containing the value of the given channel for every
+	 * scan in this store, indexed by scan. Scans which were never stored are 0.
+	 */
+	public Spectrum channel(int channel) {
+		return channel(channel, 0, size);
+	}
+
+	/**
+	 * Returns a new Spectrum containing the value of the given channel for each
+	 * scan in the range start (inclusive) to stop (exclusive).
+	 */
+	public Spectrum channel(int channel, int start, int stop) {
+		int count = this.size;
+		FloatBuffer[] blocks = this.blocks;
+		stop = Math.min(stop, count);
+
+		float[] strip = new float[Math.max(0, stop - start)];
+		int scan = start;
+		while (scan < stop) {
+			int within = scan % BLOCK_SCANS;
+			int length = Math.min(BLOCK_SCANS - within, stop - scan);
+			FloatBuffer block = blocks[scan / BLOCK_SCANS].duplicate();
+			((Buffer) block).position(channel * BLOCK_SCANS + within);
+			block.get(strip, scan - start, length);
+			scan += length;
+		}
+		return new ISpectrum(strip, false);
+	}
+
+	/**
+	 * Returns a new Spectrum containing the sum of the channels from start
+	 * (inclusive) to stop (exclusive) for every scan in this store, indexed by
+	 * scan. This is equivalent to summing the strips for each channel in the
+	 * range.
+	 */
+	public Spectrum channelSum(int start, int stop) {
+		int count = this.size;
+		FloatBuffer[] blocks = this.blocks;
+		float[] sums = new float[count];
+		float[] strip = new float[BLOCK_SCANS];
+
+		for (int b = 0; b * BLOCK_SCANS < count; b++) {
+			int offset = b * BLOCK_SCANS;
+			int length = Math.min(BLOCK_SCANS, count - offset);
+			for (int c = start; c < stop; c++) {
+				FloatBuffer block = blocks[b].duplicate();
+				((Buffer) block).position(c * BLOCK_SCANS);
+				block.get(strip, 0, length);
+				for (int i = 0; i < length; i++) {
+					sums[offset + i] += strip[i];
+				}
+			}
+		}
+		return new ISpectrum(sums, false);
+	}
+
+	private void ensureMapped(int index) {
+		int required = index / BLOCK_SCANS + 1;
+		FloatBuffer[] current = this.blocks;
+		if (required <= current.length) return;
+
+		FloatBuffer[] grown = Arrays.copyOf(current, required);
+		try {
+			for (int b = current.length; b < required; b++) {
+				grown[b] = channel.map(MapMode.READ_WRITE, b * blockBytes, blockBytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+			}
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("Cannot map backend file", e);
+		}
+		this.blocks = grown;
+	}
+
+
+	@Override
+	protected void finalize() {
+		try {
+			raf.close();
+		} catch (IOException e) {
+
+		}
+	}
+
+}
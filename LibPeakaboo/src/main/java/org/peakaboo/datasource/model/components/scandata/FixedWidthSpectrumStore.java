@@ -0,0 +1,200 @@
+package org.peakaboo.datasource.model.components.scandata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.peakaboo.framework.cyclops.spectrum.FloatBufferSpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Stores spectra which all share the same channel count as the rows of an
+ * uncompressed float matrix in a memory-mapped temporary file. Spectra are
+ * returned as {@link FloatBufferSpectrum} views directly over the mapped region,
+ * so retrieving a spectrum requires no decoding and no copying.
+ * <br/><br/>
+ * Writes are serialized, but reads take no locks and may proceed concurrently
+ * from any number of threads.
+ *
+ * @author NAS
+ *
+ */
+public class FixedWidthSpectrumStore {
+
+	//target size of each mapped region, rounded down to a whole number of rows
+	private static final long SEGMENT_TARGET = 64L << 20;
+
+	private final int channels;
+	private final int rowsPerSegment;
+	private final int maxRows;
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	/*
+	 * These are republished by the writer after every modification so that
+	 * readers see the data written to the mapped regions before it.
+	 */
+	private volatile FloatBuffer[] segments;
+	private volatile long[] present;
+	private volatile int size;
+
+	/**
+	 * Creates a new store for spectra of the given channel count
+	 * @param channels the number of channels in every spectrum
+	 * @param budget the maximum number of bytes this store may occupy
+	 * @throws IOException if the backing file could not be created
+	 */
+	public FixedWidthSpectrumStore(int channels, long budget) throws IOException {
+		this.channels = channels;
+		long rowBytes = channels * 4L;
+		this.rowsPerSegment = (int) Math.max(1, SEGMENT_TARGET / rowBytes);
+		this.maxRows = (int) Math.min(Integer.MAX_VALUE, budget / rowBytes);
+
+		File file = File.createTempFile("FixedWidthSpectrumStore [temp - ", "]");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+
+		segments = new FloatBuffer[0];
+		present = new long[0];
+		size = 0;
+	}
+
+
+	/**
+	 * Returns the channel count of the spectra in this store
+	 */
+	public int channels() {
+		return channels;
+	}
+
+	/**
+	 * Returns true if the given spectrum can be stored at the given index
+	 * without exceeding this store's channel count or budget.
+	 */
+	public boolean accepts(int index, ReadOnlySpectrum spectrum) {
+		return spectrum != null && spectrum.size() == channels && index >= 0 && index < maxRows;
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a read-only view of the spectrum at the given index, or null if
+	 * no spectrum has been stored there.
+	 */
+	public ReadOnlySpectrum get(int index) {
+		if (index < 0 || index >= size) return null;
+		long[] bits = this.present;
+		if ((bits[index >>> 6] & (1L << index)) == 0) return null;
+
+		FloatBuffer segment = segments[index / rowsPerSegment];
+		return new FloatBufferSpectrum(segment, (index % rowsPerSegment) * channels, channels);
+	}
+
+	/**
+	 * Stores a copy of the given spectrum at the given index, expanding the
+	 * store with empty entries if needed. The spectrum must be accepted by
+	 * {@link #accepts(int, ReadOnlySpectrum)}.
+	 */
+	public synchronized void set(int index, ReadOnlySpectrum spectrum) {
+		if (!accepts(index, spectrum)) {
+			throw new IllegalArgumentException("Spectrum cannot be stored in this FixedWidthSpectrumStore");
+		}
+
+		ensureMapped(index);
+		FloatBuffer row = segments[index / rowsPerSegment].duplicate();
+		((Buffer) row).position((index % rowsPerSegment) * channels);
+		if (spectrum instanceof Spectrum) {
+			row.put(((Spectrum) spectrum).backingArray(), 0, channels);
+		} else {
+			for (int i = 0; i < channels; i++) {
+				row.put(spectrum.get(i));
+			}
+		}
+
+		long[] bits = this.present;
+		if ((index >>> 6) >= bits.length) {
+			bits = Arrays.copyOf(bits, Math.max((index >>> 6) + 1, bits.length * 2));
+		}
+		bits[index >>> 6] |= 1L << index;
+
+		//publish
+		this.present = bits;
+		this.size = Math.max(size, index+1);
+	}
+
+	/**
+	 * Returns true if a missing scan can be recorded at the given index without
+	 * exceeding this store's budget.
+	 */
+	public boolean acceptsMissing(int index) {
+		return index >= 0 && index < maxRows;
+	}
+
+	/**
+	 * Records that there is no spectrum at the given index, expanding the store
+	 * with empty entries if needed. The index must be accepted by
+	 * {@link #acceptsMissing(int)}.
+	 */
+	public synchronized void setMissing(int index) {
+		if (!acceptsMissing(index)) {
+			throw new IllegalArgumentException("Index cannot be stored in this FixedWidthSpectrumStore");
+		}
+
+		long[] bits = this.present;
+		if ((index >>> 6) < bits.length && (bits[index >>> 6] & (1L << index)) != 0) {
+			bits = bits.clone();
+			bits[index >>> 6] &= ~(1L << index);
+		}
+
+		//publish
+		this.present = bits;
+		this.size = Math.max(size, index+1);
+	}
+
+	/**
+	 * Appends a copy of the given spectrum to the end of this store
+	 */
+	public synchronized void add(ReadOnlySpectrum spectrum) {
+		set(size, spectrum);
+	}
+
+	private void ensureMapped(int index) {
+		int required = index / rowsPerSegment + 1;
+		FloatBuffer[] segs = this.segments;
+		if (required <= segs.length) return;
+
+		FloatBuffer[] grown = Arrays.copyOf(segs, required);
+		long segmentBytes = (long) rowsPerSegment * channels * 4L;
+		try {
+			for (int s = segs.length; s < required; s++) {
+				grown[s] = channel.map(MapMode.READ_WRITE, s * segmentBytes, segmentBytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+			}
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("Cannot map backend file", e);
+		}
+		this.segments = grown;
+	}
+
+
+	@Override
+	protected void finalize() {
+		try {
+			raf.close();
+		} catch (IOException e) {
+
+		}
+	}
+
+}
@@ -3,9 +3,11 @@ package org.peakaboo.datasource.model.components.scandata;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import org.peakaboo.datasource.model.components.scandata.analysis.Analysis;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
 
 
@@ -82,6 +84,19 @@ public interface ScanData extends Iterable<ReadOnlySpectrum>
 	
 	Analysis getAnalysis();
 	
+	
+	/**
+	 * Retrieves the summed values of a range of channels for every scan, if 
+	 * this ScanData keeps a channel-major copy of its data. This avoids 
+	 * retrieving every spectrum just to read a few values from each.
+	 * @param start the first channel (inclusive)
+	 * @param stop the last channel (exclusive)
+	 * @return a Spectrum indexed by scan, or {@link Optional#empty()} if no channel-major copy is available
+	 */
+	default Optional<Spectrum> getChannels(int start, int stop) {
+		return Optional.empty();
+	}
+	
 
 	/**
 	 * Finds the first non-null scan. This is useful in situations where a partial data set is read, containing, for example, scans 10-50
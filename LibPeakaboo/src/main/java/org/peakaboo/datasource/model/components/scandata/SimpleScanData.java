@@ -1,13 +1,16 @@
 package org.peakaboo.datasource.model.components.scandata;
 
+import java.io.IOException;
+import java.util.Optional;
+import java.util.logging.Level;
+
 import org.peakaboo.common.PeakabooConfiguration;
-import org.peakaboo.common.PeakabooConfiguration.MemorySize;
+import org.peakaboo.common.PeakabooLog;
 import org.peakaboo.datasource.model.PeakabooLists;
 import org.peakaboo.datasource.model.components.scandata.analysis.Analysis;
 import org.peakaboo.datasource.model.components.scandata.analysis.DataSourceAnalysis;
-import org.peakaboo.datasource.model.components.scandata.loaderqueue.CompressedLoaderQueue;
 import org.peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
-import org.peakaboo.datasource.model.components.scandata.loaderqueue.SimpleLoaderQueue;
+import org.peakaboo.datasource.model.components.scandata.loaderqueue.PipelinedLoaderQueue;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
@@ -18,6 +21,25 @@ public class SimpleScanData implements ScanData {
 
 	
 	private ScratchList<Spectrum> spectra;
+	
+	/*
+	 * While every spectrum shares the same channel count and the data set fits
+	 * within PeakabooConfiguration.fixedWidthBudget, spectra are kept here
+	 * uncompressed instead of in the spectra list. Once that stops being true
+	 * the contents are migrated to the spectra list and this is cleared.
+	 */
+	private volatile FixedWidthSpectrumStore fixed;
+	private boolean fixedEligible;
+	
+	/*
+	 * Optional channel-major copy of the data, maintained alongside the primary
+	 * storage under the same conditions as the fixed-width store, but within
+	 * PeakabooConfiguration.channelMajorBudget. Dropped rather than migrated 
+	 * once those conditions stop holding.
+	 */
+	private volatile ChannelMajorStore transposed;
+	private boolean transposedEligible;
+	
 	private float maxEnergy;
 	private float minEnergy = 0;
 	private String name;
@@ -27,17 +49,23 @@ public class SimpleScanData implements ScanData {
 		this.name = name;
 		this.spectra = PeakabooLists.create();
 		this.analysis = new DataSourceAnalysis();
+		this.fixedEligible = PeakabooConfiguration.diskstore && PeakabooConfiguration.fixedWidthBudget > 0;
+		this.transposedEligible = PeakabooConfiguration.diskstore && PeakabooConfiguration.channelMajorBudget > 0;
 	}
 		
 
 	@Override
 	public ReadOnlySpectrum get(int index) throws IndexOutOfBoundsException {
+		FixedWidthSpectrumStore store = fixed;
+		if (store != null) {
+			return store.get(index);
+		}
 		return spectra.get(index); //return read-only
 	}
 	
 	public void add(Spectrum spectrum) {
 		analysis.process(spectrum);
-		spectra.add(spectrum);
+		store(-1, spectrum, null);
 	}
 	
 	/**
@@ -53,12 +81,12 @@ public class SimpleScanData implements ScanData {
 	 * @param compressed
 	 */
 	public void add(Compressed<Spectrum> compressed) {
-		spectra.addCompressed(compressed);
+		store(-1, null, compressed);
 	}
 	
 	public void set(int index, Spectrum spectrum) {
 		analysis.process(spectrum);
-		spectra.set(index, spectrum);
+		store(index, spectrum, null);
 	}
 	
 	/**
@@ -75,10 +103,146 @@ public class SimpleScanData implements ScanData {
 	 * @param compressed
 	 */
 	public void set(int index, Compressed<Spectrum> compressed) {
-		spectra.setCompressed(index, compressed);
+		store(index, null, compressed);
 	}
+	
+	/**
+	 * Adds a spectrum which has already been passed to this ScanData's {@link Analysis}
+	 * @param spectrum
+	 */
+	public void addWithoutAnalysis(Spectrum spectrum) {
+		store(-1, spectrum, null);
+	}
+	
+	/**
+	 * Sets a spectrum which has already been passed to this ScanData's {@link Analysis}
+	 * @param index index to set at
+	 * @param spectrum
+	 */
+	public void setWithoutAnalysis(int index, Spectrum spectrum) {
+		store(index, spectrum, null);
+	}
+	
+	/**
+	 * Returns true if spectra added now would be stored compressed with 
+	 * {@link PeakabooConfiguration#spectrumEncoder}, in which case callers can
+	 * save work by compressing them ahead of time and adding the 
+	 * {@link Compressed} form instead.
+	 */
+	public boolean storesCompressed() {
+		return fixed == null && !fixedEligible && transposed == null && !transposedEligible;
+	}
+	
+	/**
+	 * Stores the spectrum at the given index, or appends it if the index is -1,
+	 * choosing between fixed-width and compressed storage and updating the
+	 * channel-major copy. Either the spectrum or its compressed form may be 
+	 * given, and it will only be decompressed if needed.
+	 */
+	private synchronized void store(int index, Spectrum spectrum, Compressed<Spectrum> compressed) {
+		int position = index == -1 ? scanCount() : index;
+		
+		if (spectrum == null && compressed != null && !storesCompressed()) {
+			spectrum = compressed.get();
+		}
+		
+		//the first spectrum decides if the uncompressed stores can be used at all
+		if (spectrum != null) {
+			createStores(spectrum.size());
+		}
+
+		ChannelMajorStore channels = transposed;
+		if (channels != null && spectrum != null) {
+			if (channels.accepts(position, spectrum)) {
+				channels.set(position, spectrum);
+			} else {
+				transposed = null;
+			}
+		}
+		
+		FixedWidthSpectrumStore store = fixed;
+		if (store != null) {
+			if (store.accepts(position, spectrum)) {
+				store.set(position, spectrum);
+				return;
+			} else if (spectrum == null && compressed == null && store.acceptsMissing(position)) {
+				//missing scans are left empty, but still take up their index
+				store.setMissing(position);
+				return;
+			}
+			migrate(store);
+		}
+		
+		if (compressed != null) {
+			if (index == -1) {
+				spectra.addCompressed(compressed);
+			} else {
+				spectra.setCompressed(index, compressed);
+			}
+		} else {
+			if (index == -1) {
+				spectra.add(spectrum);
+			} else {
+				spectra.set(index, spectrum);
+			}
+		}
+	}
+	
+	private void createStores(int channels) {
+		if (fixedEligible) {
+			fixedEligible = false;
+			try {
+				fixed = new FixedWidthSpectrumStore(channels, PeakabooConfiguration.fixedWidthBudget);
+			} catch (IOException e) {
+				PeakabooLog.get().log(Level.WARNING, "Could not allocate fixed-width spectrum store, using compressed store instead", e);
+			}
+		}
+		if (transposedEligible) {
+			transposedEligible = false;
+			try {
+				transposed = new ChannelMajorStore(channels, PeakabooConfiguration.channelMajorBudget);
+			} catch (IOException e) {
+				PeakabooLog.get().log(Level.WARNING, "Could not allocate channel-major spectrum store", e);
+			}
+		}
+	}
+	
+	/**
+	 * Moves the contents of the fixed-width store into the compressed list. This
+	 * happens when a spectrum with a different channel count arrives, or when 
+	 * the data set grows beyond the fixed-width budget.
+	 */
+	private void migrate(FixedWidthSpectrumStore store) {
+		//missing scans become empty entries so that every scan keeps its index
+		while (spectra.size() < store.size()) {
+			spectra.add(null);
+		}
+		for (int i = 0; i < store.size(); i++) {
+			ReadOnlySpectrum spectrum = store.get(i);
+			if (spectrum == null) continue;
+			spectra.set(i, new ISpectrum(spectrum));
+		}
+		fixed = null;
+	}
+	
+	@Override
+	public Optional<Spectrum> getChannels(int start, int stop) {
+		ChannelMajorStore channels = transposed;
+		if (channels == null || channels.size() != scanCount() || start < 0 || stop > channels.channels() || start >= stop) {
+			return Optional.empty();
+		}
+		if (stop - start == 1) {
+			return Optional.of(channels.channel(start));
+		}
+		return Optional.of(channels.channelSum(start, stop));
+	}
+	
 	@Override
 	public int scanCount() {
+		FixedWidthSpectrumStore store = fixed;
+		if (store != null) {
+			return store.size();
+		}
 		return spectra.size();
 	}
 
@@ -112,20 +276,19 @@ public class SimpleScanData implements ScanData {
 	
 	public LoaderQueue createLoaderQueue(int capacity) {
 		/*
-		 * CompressedLoaderQueue will move compression up to before the point the Spectrum
-		 * is stored in the queue. This saves order of 10s of MBs, but slows down the 
-		 * DataSource thread, since it now handles the compression.
+		 * PipelinedLoaderQueue moves analysis and compression off of the DataSource 
+		 * thread and onto a pool of workers, so the queue only needs to be deep 
+		 * enough to keep them busy. Limit it so that queued uncompressed spectra 
+		 * don't take up too much memory.
 		 */
-		if (
-				(PeakabooConfiguration.memorySize == MemorySize.TINY && capacity > 200) || //1.6 - 3.2 MB
-				(PeakabooConfiguration.memorySize == MemorySize.SMALL && capacity > 400) || //3.2 - 6.4 MB
-				(PeakabooConfiguration.memorySize == MemorySize.MEDIUM && capacity > 1000) || //8 - 16 MB
-				(PeakabooConfiguration.memorySize == MemorySize.LARGE && capacity > 20000) //160 - 320 MB
-			) {
-			return new CompressedLoaderQueue(this, analysis, capacity);
-		} else {
-			return new SimpleLoaderQueue(this, capacity);			
+		int limit;
+		switch (PeakabooConfiguration.memorySize) {
+			case TINY: limit = 200; break; //1.6 - 3.2 MB
+			case SMALL: limit = 400; break; //3.2 - 6.4 MB
+			case MEDIUM: limit = 1000; break; //8 - 16 MB
+			default: limit = 20000; //160 - 320 MB
 		}
+		return new PipelinedLoaderQueue(this, analysis, Math.min(capacity, limit));
 	}
 
 
@@ -14,7 +14,8 @@ public interface Analysis {
 	
 	/**
 	 * Accepts a new scan and it's index (position in the data). Calculates any 
-	 * incremental metrics it may wish to do. 
+	 * incremental metrics it may wish to do. Implementations should be safe to
+	 * call from multiple threads at once.
 	 * @param spectrum
 	 */
 	void process(ReadOnlySpectrum spectrum);
@@ -37,6 +38,32 @@ public interface Analysis {
 	 * @return the top signal-per-channel scan
 	 */
 	ReadOnlySpectrum maximumPlot();
+	
+	
+	/**
+	 * Produces a single scan/list containing the variance of the values for each channel
+	 * 
+	 * @return the per-channel variance scan, or null if this Analysis does not
+	 *         calculate it
+	 */
+	default ReadOnlySpectrum variancePlot() {
+		return null;
+	}
+	
+	
+	/**
+	 * Produces a single scan/list containing the mean of the few most intense 
+	 * values for each channel. This is a fixed count of values rather than a
+	 * percentile, so for large data sets it follows the extremes of each channel
+	 * much like {@link #maximumPlot()}, with some of the noise averaged out. How
+	 * many values are considered is up to the implementation.
+	 * 
+	 * @return the top-values-average-per-channel scan, or null if this Analysis
+	 *         does not calculate it
+	 */
+	default ReadOnlySpectrum topAveragePlot() {
+		return null;
+	}
 
 
 	/**
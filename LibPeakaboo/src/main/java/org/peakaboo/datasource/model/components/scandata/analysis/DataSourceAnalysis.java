@@ -1,59 +1,230 @@
 package org.peakaboo.datasource.model.components.scandata.analysis;
 
+import java.util.Arrays;
+
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
+/**
+ * Thread-safe {@link Analysis} which may be fed spectra from any number of
+ * threads at once. Metrics are accumulated in a fixed number of stripes, with
+ * each thread always using the same stripe, and are merged when they are
+ * requested. All metrics are calculated in a single pass over each spectrum.
+ */
 public class DataSourceAnalysis implements Analysis {
 
-	protected int channelCount;
-	protected Spectrum summedSpectrum;
-	protected int summedScanCount;
-	protected Spectrum maximumSpectrum;
-	protected float maxValue;
+	//number of most intense values kept and averaged per channel for topAveragePlot
+	public static final int TOP_COUNT = 10;
+
+	private static final int STRIPE_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+
+	protected volatile int channelCount;
+	private Stripe[] stripes;
+
+	/**
+	 * Partial metrics for the spectra processed by the threads mapped to this
+	 * stripe. Guarded by its own monitor, so threads only contend when they
+	 * share a stripe or when the results are being merged.
+	 */
+	private static class Stripe {
+
+		int count = 0;
+		float maxValue = 0;
+		double[] sum;
+		double[] sumSquares;
+		float[] maximum;
+		//a min-heap of the largest values for each channel, TOP_COUNT entries per channel
+		float[] top;
+
+		Stripe(int channels) {
+			sum = new double[channels];
+			sumSquares = new double[channels];
+			maximum = new float[channels];
+			top = new float[channels * TOP_COUNT];
+		}
+
+		void process(ReadOnlySpectrum spectrum, int channels) {
+			int size = Math.min(channels, spectrum.size());
+			float[] values = spectrum instanceof Spectrum ? ((Spectrum) spectrum).backingArray() : spectrum.backingArrayCopy();
+
+			if (size == 0) {
+				count++;
+				return;
+			}
+
+			float spectrumMax = values[0];
+			boolean filling = count < TOP_COUNT;
+			for (int i = 0; i < size; i++) {
+				float value = values[i];
+				sum[i] += value;
+				sumSquares[i] += (double)value * value;
+				if (value > maximum[i]) maximum[i] = value;
+				if (value > spectrumMax) spectrumMax = value;
+
+				int base = i * TOP_COUNT;
+				if (filling) {
+					heapPush(top, base, count, value);
+				} else if (value > top[base]) {
+					heapReplaceRoot(top, base, TOP_COUNT, value);
+				}
+			}
+			maxValue = Math.max(maxValue, spectrumMax);
+			count++;
+		}
+
+		int topSize() {
+			return Math.min(count, TOP_COUNT);
+		}
+
+	}
+
 
 	public DataSourceAnalysis() {
 		channelCount = -1;
 	}
-	
-	public void init(int channelCount) {
+
+	public synchronized void init(int channelCount) {
+		stripes = new Stripe[STRIPE_COUNT];
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			stripes[i] = new Stripe(channelCount);
+		}
 		this.channelCount = channelCount;
-		summedSpectrum = new ISpectrum(channelCount);
-		summedScanCount = 0;
-		maximumSpectrum = new ISpectrum(channelCount);
-		maxValue = 0;
 	}
 
 	@Override
 	public void process(ReadOnlySpectrum spectrum) {
 		if (spectrum == null) { return; }
-		
+
 		// if this is the first (non-null) spectrum that we're seeing, use it to detect
 		// the channel count and initialize things
 		if (channelCount == -1) {
-			init(spectrum.size());
+			synchronized (this) {
+				if (channelCount == -1) {
+					init(spectrum.size());
+				}
+			}
+		}
+
+		Stripe stripe = stripes[(int)(Thread.currentThread().getId() % STRIPE_COUNT)];
+		synchronized (stripe) {
+			stripe.process(spectrum, channelCount);
 		}
-		
-		SpectrumCalculations.addLists_inplace(summedSpectrum, spectrum);
-		summedScanCount++;
-		SpectrumCalculations.maxLists_inplace(maximumSpectrum, spectrum);
-		maxValue = Math.max(maxValue, spectrum.max());
 	}
 
+
 	@Override
 	public Spectrum maximumPlot() {
-		return new ISpectrum(maximumSpectrum);
+		if (channelCount == -1) { return new ISpectrum(0); }
+		float[] maximum = new float[channelCount];
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (int i = 0; i < channelCount; i++) {
+					maximum[i] = Math.max(maximum[i], stripe.maximum[i]);
+				}
+			}
+		}
+		return new ISpectrum(maximum, false);
 	}
 
 	@Override
 	public float maximumIntensity() {
+		if (channelCount == -1) { return 0; }
+		float maxValue = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				maxValue = Math.max(maxValue, stripe.maxValue);
+			}
+		}
 		return maxValue;
 	}
 
 	@Override
 	public Spectrum averagePlot() {
-		return SpectrumCalculations.divideBy(summedSpectrum, summedScanCount);
+		if (channelCount == -1) { return new ISpectrum(0); }
+		double[] sum = new double[channelCount];
+		int count = merge(sum, null);
+
+		float[] average = new float[channelCount];
+		for (int i = 0; i < channelCount; i++) {
+			average[i] = (float)(sum[i] / count);
+		}
+		return new ISpectrum(average, false);
+	}
+
+	@Override
+	public Spectrum variancePlot() {
+		if (channelCount == -1) { return new ISpectrum(0); }
+		double[] sum = new double[channelCount];
+		double[] sumSquares = new double[channelCount];
+		int count = merge(sum, sumSquares);
+
+		float[] variance = new float[channelCount];
+		for (int i = 0; i < channelCount; i++) {
+			double mean = sum[i] / count;
+			variance[i] = (float) Math.max(0, sumSquares[i] / count - mean * mean);
+		}
+		return new ISpectrum(variance, false);
+	}
+
+	/**
+	 * Returns the mean of the {@link #TOP_COUNT} most intense values for each
+	 * channel, or of every value when fewer than that many spectra have been
+	 * processed. This is not a percentile: the count is the same no matter how
+	 * many spectra there are.
+	 */
+	@Override
+	public Spectrum topAveragePlot() {
+		if (channelCount == -1) { return new ISpectrum(0); }
+
+		//gather the largest values from every stripe, then keep the largest of those
+		float[][] candidates = new float[channelCount][STRIPE_COUNT * TOP_COUNT];
+		int found = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				int size = stripe.topSize();
+				for (int i = 0; i < channelCount; i++) {
+					System.arraycopy(stripe.top, i * TOP_COUNT, candidates[i], found, size);
+				}
+				found += size;
+			}
+		}
+
+		float[] top = new float[channelCount];
+		int keep = Math.min(found, TOP_COUNT);
+		for (int i = 0; i < channelCount; i++) {
+			float[] values = candidates[i];
+			Arrays.sort(values, 0, found);
+			float total = 0;
+			for (int j = found - keep; j < found; j++) {
+				total += values[j];
+			}
+			top[i] = keep == 0 ? 0 : total / keep;
+		}
+		return new ISpectrum(top, false);
+	}
+
+	/**
+	 * Merges the per-channel sums (and optionally sums of squares) from all
+	 * stripes into the given arrays.
+	 * @return the total number of spectra processed
+	 */
+	private int merge(double[] sum, double[] sumSquares) {
+		int count = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				count += stripe.count;
+				for (int i = 0; i < channelCount; i++) {
+					sum[i] += stripe.sum[i];
+				}
+				if (sumSquares != null) {
+					for (int i = 0; i < channelCount; i++) {
+						sumSquares[i] += stripe.sumSquares[i];
+					}
+				}
+			}
+		}
+		return count;
 	}
 
 	@Override
@@ -61,4 +232,35 @@ public class DataSourceAnalysis implements Analysis {
 		return channelCount;
 	}
 
+
+
+
+	/*
+	 * Min-heap helpers for a heap stored at heap[base .. base+size)
+	 */
+
+	private static void heapPush(float[] heap, int base, int size, float value) {
+		int i = size;
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (heap[base + parent] <= value) break;
+			heap[base + i] = heap[base + parent];
+			i = parent;
+		}
+		heap[base + i] = value;
+	}
+
+	private static void heapReplaceRoot(float[] heap, int base, int size, float value) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) break;
+			if (child + 1 < size && heap[base + child + 1] < heap[base + child]) child++;
+			if (heap[base + child] >= value) break;
+			heap[base + i] = heap[base + child];
+			i = child;
+		}
+		heap[base + i] = value;
+	}
+
 }
@@ -0,0 +1,172 @@
+package org.peakaboo.datasource.model.components.scandata.loaderqueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+
+import org.peakaboo.common.PeakabooConfiguration;
+import org.peakaboo.common.PeakabooLog;
+import org.peakaboo.datasource.model.components.scandata.SimpleScanData;
+import org.peakaboo.datasource.model.components.scandata.analysis.Analysis;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.scratch.ScratchEncoder;
+import org.peakaboo.framework.scratch.single.Compressed;
+
+/**
+ * PipelinedLoaderQueue splits loading into stages. The DataSource's own thread
+ * only parses and submits spectra. A pool of worker threads runs the
+ * {@link Analysis} and, when the {@link SimpleScanData} will store spectra
+ * compressed, the compression. A single storage thread then writes the results
+ * to the {@link SimpleScanData} in the order they were submitted, taking as
+ * many finished entries at a time as are available. If a worker fails, the
+ * scan is stored as missing so that the scans after it keep their positions.
+ * @author NAS
+ *
+ */
+public class PipelinedLoaderQueue implements LoaderQueue {
+
+	//entries written to the SimpleScanData at once by the storage thread
+	private static final int BATCH_SIZE = 64;
+
+	private final SpectrumIndex FINISHED = new SpectrumIndex();
+
+	class SpectrumIndex {
+		public Spectrum spectrum;
+		public Compressed<Spectrum> compressed;
+		public int index;
+		//completes once a worker has processed this entry
+		public Future<?> processed;
+	}
+
+	//entries are queued in submission order, which preserves ordering regardless of which worker finishes first
+	private LinkedBlockingQueue<SpectrumIndex> queue;
+	private ExecutorService workers;
+	private Thread thread;
+	private SimpleScanData data;
+	private ScratchEncoder<Spectrum> encoder;
+	private Analysis analysis;
+
+	public PipelinedLoaderQueue(SimpleScanData data, Analysis analysis) {
+		this(data, analysis, 1000);
+	}
+	public PipelinedLoaderQueue(SimpleScanData data, Analysis analysis, int depth) {
+		this(data, analysis, depth, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+	public PipelinedLoaderQueue(SimpleScanData data, Analysis analysis, int depth, int threads) {
+		this.data = data;
+		this.analysis = analysis;
+		this.encoder = PeakabooConfiguration.spectrumEncoder;
+
+		//keep enough entries in flight that every worker stays busy
+		queue = new LinkedBlockingQueue<>(Math.max(depth, threads * 2));
+		workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread worker = new Thread(runnable);
+			worker.setName("PipelinedLoaderQueue Worker");
+			worker.setDaemon(true);
+			return worker;
+		});
+
+		thread = new Thread(() -> {
+			List<SpectrumIndex> batch = new ArrayList<>(BATCH_SIZE);
+			while(true) {
+				try {
+					boolean finished = takeBatch(batch);
+					store(batch);
+					batch.clear();
+					if (finished) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		});
+		thread.setName("PipelinedLoaderQueue");
+		thread.start();
+	}
+
+	/**
+	 * Waits for the next entry, then takes any following entries which have
+	 * already been completed, up to {@link #BATCH_SIZE}.
+	 * @return true if the end of the queue was reached
+	 */
+	private boolean takeBatch(List<SpectrumIndex> batch) throws InterruptedException {
+		SpectrumIndex next = queue.take();
+		while (true) {
+			if (next == FINISHED) {
+				return true;
+			}
+			try {
+				next.processed.get();
+			} catch (ExecutionException e) {
+				//store the scan as missing rather than dropping it, so that later scans don't move
+				PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entry, storing it as missing", e);
+				next.spectrum = null;
+				next.compressed = null;
+			}
+			batch.add(next);
+
+			next = queue.peek();
+			if (next == null || (next != FINISHED && !next.processed.isDone()) || batch.size() >= BATCH_SIZE) {
+				return false;
+			}
+			queue.poll();
+		}
+	}
+
+	private void store(List<SpectrumIndex> batch) {
+		//hold the SimpleScanData's monitor once for the whole batch rather than once per entry
+		synchronized (data) {
+			for (SpectrumIndex struct : batch) {
+				if (struct.compressed != null) {
+					if (struct.index == -1) {
+						data.add(struct.compressed);
+					} else {
+						data.set(struct.index, struct.compressed);
+					}
+				} else {
+					if (struct.index == -1) {
+						data.addWithoutAnalysis(struct.spectrum);
+					} else {
+						data.setWithoutAnalysis(struct.index, struct.spectrum);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void submit(Spectrum s) throws InterruptedException {
+		submit(-1, s);
+	}
+
+	@Override
+	public void submit(int index, Spectrum s) throws InterruptedException {
+		SpectrumIndex struct = new SpectrumIndex();
+		struct.index = index;
+		struct.processed = workers.submit(() -> {
+			analysis.process(s);
+			if (data.storesCompressed()) {
+				struct.compressed = Compressed.create(s, encoder);
+			} else {
+				struct.spectrum = s;
+			}
+		});
+		queue.put(struct);
+	}
+
+	@Override
+	public void finish() throws InterruptedException {
+		queue.put(FINISHED);
+		thread.join();
+		workers.shutdown();
+	}
+
+}
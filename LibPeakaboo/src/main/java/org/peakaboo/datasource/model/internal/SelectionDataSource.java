@@ -1,10 +1,9 @@
 package org.peakaboo.datasource.model.internal;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.peakaboo.datasource.model.DataSource;
 import org.peakaboo.datasource.model.components.datasize.DataSize;
@@ -18,6 +17,7 @@ import org.peakaboo.datasource.model.components.scandata.analysis.DataSourceAnal
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.IntPair;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.util.Mutable;
@@ -31,17 +31,19 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 
 	private DataSource backer;
 	private Coord<Integer> backingDimensions;
-	private List<Integer> backingIndexes, mapIndexes;
+	private int[] backingIndexes, mapIndexes;
+	//backing indexes are usually in ascending order, which lets us binary search them
+	private boolean backingSorted;
 	private GridPerspective<Integer> backerGrid;
 	private DataSourceAnalysis analysis;
 	
 	private Coord<Integer> derivedDimensions;
 	private Coord<Integer> offset;
 	private GridPerspective<Integer> derivedGrid;
-	// 1d list the size of the derived dimensions, each entry stores the offset into
+	// 1d array the size of the derived dimensions, each entry stores the offset into
 	// backingIndexes this entry maps to, or -1 if this entry has no backing value
 	// (and is thus invalid)
-	private List<Integer> derivedIndexLookup;
+	private int[] derivedIndexLookup;
 	private Mutable<Boolean> rectangular = new Mutable<>(null);
 	
 	/**
@@ -50,10 +52,10 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 	 * @param dimensions the dimensions of the data in the source datasource
 	 * @param selectedIndexes The points in the original datasource to select
 	 */
-	public SelectionDataSource(DataSource source, Coord<Integer> dimensions, List<Integer> selectedIndexes) {
+	public SelectionDataSource(DataSource source, Coord<Integer> dimensions, IndexSet selectedIndexes) {
 		this.backer = source;
-		this.mapIndexes = new ArrayList<>(selectedIndexes);
-		this.mapIndexes.sort(Integer::compare);
+		//IndexSets are always iterated in ascending order
+		this.mapIndexes = selectedIndexes.toArray();
 		this.backingDimensions = dimensions;
 		
 		// if the backer is another SubsetDataSource controller, we need to translate
@@ -61,9 +63,19 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 		// be counded) to subset indexes
 		if (backer instanceof SelectionDataSource) {
 			SelectionDataSource selbacker = (SelectionDataSource) backer;
-			this.backingIndexes = this.mapIndexes.stream().map(i -> selbacker.getBackingIndexForDerivedPoint(i)).collect(Collectors.toList());
+			this.backingIndexes = new int[this.mapIndexes.length];
+			for (int i = 0; i < this.mapIndexes.length; i++) {
+				this.backingIndexes[i] = selbacker.getBackingIndexForDerivedPoint(this.mapIndexes[i]);
+			}
 		} else {
-			this.backingIndexes = new ArrayList<>(mapIndexes);
+			this.backingIndexes = this.mapIndexes;
+		}
+		this.backingSorted = true;
+		for (int i = 1; i < this.backingIndexes.length; i++) {
+			if (this.backingIndexes[i] <= this.backingIndexes[i-1]) {
+				this.backingSorted = false;
+				break;
+			}
 		}
 		
 		//we don't reanalyze in the constructor for performance reasons
@@ -93,14 +105,12 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 		offset = new Coord<>(minx, miny);
 		this.derivedGrid = new GridPerspective<>(this.derivedDimensions.x, this.derivedDimensions.y, 0);
 		
-		derivedIndexLookup = new ArrayList<>();
-		for (int i = 0; i < derivedGrid.size(); i++) {
-			derivedIndexLookup.add(-1);
-		}
+		derivedIndexLookup = new int[derivedGrid.size()];
+		Arrays.fill(derivedIndexLookup, -1);
 		for (int i = 0; i < this.scanCount(); i++) {
 			Coord<Integer> derivedCoord = getDataCoordinatesAtIndex(i);
 			int derivedIndex = derivedGrid.getIndexFromXY(derivedCoord);
-			derivedIndexLookup.set(derivedIndex, i);
+			derivedIndexLookup[derivedIndex] = i;
 		}
 		
 	}
@@ -113,7 +123,7 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 
 	@Override
 	public int scanCount() {
-		return backingIndexes.size();
+		return backingIndexes.length;
 	}
 
 	@Override
@@ -185,7 +195,7 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 	 */
 	@Override
 	public int getBackingIndex(int index) {
-		return backingIndexes.get(index);
+		return backingIndexes[index];
 	}
 
 	/**
@@ -194,7 +204,23 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 	 */
 	@Override
 	public int getUpdatedIndex(int originalIndex) {
-		return backingIndexes.indexOf(originalIndex);
+		if (backingSorted) {
+			int index = Arrays.binarySearch(backingIndexes, originalIndex);
+			return index < 0 ? -1 : index;
+		}
+		for (int i = 0; i < backingIndexes.length; i++) {
+			if (backingIndexes[i] == originalIndex) { return i; }
+		}
+		return -1;
+	}
+	
+	@Override
+	public IndexSet getBackingIndexes() {
+		IndexSet indexes = new IndexSet();
+		for (int index : backingIndexes) {
+			if (index >= 0) { indexes.add(index); }
+		}
+		return indexes;
 	}
 
 	@Override
@@ -271,7 +297,7 @@ public class SelectionDataSource implements SubsetDataSource, ScanData, DataSize
 	 * index into the backingIndexes array
 	 */
 	private int getBackingIndexForDerivedPoint(int derivedIndex) {
-		return derivedIndexLookup.get(derivedIndex);
+		return derivedIndexLookup[derivedIndex];
 	}
 	
 	
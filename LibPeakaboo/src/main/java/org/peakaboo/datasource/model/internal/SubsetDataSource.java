@@ -1,6 +1,7 @@
 package org.peakaboo.datasource.model.internal;
 
 import org.peakaboo.datasource.model.DataSource;
+import org.peakaboo.framework.cyclops.IndexSet;
 
 
 /**
@@ -22,6 +23,11 @@ public interface SubsetDataSource extends DataSource {
 	 * @return updated index, or -1 if the index does not appear in the subset data source
 	 */
 	int getUpdatedIndex(int originalIndex);
+	
+	/**
+	 * Returns the indexes of all points in the original data source which appear in the subset data source.
+	 */
+	IndexSet getBackingIndexes();
 
 	/**
 	 * Part of the initialization of a SubsetDataSource is reanalyzing the
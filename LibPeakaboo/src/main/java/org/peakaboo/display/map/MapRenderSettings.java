@@ -1,11 +1,9 @@
 package org.peakaboo.display.map;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.peakaboo.calibration.CalibrationProfile;
 import org.peakaboo.display.map.modes.MapModes;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.SISize;
 
 public class MapRenderSettings {
@@ -38,7 +36,7 @@ public class MapRenderSettings {
 	public int spectrumHeight = 15;
 	public String spectrumTitle = "";
 		
-	public List<Integer> selectedPoints = new ArrayList<>();
+	public IndexSet selectedPoints = new IndexSet();
 	
 	public CalibrationProfile calibrationProfile = new CalibrationProfile();
 
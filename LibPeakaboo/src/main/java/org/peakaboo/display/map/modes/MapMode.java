@@ -6,6 +6,7 @@ import java.util.List;
 import org.peakaboo.display.map.MapRenderData;
 import org.peakaboo.display.map.MapRenderSettings;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.Pair;
 import org.peakaboo.framework.cyclops.visualization.Surface;
 import org.peakaboo.framework.cyclops.visualization.drawing.DrawingRequest;
@@ -85,7 +86,7 @@ public abstract class MapMode {
 		return new TitleAxisPainter(TitleAxisPainter.SCALE_TEXT, null, null, null, title);
 	}
 	
-	protected SelectionMaskPainter getSelectionPainter(PaletteColour colour, List<Integer> points, int width, int height) {
+	protected SelectionMaskPainter getSelectionPainter(PaletteColour colour, IndexSet points, int width, int height) {
 		SelectionMaskPainter selectionPainter = selectionPainterRef.get();
 		if (selectionPainter == null) {
 			selectionPainter = new SelectionMaskPainter(colour, points, width, height);
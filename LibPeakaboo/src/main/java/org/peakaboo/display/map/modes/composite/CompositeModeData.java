@@ -1,9 +1,8 @@
 package org.peakaboo.display.map.modes.composite;
 
-import java.util.List;
-
 import org.peakaboo.display.map.modes.MapModeData;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.SigDigits;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
@@ -13,14 +12,14 @@ public class CompositeModeData implements MapModeData {
 
 	private Coord<Integer> size;
 	private Spectrum data;
-	private List<Integer> invalidPoints;
+	private IndexSet invalidPoints;
 	private Spectrum invalidMask;
 	
-	public CompositeModeData(Spectrum data, Coord<Integer> size, List<Integer> invalidPoints) {
+	public CompositeModeData(Spectrum data, Coord<Integer> size, IndexSet invalidPoints) {
 		this.data = data;
 		this.size = size;	
 		this.invalidPoints = invalidPoints;
-		//build invalid point mask from list of invalid points
+		//build invalid point mask from the set of invalid points
 		invalidMask = Spectrum.fromPoints(invalidPoints, data.size());
 	}
 	
@@ -102,9 +102,7 @@ public class TernaryMapMode extends MapMode {
 		
 		//blackout painter to cover the area that is invalid
 		Spectrum blackoutMask = new ISpectrum(ternaryData.data.size(), 0);
-		for (int i : ternaryData.unselectables) {
-			blackoutMask.set(i, 1);
-		}
+		ternaryData.unselectables.forEachIndex(i -> blackoutMask.set(i, 1));
 		AbstractPalette blackoutPalette = new SaturationPalette(new PaletteColour(255, 127, 127, 127), new PaletteColour(0, 0, 0, 0));
 		if (blackoutMapPainter == null) {
 			blackoutMapPainter = MapTechniqueFactory.getTechnique(blackoutPalette, blackoutMask, spectrumSteps); 
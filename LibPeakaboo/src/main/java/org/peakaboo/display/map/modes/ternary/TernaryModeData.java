@@ -1,9 +1,8 @@
 package org.peakaboo.display.map.modes.ternary;
 
-import java.util.List;
-
 import org.peakaboo.display.map.modes.MapModeData;
 import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.SigDigits;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
@@ -12,7 +11,7 @@ public class TernaryModeData implements MapModeData {
 	public Spectrum data;
 	public String xCornerTitle, yCornerTitle, oCornerTitle;
 	public float xMaxCounts, yMaxCounts;
-	public List<Integer> unselectables;
+	public IndexSet unselectables;
 	private Coord<Integer> size;
 	
 	
@@ -104,6 +104,17 @@ public abstract class AbstractBackgroundFilter extends AbstractFilter {
 		return SpectrumCalculations.subtractLists(data, background);
 	}
 	
+	@Override
+	protected final boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		ReadOnlySpectrum background = getBackground(data, dataset);
+		SpectrumCalculations.subtractLists_target(data, background, target);
+		//match subtractLists, which leaves any channels past the end of the background at 0
+		for (int i = background.size(); i < data.size(); i++) {
+			target.set(i, 0f);
+		}
+		return true;
+	}
+	
 	@Override
 	public boolean isPreviewOnly() {
 		return preview.getValue();
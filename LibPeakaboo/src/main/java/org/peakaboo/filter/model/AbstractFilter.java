@@ -75,6 +75,18 @@ public abstract class AbstractFilter implements Serializable, JavaFilterPlugin {
 	 * @param data the Spectrum to filter
 	 */
 	protected abstract ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data, DataSet dataset);
+	
+	/**
+	 * Filter the given {@link Spectrum}, writing the result into target. Filters
+	 * which can do this without allocating should override this method.
+	 * @param data the Spectrum to filter
+	 * @param target the Spectrum to write the result into, the same size as data
+	 * @return true if the result was written to target, false to have 
+	 * {@link #filterApplyTo(ReadOnlySpectrum, DataSet)} used instead
+	 */
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		return false;
+	}
 		
 	
 
@@ -94,6 +106,22 @@ public abstract class AbstractFilter implements Serializable, JavaFilterPlugin {
 		
 	}
 
+	@Override
+	public boolean filter(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		
+		try{
+			return filterApplyTo(data, target, dataset);
+		}
+		catch(Throwable e)
+		{
+			PeakabooLog.get().log(Level.SEVERE, "Error applying filter " + this.getClass().getSimpleName(), e);
+			//leave the data unchanged, as filter(data, dataset) does
+			target.copy(data);
+			return true;
+		}
+		
+	}
+
 	public String toString() {
 		return this.getFilterName();
 	}
@@ -7,6 +7,7 @@ import org.peakaboo.dataset.EmptyDataSet;
 import org.peakaboo.framework.autodialog.model.Group;
 import org.peakaboo.framework.autodialog.model.Value;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
 public interface Filter {
 
@@ -97,6 +98,22 @@ public interface Filter {
 	 */
 	ReadOnlySpectrum filter(ReadOnlySpectrum data, DataSet dataset);
 	
+	/**
+	 * Applies the filter to the given spectrum, writing the result into the
+	 * given target rather than allocating a new spectrum. The target is the same
+	 * size as the data, and is never the same object.
+	 * 
+	 * @param data    the data to process
+	 * @param target  the spectrum to write the result to
+	 * @param dataset the DataSet to which this spectrum belongs
+	 * @return true if the result was written to the target, false if this filter
+	 *         does not support this, and {@link #filter(ReadOnlySpectrum, DataSet)}
+	 *         should be used instead
+	 */
+	default boolean filter(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		return false;
+	}
+	
 	/**
 	 * Applies the filter to the given spectrum, supplying an empty {@link DataSet}
 	 * @param data the data to process
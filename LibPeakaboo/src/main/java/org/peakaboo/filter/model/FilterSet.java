@@ -1,6 +1,9 @@
 package org.peakaboo.filter.model;
 
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -10,6 +13,7 @@ import java.util.logging.Level;
 
 import org.peakaboo.common.PeakabooLog;
 import org.peakaboo.dataset.DataSet;
+import org.peakaboo.framework.bolt.plugin.core.BoltPlugin;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
@@ -27,6 +31,8 @@ import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 public class FilterSet implements Iterable<Filter> {
 
 	private List<Filter> filters;
+	//two scratch buffers per thread for applyFiltersReusing
+	private final ThreadLocal<Spectrum[]> buffers = ThreadLocal.withInitial(() -> new Spectrum[2]);
 
 
 	public FilterSet() {
@@ -126,6 +132,65 @@ public class FilterSet implements Iterable<Filter> {
 		return data;
 	}
 	
+	/**
+	 * Applies the filters like {@link #applyFiltersUnsynchronized(ReadOnlySpectrum, DataSet)},
+	 * but rather than allocating a new spectrum for each filter, passes the data back and
+	 * forth between two scratch buffers belonging to the current thread. Filters which
+	 * cannot write into a buffer are applied as usual. 
+	 * <br/><br/>
+	 * The returned spectrum may be one of this thread's buffers, and is only valid until 
+	 * this thread next calls this method on this FilterSet. The given data is not modified.
+	 */
+	public ReadOnlySpectrum applyFiltersReusing(ReadOnlySpectrum data, DataSet dataset) {
+		
+		Spectrum[] scratch = buffers.get();
+		//the buffer which data is in, or may share values with, -1 for neither
+		int current = -1;
+		
+		for (Filter f : filters) {
+			if (f == null || !f.isEnabled() || f.isPreviewOnly()) continue;
+			
+			int next = current == 0 ? 1 : 0;
+			Spectrum target = scratch[next];
+			if (target == null || target.size() != data.size()) {
+				target = new ISpectrum(data.size());
+				scratch[next] = target;
+			}
+			
+			if (f.filter(data, target, dataset)) {
+				data = target;
+				current = next;
+			} else {
+				//the result of a filter may still be backed by its input
+				data = f.filter(data, dataset);
+			}
+		}
+		
+		//Replace Inf/NaN with 0, without a copy if the data is already in our buffer
+		if (current != -1 && data == scratch[current]) {
+			correctNonFiniteInPlace(scratch[current]);
+		} else {
+			data = correctNonFinite(data);
+		}
+		
+		return data;
+	}
+	
+	private void correctNonFiniteInPlace(Spectrum data) {
+		float[] values = data.backingArray();
+		boolean corrected = false;
+		for (int i = 0; i < data.size(); i++) {
+			float v = values[i];
+			if (Float.isInfinite(v) || Float.isNaN(v)) {
+				values[i] = 0;
+				corrected = true;
+			}
+		}
+		if (corrected) {
+			PeakabooLog.get().log(Level.WARNING, "Filtered data contained NaN or Infinity");
+		}
+	}
+	
 	//Scan the Spectrum for Infinity and NaN values, and replace them with 0 if found
 	private ReadOnlySpectrum correctNonFinite(ReadOnlySpectrum data) {
 		//Scan the results for Infinity and NaN values, and replace them with 0 if found
@@ -147,6 +212,57 @@ public class FilterSet implements Iterable<Filter> {
 		return data;
 	}
 
+	/**
+	 * Returns the scans of the given {@link DataSet} with these filters applied.
+	 * Filtered scans are kept in the {@link FilteredSpectrumCache} under this
+	 * FilterSet's current {@link #fingerprint()}, so that any later use of the
+	 * same filters on the same data can reuse them.
+	 */
+	public FilteredScans filtered(DataSet dataset) {
+		FilteredSpectrumCache.Generation cache = null;
+		//with no filters, reading the cache is no cheaper than reading the data
+		if (!getAppliedFilters().isEmpty()) {
+			cache = FilteredSpectrumCache.system().generation(dataset, fingerprint());
+		}
+		return new FilteredScans(this, dataset, cache);
+	}
+	
+	/**
+	 * Returns a stable fingerprint of the filters which will actually be
+	 * applied to data, and their settings. Two FilterSets with the same
+	 * fingerprint will produce the same output for the same input.
+	 */
+	public synchronized String fingerprint() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (Filter filter : getAppliedFilters()) {
+				String id = filter instanceof BoltPlugin ? ((BoltPlugin) filter).pluginUUID() : filter.getClass().getName();
+				digest.update(id.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				digest.update(filter.getParameterGroup().serialize().toString().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			//every Java platform is required to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private synchronized List<Filter> getAppliedFilters() {
+		List<Filter> applied = new ArrayList<>();
+		for (Filter f : filters) {
+			if (f != null && f.isEnabled() && !f.isPreviewOnly()) {
+				applied.add(f);
+			}
+		}
+		return applied;
+	}
+	
 	public Iterator<Filter> iterator() {
 		return filters.iterator();
 	}
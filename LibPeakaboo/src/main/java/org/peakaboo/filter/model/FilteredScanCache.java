@@ -0,0 +1,129 @@
+package org.peakaboo.filter.model;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.peakaboo.common.PeakabooConfiguration;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.scratch.list.ScratchList;
+import org.peakaboo.framework.scratch.list.ScratchLists;
+import org.peakaboo.framework.scratch.single.Compressed;
+
+/**
+ * Keeps filtered spectra for the scans of one {@link DataSet} in a Scratch
+ * store, so that they can be read back rather than being filtered again. All
+ * spectra in a FilteredScanCache must have been filtered by the same filters
+ * with the same settings.
+ * <br/><br/>
+ * Spectra may be read and stored from any number of threads at once. Once the
+ * cache has been cleared, nothing more is read from or stored in it.
+ *
+ * @author NAS
+ *
+ */
+public class FilteredScanCache {
+	
+	private final ScratchList<Spectrum> spectra;
+	private final AtomicIntegerArray stored;
+	//readers and writers share the lock, clearing takes it exclusively
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile boolean cleared = false;
+	
+	
+	/**
+	 * Creates a cache for a {@link DataSet} with the given number of scans.
+	 * Spectra are kept in a memory mapped list, which can be written at any
+	 * index without filling the scans before it first. The {@link #isStored(int)}
+	 * flags keep track of which scans have been written.
+	 * @throws IOException if the backing file could not be created
+	 */
+	FilteredScanCache(int size) throws IOException {
+		this.stored = new AtomicIntegerArray(size);
+		this.spectra = ScratchLists.mappedBacked(PeakabooConfiguration.spectrumEncoder);
+	}
+	
+	/**
+	 * Returns the filtered spectrum for the given scan index, or null if it has
+	 * not been stored.
+	 */
+	ReadOnlySpectrum get(int index) {
+		if (!isStored(index)) {
+			return null;
+		}
+		lock.readLock().lock();
+		try {
+			if (cleared) return null;
+			return spectra.get(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns true if a filtered spectrum has been stored for the given scan
+	 * index and the cache has not been cleared
+	 */
+	boolean isStored(int index) {
+		return !cleared && index >= 0 && index < stored.length() && stored.get(index) != 0;
+	}
+	
+	/**
+	 * Returns true if the cache can still store a filtered spectrum for the
+	 * given scan index
+	 */
+	boolean accepts(int index) {
+		return !cleared && index >= 0 && index < stored.length() && stored.get(index) == 0;
+	}
+	
+	/**
+	 * Stores an encoded filtered spectrum for the given scan index.
+	 * @return false if the cache was cleared first
+	 */
+	boolean store(int index, Compressed<Spectrum> compressed) {
+		lock.readLock().lock();
+		try {
+			if (cleared) return false;
+			spectra.setCompressed(index, compressed);
+			stored.set(index, 1);
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Encodes a filtered spectrum for storage. This can be done before any locks
+	 * are taken, so that workers only contend on the write itself.
+	 */
+	static Compressed<Spectrum> compress(ReadOnlySpectrum filtered) {
+		Spectrum spectrum = filtered instanceof ISpectrum ? (ISpectrum) filtered : new ISpectrum(filtered);
+		return Compressed.create(spectrum, PeakabooConfiguration.spectrumEncoder);
+	}
+	
+	/**
+	 * Discards all stored spectra, waiting for any reads or writes in progress,
+	 * and deletes the backing file.
+	 * @return false if the cache had already been cleared
+	 */
+	boolean clear() {
+		lock.writeLock().lock();
+		try {
+			if (cleared) return false;
+			cleared = true;
+			spectra.clear();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	boolean isCleared() {
+		return cleared;
+	}
+
+}
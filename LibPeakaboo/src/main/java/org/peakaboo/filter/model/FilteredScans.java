@@ -0,0 +1,73 @@
+package org.peakaboo.filter.model;
+
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+
+/**
+ * Provides the scans of a {@link DataSet} with the filters of a
+ * {@link FilterSet} applied. Scans which have already been filtered with the
+ * same filter settings, by this or any other FilteredScans, are read back from
+ * the {@link FilteredSpectrumCache} rather than being filtered again. Create
+ * one with {@link FilterSet#filtered(DataSet)}.
+ * <br/><br/>
+ * The cache key is worked out from the filter settings when this object is
+ * created. If the filters are changed afterwards, a new FilteredScans should
+ * be created.
+ *
+ * @author NAS
+ *
+ */
+public class FilteredScans {
+	
+	private final FilterSet filters;
+	private final DataSet dataset;
+	private final FilteredSpectrumCache.Generation cache;
+	
+	FilteredScans(FilterSet filters, DataSet dataset, FilteredSpectrumCache.Generation cache) {
+		this.filters = filters;
+		this.dataset = dataset;
+		this.cache = cache;
+	}
+	
+	/**
+	 * Returns the filtered scan at the given index, or null if there is no scan
+	 * at that index. This method may be called from any number of threads, but
+	 * the returned spectrum may be reused by the next call from the same thread,
+	 * and should be copied if it needs to be kept.
+	 */
+	public ReadOnlySpectrum get(int index) {
+		if (cache != null) {
+			ReadOnlySpectrum cached = cache.get(index);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		
+		ReadOnlySpectrum data = dataset.getScanData().get(index);
+		if (data == null) {
+			return null;
+		}
+		data = filters.applyFiltersReusing(data, dataset);
+		if (cache != null) {
+			cache.put(index, data);
+		}
+		return data;
+	}
+	
+	/**
+	 * Discards the spectra this FilteredScans has stored, along with any stored
+	 * for the same scans and filters by others. This is for runs which were
+	 * stopped part way through, so that an incomplete set of filtered spectra
+	 * doesn't hold on to the cache's budget.
+	 */
+	public void discard() {
+		if (cache != null) {
+			FilteredSpectrumCache.system().discard(cache);
+		}
+	}
+	
+	public DataSet getDataSet() {
+		return dataset;
+	}
+
+}
@@ -0,0 +1,184 @@
+package org.peakaboo.filter.model;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.peakaboo.common.PeakabooConfiguration;
+import org.peakaboo.common.PeakabooLog;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.scratch.ScratchException;
+import org.peakaboo.framework.scratch.single.Compressed;
+
+/**
+ * Stores filtered spectra in the Scratch store so that anything applying the
+ * same filters to the same scans can reuse them rather than filtering again.
+ * Spectra are keyed by the {@link DataSet}, the scan index, and the
+ * {@link FilterSet#fingerprint()} of the filters which produced them, so a
+ * change to any filter setting simply results in a different key.
+ * <br/><br/>
+ * The spectra for each DataSet and fingerprint are stored together in a
+ * {@link FilteredScanCache}, and the disk space used by all of them is kept
+ * under {@link PeakabooConfiguration#filteredSpectrumBudget} by discarding
+ * whole groups, least recently used first.
+ *
+ * @author NAS
+ *
+ */
+public class FilteredSpectrumCache {
+	
+	private static final FilteredSpectrumCache SYSTEM = new FilteredSpectrumCache();
+	
+	public static FilteredSpectrumCache system() {
+		return SYSTEM;
+	}
+	
+	//in access order, so that the first entry is the least recently used
+	private final Map<String, Generation> generations = new LinkedHashMap<>(16, 0.75f, true);
+	private final AtomicLong used = new AtomicLong();
+	
+	
+	/**
+	 * Returns the store for spectra from the given {@link DataSet} filtered by
+	 * filters with the given fingerprint, or null if filtered spectra should not
+	 * be kept.
+	 */
+	synchronized Generation generation(DataSet dataset, String fingerprint) {
+		if (!PeakabooConfiguration.diskstore || PeakabooConfiguration.filteredSpectrumBudget <= 0) {
+			return null;
+		}
+		
+		//drop anything belonging to DataSets which are gone
+		Iterator<Generation> iter = generations.values().iterator();
+		while (iter.hasNext()) {
+			Generation generation = iter.next();
+			if (generation.dataset.get() == null) {
+				iter.remove();
+				evict(generation);
+			}
+		}
+		
+		String key = System.identityHashCode(dataset) + ":" + fingerprint;
+		Generation generation = generations.get(key);
+		if (generation != null && generation.dataset.get() == dataset) {
+			return generation;
+		}
+		if (generation != null) {
+			evict(generation);
+		}
+		
+		try {
+			generation = new Generation(dataset, dataset.getScanData().scanCount());
+		} catch (IOException | ScratchException e) {
+			PeakabooLog.get().log(Level.WARNING, "Could not create filtered spectrum cache", e);
+			return null;
+		}
+		generations.put(key, generation);
+		return generation;
+	}
+	
+	/**
+	 * Discards all cached spectra
+	 */
+	public synchronized void clear() {
+		for (Generation generation : generations.values()) {
+			evict(generation);
+		}
+		generations.clear();
+	}
+	
+	/**
+	 * Discards the cached spectra for the given {@link DataSet}, under every
+	 * filter fingerprint. Whatever owns the DataSet should call this when it is
+	 * done with it, rather than waiting for it to be collected.
+	 */
+	public synchronized void discard(DataSet dataset) {
+		Iterator<Generation> iter = generations.values().iterator();
+		while (iter.hasNext()) {
+			Generation generation = iter.next();
+			DataSet owner = generation.dataset.get();
+			if (owner == null || owner == dataset) {
+				iter.remove();
+				evict(generation);
+			}
+		}
+	}
+	
+	/*
+	 * Discards a single group of cached spectra
+	 */
+	synchronized void discard(Generation generation) {
+		generations.values().remove(generation);
+		evict(generation);
+	}
+	
+	/*
+	 * Makes room for the given number of bytes, discarding the least recently
+	 * used groups other than the one being written to. Returns false if there
+	 * is not enough room even then.
+	 */
+	private synchronized boolean reserve(Generation requester, long bytes) {
+		long budget = PeakabooConfiguration.filteredSpectrumBudget;
+		Iterator<Generation> iter = generations.values().iterator();
+		while (used.get() + bytes > budget && iter.hasNext()) {
+			Generation generation = iter.next();
+			if (generation == requester) continue;
+			iter.remove();
+			evict(generation);
+		}
+		if (used.get() + bytes > budget) {
+			return false;
+		}
+		used.addAndGet(bytes);
+		return true;
+	}
+	
+	private void evict(Generation generation) {
+		if (generation.clear()) {
+			used.addAndGet(-generation.bytes);
+		}
+	}
+	
+	
+	/**
+	 * The filtered spectra for one {@link DataSet} and filter fingerprint, kept
+	 * within the budget of the cache that created it.
+	 */
+	class Generation extends FilteredScanCache {
+		
+		private final WeakReference<DataSet> dataset;
+		//only modified while holding the cache's monitor
+		private long bytes = 0;
+		
+		private Generation(DataSet dataset, int size) throws IOException {
+			super(size);
+			this.dataset = new WeakReference<>(dataset);
+		}
+		
+		/**
+		 * Stores the filtered spectrum for the given scan index if there is room
+		 * for it in the budget.
+		 */
+		void put(int index, ReadOnlySpectrum filtered) {
+			if (!accepts(index)) {
+				return;
+			}
+			Compressed<Spectrum> compressed = compress(filtered);
+			long size = compressed.getBytes().length;
+			
+			synchronized (FilteredSpectrumCache.this) {
+				if (isCleared() || !reserve(this, size)) return;
+				bytes += size;
+			}
+			store(index, compressed);
+		}
+	
+	}
+
+}
@@ -7,6 +7,7 @@ import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.RealStyle;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
 public class DatasetNormalizationFilter extends AbstractFilter {
@@ -73,5 +74,18 @@ public class DatasetNormalizationFilter extends AbstractFilter {
 		return SpectrumCalculations.divideBy(data, ratio);
 		
 	}
+	
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		float max = dataset.getAnalysis().maximumIntensity();
+		float height = pHeight.getValue();
+		float ratio = max / height;
+		if (ratio == 0f) {
+			target.zero();
+		} else {
+			SpectrumCalculations.divideBy_target(data, target, ratio);
+		}
+		return true;
+	}
 
 }
@@ -55,7 +55,7 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 	@Override
 	protected ReadOnlySpectrum getBackground(ReadOnlySpectrum data, DataSet dataset, int percent)
 	{		
-		return SpectrumCalculations.multiplyBy(
+		return SpectrumCalculations.multiplyBy_inplace(
 				calcBackgroundBrukner(data, width.getValue(), iterations.getValue()), (percent/100.0f)
 			);
 	}
@@ -116,20 +116,21 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 		float diff = iAvg - iMin;
 		final float cutoff = iAvg + 2 * diff;
 
-		Spectrum result = new ISpectrum(data); 
+		float[] result = data.backingArrayCopy();
 
 		//initially cap the data at the given cutoff
-		for (int i = 0; i < result.size(); i++)
+		for (int i = 0; i < result.length; i++)
 		{
-			if (result.get(i) > cutoff) result.set(i, cutoff);
+			if (result[i] > cutoff) result[i] = cutoff;
 		}
 		
-		Spectrum result2 = new ISpectrum(result.size());
+		float[] result2 = new float[result.length];
+		double[] prefix = new double[result.length + 1];
 
 		int i = 0;
 		while (repetitions > 0)
 		{
-			removeBackgroundBruknerIteration(result, result2, windowSize);
+			removeBackgroundBruknerIteration(result, result2, prefix, windowSize);
 			
 			i++;
 			if (i > repetitions)
@@ -138,34 +139,48 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 				break;
 			}
 
-			removeBackgroundBruknerIteration(result2, result, windowSize);
+			removeBackgroundBruknerIteration(result2, result, prefix, windowSize);
 			
 			i++;
 			if (i > repetitions) break;
 
 		}
 
-		return result;
+		return new ISpectrum(result, false);
 
 	}
 	
 	/**
-	 * Performs a single iteration of the brukner min(data, moving average) process
+	 * Performs a single iteration of the brukner min(data, moving average) process.
+	 * The moving sums are taken from running totals, so the cost of an iteration
+	 * does not depend on the window size.
 	 * @param source the data to look at
-	 * @param target the {@link Spectrum} to write the new values out to
+	 * @param target the array to write the new values out to
+	 * @param prefix scratch space for the running totals, one longer than source
 	 * @param windowSize the window size for the moving average
 	 */
-	private static void removeBackgroundBruknerIteration(final Spectrum source, final Spectrum target, final int windowSize)
+	private static void removeBackgroundBruknerIteration(final float[] source, final float[] target, final double[] prefix, final int windowSize)
 	{
 
-		for (int i = 0; i < source.size(); i++)
+		final int size = source.length;
+		
+		//prefix[i] is the sum of source[0..i), kept in double precision so 
+		//that differences of large totals match summing each window in double 
+		prefix[0] = 0;
+		for (int i = 0; i < size; i++)
+		{
+			prefix[i+1] = prefix[i] + source[i];
+		}
+		
+		final int divisor = windowSize * 2 + 1;
+		for (int i = 0; i < size; i++)
 		{
 			int start, stop;
 			start = Math.max(i - windowSize, 0);
-			stop = Math.min(i + windowSize+1, source.size() - 1);
-			float average = SpectrumCalculations.sumValuesInList(source, start, stop) / (windowSize * 2 + 1);
-			target.set(i, Math.min(average, source.get(i)));
-			
+			//as before, the window stops short of the last channel
+			stop = Math.min(i + windowSize+1, size - 1);
+			float average = (float)(prefix[stop] - prefix[start]) / divisor;
+			target[i] = Math.min(average, source[i]);
 		}
 		
 	}
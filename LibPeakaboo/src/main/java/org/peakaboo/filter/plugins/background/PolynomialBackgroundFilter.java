@@ -1,6 +1,8 @@
 package org.peakaboo.filter.plugins.background;
 
 
+import java.util.Arrays;
+
 import org.peakaboo.dataset.DataSet;
 import org.peakaboo.filter.model.AbstractBackgroundFilter;
 import org.peakaboo.framework.autodialog.model.Parameter;
@@ -22,6 +24,8 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter {
 
 	private Parameter<Integer> width;
 	private Parameter<Integer> power;
+	//the polynomial for the current settings, replaced when they change
+	private volatile Shape shape;
 
 
 	public PolynomialBackgroundFilter() {
@@ -50,7 +54,14 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter {
 
 	@Override
 	protected ReadOnlySpectrum getBackground(ReadOnlySpectrum data, DataSet dataset, int percent) {
-		return calcBackgroundParabolic(data, width.getValue(), power.getValue(), percent / 100.0f);
+		int width = this.width.getValue();
+		int power = this.power.getValue();
+		Shape current = shape;
+		if (current == null || !current.matches(width, power)) {
+			current = new Shape(polynomial(width, power), width, power);
+			shape = current;
+		}
+		return calcBackgroundFunctionFit(data, current, percent / 100.0f);
 	}
 
 
@@ -105,6 +116,10 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter {
 	 * @return a background-subtracted list of values
 	 */
 	public static Spectrum calcBackgroundParabolic(ReadOnlySpectrum data, int width, int power, float percentToRemove) {
+		return calcBackgroundFunctionFit(data, polynomial(width, power), percentToRemove);
+	}
+	
+	private static Spectrum polynomial(int width, int power) {
 
 		// y = -(x * s)^power + m upside down parabola horizontally stretched by s and shifted upwards by m
 
@@ -126,12 +141,22 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter {
 
 		SpectrumCalculations.normalize_inplace(function);
 
-		return calcBackgroundFunctionFit(data, function, percentToRemove);
+		return function;
 
 	}
 
 	/**
 	 * Fits a given function to the underside of the data for each data point, and returns the union of the fitted functions
+	 * <br/><br/>
+	 * For each position of the function, the tallest curve which fits under the
+	 * data is limited by the smallest ratio between the data and the function,
+	 * and most parts of the function are nowhere near that limit. Rather than
+	 * checking every point, the function is searched by halves: the smallest
+	 * data value and largest function value over a range bound the ratios in it,
+	 * and ranges which could not lower the limit are skipped. The union is found
+	 * the same way from the tallest fits over each range. Ranges are only ever
+	 * skipped when they cannot change the outcome, so the result is exactly the
+	 * same as fitting at every point.
 	 * 
 	 * @param data
 	 *            the data to perform subtraction on
@@ -142,6 +167,249 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter {
 	 * @return a background-subtracted list of values
 	 */
 	public static Spectrum calcBackgroundFunctionFit(ReadOnlySpectrum data, Spectrum function, float percentToRemove) {
+		return calcBackgroundFunctionFit(data, new Shape(function, 0, 0), percentToRemove);
+	}
+	
+	private static Spectrum calcBackgroundFunctionFit(ReadOnlySpectrum data, Shape function, float percentToRemove) {
+		
+		int size = data.size();
+		int width = function.values.length;
+		
+		//the bounds rely on the data and function being finite and non-negative
+		if (function.peaks == null || !(percentToRemove > 0)) {
+			return calcBackgroundFunctionFitDirect(data, function.function, percentToRemove);
+		}
+		for (int k = 0; k < size; k++) {
+			if (!Float.isFinite(data.get(k))) {
+				return calcBackgroundFunctionFitDirect(data, function.function, percentToRemove);
+			}
+		}
+		
+		float[] shape = function.values;
+		RangeExtremes peaks = function.peaks;
+		Buffers buffers = BUFFERS.get();
+		
+		
+		// Find the tallest fit for each position of the function. Position p has
+		// the function starting at channel p - (width - 1), and the channel at
+		// offset j into the function is found at index p + j of the scaled data,
+		// where channels outside of the data never limit the fit
+		int positions = size + width - 1;
+		float[] scaled = buffers.scaled(positions + width - 1);
+		Arrays.fill(scaled, 0, positions + width - 1, Float.POSITIVE_INFINITY);
+		for (int k = 1; k < size; k++) {
+			scaled[k + width - 1] = data.get(k) * percentToRemove;
+		}
+		RangeExtremes lows = buffers.lows.build(scaled, positions + width - 1);
+		
+		// Fits which are not positive never raise the union above 0
+		float[] heights = buffers.heights(positions);
+		for (int p = 0; p < positions; p++) {
+			float ratio;
+			if (lows.get(p, p + width) > 0) {
+				ratio = lowestRatio(scaled, shape, lows, peaks, p, 0, width, Float.POSITIVE_INFINITY);
+			} else {
+				//zeros and negative values can't bound the ratios
+				ratio = minimumRatio(scaled, shape, p, 0, width, Float.MAX_VALUE);
+			}
+			heights[p] = ratio > 0 && ratio < Float.POSITIVE_INFINITY ? ratio : 0f;
+		}
+		
+		
+		// Find the union of the fitted functions. The offset j into the function
+		// for channel k is from position k + width - 1 - j
+		RangeExtremes highs = buffers.highs.build(heights, positions);
+		float[] result = new float[size];
+		for (int k = 1; k < size; k++) {
+			result[k] = highestFit(heights, shape, highs, peaks, k + width - 1, 0, width, 0f);
+		}
+		
+		return new ISpectrum(result, false);
+	
+	}
+	
+	/**
+	 * A function to fit under the data, along with the table of its largest
+	 * values over each range. Both depend only on the function, so they are
+	 * kept and reused for every spectrum filtered with the same settings.
+	 */
+	private static final class Shape {
+		
+		private final int width, power;
+		private final Spectrum function;
+		private final float[] values;
+		//null when the function can't be searched by range
+		private final RangeExtremes peaks;
+		
+		Shape(Spectrum function, int width, int power) {
+			this.width = width;
+			this.power = power;
+			this.function = function;
+			this.values = function.backingArrayCopy();
+			if (values.length > SEARCH_LEAF && isFiniteNonNegative(function)) {
+				this.peaks = new RangeExtremes(true).build(values, values.length);
+			} else {
+				this.peaks = null;
+			}
+		}
+		
+		boolean matches(int width, int power) {
+			return this.width == width && this.power == power;
+		}
+		
+	}
+	
+	/*
+	 * Work arrays for each thread, so that fitting a spectrum doesn't allocate
+	 * anything but its result
+	 */
+	private static final class Buffers {
+		
+		private float[] scaled = new float[0];
+		private float[] heights = new float[0];
+		final RangeExtremes lows = new RangeExtremes(false);
+		final RangeExtremes highs = new RangeExtremes(true);
+		
+		float[] scaled(int length) {
+			if (scaled.length < length) scaled = new float[length];
+			return scaled;
+		}
+		
+		float[] heights(int length) {
+			if (heights.length < length) heights = new float[length];
+			return heights;
+		}
+		
+	}
+	
+	private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+	
+	//ranges of the function at or below this size are checked point by point
+	private static final int SEARCH_LEAF = 8;
+	
+	/*
+	 * Returns the smallest ratio between the scaled data and the function over
+	 * offsets [start, stop) of the function at the given position, or minRatio
+	 * if none are smaller.
+	 */
+	private static float lowestRatio(float[] scaled, float[] shape, RangeExtremes lows, RangeExtremes peaks, int position, int start, int stop, float minRatio) {
+		if (stop - start <= SEARCH_LEAF) {
+			return minimumRatio(scaled, shape, position, start, stop, minRatio);
+		}
+		int middle = (start + stop) >>> 1;
+		float left = lows.get(position + start, position + middle) / peaks.get(start, middle);
+		float right = lows.get(position + middle, position + stop) / peaks.get(middle, stop);
+		
+		//the more promising half first, so that the other is more likely to be skipped
+		if (left <= right) {
+			if (left < minRatio) minRatio = lowestRatio(scaled, shape, lows, peaks, position, start, middle, minRatio);
+			if (right < minRatio) minRatio = lowestRatio(scaled, shape, lows, peaks, position, middle, stop, minRatio);
+		} else {
+			if (right < minRatio) minRatio = lowestRatio(scaled, shape, lows, peaks, position, middle, stop, minRatio);
+			if (left < minRatio) minRatio = lowestRatio(scaled, shape, lows, peaks, position, start, middle, minRatio);
+		}
+		return minRatio;
+	}
+	
+	private static float minimumRatio(float[] scaled, float[] shape, int position, int start, int stop, float minRatio) {
+		for (int j = start; j < stop; j++) {
+			float value = scaled[position + j];
+			if (value != Float.POSITIVE_INFINITY) {
+				minRatio = Math.min(minRatio, value / shape[j]);
+			}
+		}
+		return minRatio;
+	}
+	
+	/*
+	 * Returns the tallest fitted function over offsets [start, stop) at the
+	 * channel whose offset 0 is from the given position, or max if none are
+	 * taller.
+	 */
+	private static float highestFit(float[] heights, float[] shape, RangeExtremes highs, RangeExtremes peaks, int position, int start, int stop, float max) {
+		if (stop - start <= SEARCH_LEAF) {
+			for (int j = start; j < stop; j++) {
+				float value = shape[j] * heights[position - j];
+				if (value > max) max = value;
+			}
+			return max;
+		}
+		int middle = (start + stop) >>> 1;
+		float left = peaks.get(start, middle) * highs.get(position - middle + 1, position - start + 1);
+		float right = peaks.get(middle, stop) * highs.get(position - stop + 1, position - middle + 1);
+		
+		if (left >= right) {
+			if (left > max) max = highestFit(heights, shape, highs, peaks, position, start, middle, max);
+			if (right > max) max = highestFit(heights, shape, highs, peaks, position, middle, stop, max);
+		} else {
+			if (right > max) max = highestFit(heights, shape, highs, peaks, position, middle, stop, max);
+			if (left > max) max = highestFit(heights, shape, highs, peaks, position, start, middle, max);
+		}
+		return max;
+	}
+	
+	private static boolean isFiniteNonNegative(ReadOnlySpectrum spectrum) {
+		for (int i = 0; i < spectrum.size(); i++) {
+			float value = spectrum.get(i);
+			if (!Float.isFinite(value) || value < 0) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Answers minimum or maximum queries over any range of an array in constant
+	 * time, by precomputing the extremes of every power-of-two length run. The
+	 * tables can be rebuilt for new values, reusing their arrays.
+	 */
+	private static class RangeExtremes {
+		
+		private float[][] levels = new float[0][];
+		private final boolean max;
+		
+		RangeExtremes(boolean max) {
+			this.max = max;
+		}
+		
+		//prepares the tables for the first length entries of the given values
+		RangeExtremes build(float[] values, int length) {
+			int count = 32 - Integer.numberOfLeadingZeros(length);
+			if (levels.length < count) {
+				levels = Arrays.copyOf(levels, count);
+			}
+			levels[0] = values;
+			for (int level = 1; level < count; level++) {
+				float[] below = levels[level - 1];
+				int half = 1 << (level - 1);
+				int entries = length - (1 << level) + 1;
+				float[] current = levels[level];
+				if (current == null || current.length < entries) {
+					current = new float[entries];
+					levels[level] = current;
+				}
+				for (int i = 0; i < entries; i++) {
+					current[i] = pick(below[i], below[i + half]);
+				}
+			}
+			return this;
+		}
+		
+		//extreme of the values in [from, to)
+		float get(int from, int to) {
+			int level = 31 - Integer.numberOfLeadingZeros(to - from);
+			return pick(levels[level][from], levels[level][to - (1 << level)]);
+		}
+		
+		private float pick(float a, float b) {
+			return max ? Math.max(a, b) : Math.min(a, b);
+		}
+		
+	}
+	
+	/*
+	 * Fits the function at every point of every position. Used for input the
+	 * bounds in calcBackgroundFunctionFit can't handle.
+	 */
+	private static Spectrum calcBackgroundFunctionFitDirect(ReadOnlySpectrum data, Spectrum function, float percentToRemove) {
 
 		float value, minRatio, ratio;
 
@@ -8,6 +8,7 @@ import org.peakaboo.filter.model.FilterType;
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.RealStyle;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
 
@@ -32,6 +33,12 @@ public class MultiplicationMathFilter extends AbstractFilter {
 		return SpectrumCalculations.multiplyBy(data, amount.getValue().floatValue());
 	}
 
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		SpectrumCalculations.multiplyBy_target(data, target, amount.getValue().floatValue());
+		return true;
+	}
+
 
 	@Override
 	public String getFilterDescription() {
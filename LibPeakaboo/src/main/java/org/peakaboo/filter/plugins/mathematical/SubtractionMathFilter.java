@@ -7,6 +7,7 @@ import org.peakaboo.filter.model.FilterType;
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.RealStyle;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 
 
@@ -31,6 +32,12 @@ public class SubtractionMathFilter extends AbstractFilter
 		return SpectrumCalculations.subtractFromList(data, amount.getValue().floatValue());
 	}
 
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		SpectrumCalculations.subtractFromList(data, target, amount.getValue().floatValue());
+		return true;
+	}
+
 
 	@Override
 	public String getFilterDescription() {
@@ -16,9 +16,6 @@ import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 
-import JSci.maths.Complex;
-import JSci.maths.FourierMath;
-
 /**
  * 
  * This class is a filter exposing the Fourier Low Pass functionality elsewhere in this programme.
@@ -32,6 +29,9 @@ public final class FourierNoiseFilter extends AbstractFilter {
 	private Parameter<Float> startWavelength;
 	private Parameter<Float> endWavelength;
 	private SelectionParameter<FFT.FilterStyle> rolloff;
+	
+	//weights for the current settings, replaced when the settings or spectrum size change
+	private volatile FFT.RollOff rollOffWeights;
 
 
 	public FourierNoiseFilter()
@@ -110,15 +110,30 @@ public final class FourierNoiseFilter extends AbstractFilter {
 	@Override
 	protected ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data, DataSet dataset)
 	{
+		Spectrum result = new ISpectrum(data.size());
+		FFT.lowPassFilter(data, rollOff(data.size()), result);
+		return result;
+	}
+	
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset)
+	{
+		FFT.lowPassFilter(data, rollOff(data.size()), target);
+		return true;
+	}
+	
+	private FFT.RollOff rollOff(int size)
+	{
+		FFT.FilterStyle style = rolloff.getValue();
+		float start = startWavelength.getValue();
+		float end = endWavelength.getValue();
 		
-		data = FFT.lowPassFilter(
-			data,
-			rolloff.getValue(),
-			startWavelength.getValue(),
-			endWavelength.getValue()
-		);
-
-		return data;
+		FFT.RollOff current = rollOffWeights;
+		if (current == null || !current.matches(size, style, start, end)) {
+			current = FFT.rollOff(size, style, start, end);
+			rollOffWeights = current;
+		}
+		return current;
 	}
 
 	@Override
@@ -176,37 +191,49 @@ class FFT {
 	}
 
 	
-	public static Complex[] dataToFFT(ReadOnlySpectrum data)
+	/**
+	 * The weight given to each frequency by a low-pass filter with a particular
+	 * set of parameters, for spectra of a particular size. Since the weights only
+	 * depend on those parameters, they are worked out once and reused for every
+	 * spectrum filtered with them.
+	 */
+	static final class RollOff
 	{
 		
-		// Fast Fourier Transform
-
-		double[] dataAsDoubles = new double[data.size()];
-
-		for (int i = 0; i < data.size(); i++) {
-			dataAsDoubles[i] = data.get(i);
+		private final int size;
+		private final FilterStyle style;
+		private final float startWavelength, endWavelength;
+		//weights for frequencies 0 through size/2
+		private final double[] weights;
+		
+		private RollOff(int size, FilterStyle style, float startWavelength, float endWavelength, double[] weights)
+		{
+			this.size = size;
+			this.style = style;
+			this.startWavelength = startWavelength;
+			this.endWavelength = endWavelength;
+			this.weights = weights;
+		}
+		
+		boolean matches(int size, FilterStyle style, float startWavelength, float endWavelength)
+		{
+			return this.size == size && this.style == style && this.startWavelength == startWavelength && this.endWavelength == endWavelength;
 		}
-
-
-		// FFT Transform
-		return FourierMath.transform(dataAsDoubles);
 		
 	}
 	
-
-	public static Spectrum fftToData(Complex[] fft)
+	
+	//work arrays for each thread, so that filtering doesn't allocate
+	private static final ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[0]);
+	
+	private static double[] buffer(int size)
 	{
-		// FFT Inverse Transform
-		fft = FourierMath.inverseTransform(fft);
-
-
-		// get the data into a list of doubles for returning
-		Spectrum result = new ISpectrum(fft.length);
-		for (int i = 0; i < fft.length; i++) {
-			result.set(  i, Math.max(  0f, (float)(fft[i].real())  )  );
+		double[] buffer = buffers.get();
+		if (buffer.length < size) {
+			buffer = new double[size];
+			buffers.set(buffer);
 		}
-		
-		return result;
+		return buffer;
 	}
 	
 	
@@ -227,12 +254,74 @@ class FFT {
 	 */
 	public static Spectrum lowPassFilter(ReadOnlySpectrum data, FilterStyle style, float startWavelength,
 			float endWavelength)
+	{
+		Spectrum result = new ISpectrum(data.size());
+		lowPassFilter(data, rollOff(data.size(), style, startWavelength, endWavelength), result);
+		return result;
+	}
+	
+	
+	/**
+	 * Performs a Fast Fourier Transformation, weights each frequency according to the given {@link RollOff}, 
+	 * and writes the transformed-back data into target. The work is done in place in an array belonging to 
+	 * the calling thread, so nothing is allocated.
+	 */
+	public static void lowPassFilter(ReadOnlySpectrum data, RollOff rolloff, Spectrum target)
+	{
+		
+		int size = data.size();
+		if (rolloff.size != size) {
+			throw new IllegalArgumentException("Roll-off is for " + rolloff.size + " channels, not " + size);
+		}
+		RealFFT fft = RealFFT.forSize(size);
+		double[] buffer = buffer(size);
+		
+		for (int i = 0; i < size; i++) {
+			buffer[i] = data.get(i);
+		}
+		fft.forward(buffer);
+		
+		// frequencies 0 and size/2 are packed into the first two entries, 
+		// the rest are pairs of real and imaginary parts
+		double[] weights = rolloff.weights;
+		int half = size / 2;
+		buffer[0] *= weights[0];
+		buffer[1] *= weights[half];
+		for (int k = 1; k < half; k++) {
+			buffer[2 * k] *= weights[k];
+			buffer[2 * k + 1] *= weights[k];
+		}
+		
+		fft.inverse(buffer);
+		for (int i = 0; i < size; i++) {
+			target.set(i, Math.max(0f, (float) buffer[i]));
+		}
+		
+	}
+	
+	
+	/**
+	 * Works out the weight given to each frequency by a low-pass filter with the given parameters
+	 * 
+	 * @param size
+	 *            the size of the spectra to be filtered
+	 * @param style
+	 *            the {@link FilterStyle} which determines how the boundary between high-frequency and the rest
+	 *            of the data is treated
+	 * @param beginFilterAtWavelength
+	 *            wavelength at which to begin filtering out noise
+	 * @param endGradualFilterAtWavelength
+	 *            when using a gradual fall-off method, the wavelength at above which to completely eliminate
+	 *            high-frequency noise
+	 */
+	public static RollOff rollOff(int size, FilterStyle style, float startWavelength, float endWavelength)
 	{
 
 		int startcutoff, endcutoff;
 
 		/*
-		 * From JSci: [DFT is] an array containing the positive time part of the signal followed by the negative time part
+		 * In the full (not packed) DFT, the array contains the positive time part of the signal followed by 
+		 * the negative time part
 		 * 
 		 * So the highest frequency data is actually in the middle of the array.
 		 * 
@@ -249,77 +338,59 @@ class FFT {
 		 * looking for ways to remove wavelengths less than minSignalWidth
 		 * 
 		 * 2048 / 2 = 1024 so data.size / cutoff = minSignalWidth data.size / minSignalWidth = cutoff
+		 * 
+		 * The second half of the DFT of real data mirrors the first, so weights are only 
+		 * worked out for indices up to the middle.
 		 */
 
 		
 		
 		
-		int halfsize = (data.size() / 2);
+		int halfsize = (size / 2);
 
 		//wavelength of 4 has frequency of data.size() / 4
-		int startFrequency = Math.round(data.size() / startWavelength);
-		int endFrequency = Math.round(data.size() / endWavelength);
+		int startFrequency = Math.round(size / startWavelength);
+		int endFrequency = Math.round(size / endWavelength);
 		
 		startcutoff = Math.max(0, halfsize - startFrequency);
 		endcutoff = Math.max(0, halfsize - endFrequency);
-				
-		return doFFTFilter(data, style, startcutoff, endcutoff);
-
-	}
-
-
-	private static Spectrum doFFTFilter(ReadOnlySpectrum data, FilterStyle style, int start, int stop)
-	{
-
-		// FFT
-		Complex[] transformedData = dataToFFT(data);
-
-
-		// Do something with the transformed data
+		
+		double[] weights = new double[halfsize + 1];
+		Arrays.fill(weights, 1.0);
+		
 		if (style == FilterStyle.LINEAR) {
-			fftLinearStyle(transformedData, start, stop);
+			fftLinearStyle(weights, size, startcutoff, endcutoff);
 		} else if (style == FilterStyle.SINE) {
-			fftSineStyle(transformedData, start, stop);
+			fftSineStyle(weights, size, startcutoff, endcutoff);
 		} else {
-			fftCutoffStyle(transformedData, start);
-		}
-
-
-		// FFT Inverse Transform
-		transformedData = FourierMath.inverseTransform(transformedData);
-
-
-		// get the data into a list of doubles for returning
-		Spectrum result = new ISpectrum(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			result.set(  i, Math.max(0f, (float)transformedData[i].real())  );
+			fftCutoffStyle(weights, size, startcutoff);
 		}
-
-		return result;
+		
+		return new RollOff(size, style, startWavelength, endWavelength, weights);
 
 	}
 
 
-	private static void fftCutoffStyle(Complex[] data, int start)
+	private static void fftCutoffStyle(double[] weights, int size, int start)
 	{
 
-		double centre = data.length / 2.0;
-		for (int i = 0; i < data.length; i++) {
+		double centre = size / 2.0;
+		for (int i = 0; i < weights.length; i++) {
 
 			if (i > Math.floor(centre - start) && i < Math.ceil(centre + start)) {
-				data[i] = new Complex(0.0, 0.0);
+				weights[i] = 0.0;
 			}
 
 		}
 	}
 
 
-	private static void fftLinearStyle(Complex[] data, int start, int stop)
+	private static void fftLinearStyle(double[] weights, int size, int start, int stop)
 	{
 
 		// start and stop are distances from the centrepoint, so start should be a higher number than stop
 
-		double centre = data.length / 2.0;
+		double centre = size / 2.0;
 
 		// start and stop as expressed by distances from center
 		int di;
@@ -327,7 +398,7 @@ class FFT {
 		double percentLeftInLine;
 
 
-		for (int i = 0; i < data.length; i++) {
+		for (int i = 0; i < weights.length; i++) {
 
 			di = (int) Math.abs(centre - i);
 
@@ -335,10 +406,10 @@ class FFT {
 			// in between start and stop
 			if (di < start && di > stop) {
 				percentLeftInLine = 1.0 - ((double) (di - start) / (double) (stop - start));
-				data[i] = new Complex(data[i].real() * percentLeftInLine, data[i].imag() * percentLeftInLine);
+				weights[i] = percentLeftInLine;
 			} else if (di < start) {
 
-				data[i] = new Complex(0.0, 0.0);
+				weights[i] = 0.0;
 			}
 
 
@@ -347,12 +418,12 @@ class FFT {
 	}
 
 
-	private static void fftSineStyle(Complex[] data, int start, int stop)
+	private static void fftSineStyle(double[] weights, int size, int start, int stop)
 	{
 
 		// start and stop are distances from the centrepoint, so start should be a higher number than stop
 
-		double centre = data.length / 2.0;
+		double centre = size / 2.0;
 
 		// start and stop as expressed by distances from center
 		int di;
@@ -360,7 +431,7 @@ class FFT {
 		double percentLeftInLine;
 		double sine;
 
-		for (int i = 0; i < data.length; i++) {
+		for (int i = 0; i < weights.length; i++) {
 
 			di = (int) Math.abs(centre - i);
 
@@ -369,10 +440,10 @@ class FFT {
 			if (di < start && di > stop) {
 				percentLeftInLine = 1.0 - ((double) (di - start) / (double) (stop - start));
 				sine = (Math.sin(Math.PI * percentLeftInLine - Math.PI / 2.0) + 1.0) / 2.0;
-				data[i] = new Complex(data[i].real() * sine, data[i].imag() * sine);
+				weights[i] = sine;
 			} else if (di < start) {
 
-				data[i] = new Complex(0.0, 0.0);
+				weights[i] = 0.0;
 			}
 
 		}
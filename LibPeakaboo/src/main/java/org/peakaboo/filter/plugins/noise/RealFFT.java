@@ -0,0 +1,173 @@
+package org.peakaboo.filter.plugins.noise;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-place Fast Fourier Transform of real valued data, working directly on
+ * primitive arrays. Real data of length n is transformed as n/2 complex values,
+ * which are then separated into the first half of the spectrum. Since the
+ * second half of the spectrum of real data mirrors the first, it is not stored.
+ * <br/><br/>
+ * Transformed data is packed into the same array as the input: index 0 holds
+ * the (real) value for frequency 0, index 1 holds the (real) value for
+ * frequency n/2, and indices 2k and 2k+1 hold the real and imaginary parts of
+ * frequency k.
+ * <br/><br/>
+ * Twiddle factors and bit-reversal tables depend only on the length of the
+ * data, so one instance is created and shared for each length. Instances have
+ * no mutable state and may be used from any number of threads.
+ *
+ * @author NAS
+ *
+ */
+final class RealFFT {
+
+	private static final Map<Integer, RealFFT> plans = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the transform for real data of the given length, which must be a
+	 * power of 2 no smaller than 2
+	 */
+	static RealFFT forSize(int size) {
+		if (size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("The number of samples must be a power of 2.");
+		}
+		return plans.computeIfAbsent(size, RealFFT::new);
+	}
+
+
+	private final int size;
+	//number of complex values the real data is transformed as
+	private final int half;
+	private final int[] reversed;
+	//e^(-2 pi i j / half) for the complex transform
+	private final double[] cos, sin;
+	//e^(-2 pi i k / size) for separating the halves of the spectrum
+	private final double[] splitCos, splitSin;
+
+	private RealFFT(int size) {
+		this.size = size;
+		this.half = size / 2;
+
+		int bits = Integer.numberOfTrailingZeros(half);
+		reversed = new int[half];
+		for (int i = 0; i < half; i++) {
+			reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+
+		cos = new double[Math.max(1, half / 2)];
+		sin = new double[cos.length];
+		for (int j = 0; j < cos.length; j++) {
+			double angle = -2 * Math.PI * j / half;
+			cos[j] = Math.cos(angle);
+			sin[j] = Math.sin(angle);
+		}
+
+		splitCos = new double[half / 2 + 1];
+		splitSin = new double[splitCos.length];
+		for (int k = 0; k < splitCos.length; k++) {
+			double angle = -2 * Math.PI * k / size;
+			splitCos[k] = Math.cos(angle);
+			splitSin[k] = Math.sin(angle);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Transforms the first {@link #size()} real values in the given array into
+	 * their packed spectrum, in place.
+	 */
+	void forward(double[] data) {
+		complex(data, false);
+
+		//the transform of the even and odd samples are the real and imaginary parts
+		double re = data[0], im = data[1];
+		data[0] = re + im;
+		data[1] = re - im;
+		for (int k = 1; k <= half / 2; k++) {
+			int a = 2 * k, b = 2 * (half - k);
+			double evenRe = (data[a] + data[b]) / 2;
+			double evenIm = (data[a + 1] - data[b + 1]) / 2;
+			double oddRe = (data[a + 1] + data[b + 1]) / 2;
+			double oddIm = (data[b] - data[a]) / 2;
+			double twiddledRe = splitCos[k] * oddRe - splitSin[k] * oddIm;
+			double twiddledIm = splitCos[k] * oddIm + splitSin[k] * oddRe;
+			data[a] = evenRe + twiddledRe;
+			data[a + 1] = evenIm + twiddledIm;
+			data[b] = evenRe - twiddledRe;
+			data[b + 1] = twiddledIm - evenIm;
+		}
+	}
+
+	/**
+	 * Transforms a packed spectrum in the given array back into {@link #size()}
+	 * real values, in place. This is the exact inverse of
+	 * {@link #forward(double[])}.
+	 */
+	void inverse(double[] data) {
+		double first = data[0], last = data[1];
+		data[0] = (first + last) / 2;
+		data[1] = (first - last) / 2;
+		for (int k = 1; k <= half / 2; k++) {
+			int a = 2 * k, b = 2 * (half - k);
+			double evenRe = (data[a] + data[b]) / 2;
+			double evenIm = (data[a + 1] - data[b + 1]) / 2;
+			double diffRe = (data[a] - data[b]) / 2;
+			double diffIm = (data[a + 1] + data[b + 1]) / 2;
+			//multiply by the conjugate of the twiddle factor
+			double oddRe = splitCos[k] * diffRe + splitSin[k] * diffIm;
+			double oddIm = splitCos[k] * diffIm - splitSin[k] * diffRe;
+			data[a] = evenRe - oddIm;
+			data[a + 1] = evenIm + oddRe;
+			data[b] = evenRe + oddIm;
+			data[b + 1] = oddRe - evenIm;
+		}
+
+		complex(data, true);
+		double scale = 1.0 / half;
+		for (int i = 0; i < size; i++) {
+			data[i] *= scale;
+		}
+	}
+
+	/*
+	 * Unscaled radix-2 transform of the first half complex values in the
+	 * array, stored as alternating real and imaginary parts
+	 */
+	private void complex(double[] data, boolean inverse) {
+		for (int i = 0; i < half; i++) {
+			int j = reversed[i];
+			if (i < j) {
+				double re = data[2 * i], im = data[2 * i + 1];
+				data[2 * i] = data[2 * j];
+				data[2 * i + 1] = data[2 * j + 1];
+				data[2 * j] = re;
+				data[2 * j + 1] = im;
+			}
+		}
+
+		double direction = inverse ? -1 : 1;
+		for (int length = 2; length <= half; length <<= 1) {
+			int span = length / 2;
+			int step = half / length;
+			for (int start = 0; start < half; start += length) {
+				for (int j = 0; j < span; j++) {
+					double wr = cos[j * step];
+					double wi = sin[j * step] * direction;
+					int u = 2 * (start + j), v = 2 * (start + j + span);
+					double vr = data[v] * wr - data[v + 1] * wi;
+					double vi = data[v] * wi + data[v + 1] * wr;
+					data[v] = data[u] - vr;
+					data[v + 1] = data[u + 1] - vi;
+					data[u] += vr;
+					data[u + 1] += vi;
+				}
+			}
+		}
+	}
+
+}
@@ -119,6 +119,12 @@ public class SavitskyGolayNoiseFilter extends AbstractFilter {
 	protected ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data, DataSet dataset) {
 		return fastSavitskyGolayFilter(data, reach.getValue(), ignore.getValue() ? max.getValue() : Float.MAX_VALUE);
 	}
+	
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		fastSavitskyGolayFilter(data, target, reach.getValue(), ignore.getValue() ? max.getValue() : Float.MAX_VALUE);
+		return true;
+	}
 
 	@Override
 	public String getFilterName() {
@@ -145,15 +151,22 @@ public class SavitskyGolayNoiseFilter extends AbstractFilter {
 	
 
 	public Spectrum fastSavitskyGolayFilter(ReadOnlySpectrum data, int reach, float max) {
+		return fastSavitskyGolayFilter(data, new ISpectrum(data.size()), reach, max);
+	}
+	
+	/**
+	 * Applies the filter to data, writing the results to out, which must not be
+	 * the same spectrum as data
+	 */
+	public Spectrum fastSavitskyGolayFilter(ReadOnlySpectrum data, Spectrum out, int reach, float max) {
 
 		float[] coefs = getCoeffs();
 		if (coefs == null) {
 			PeakabooLog.get().log(Level.WARNING, "Failed to load Savitsky Golay coefficients");
-			return new ISpectrum(data);
+			out.copy(data);
+			return out;
 		}
 		
-		Spectrum out = new ISpectrum(data.size());
-		
 		for (int i = 0; i < data.size(); i++) {
 
 			//skip signal stronger than max
@@ -59,6 +59,12 @@ public class WeightedAverageNoiseFilter extends AbstractFilter {
 		data = weightedMovingAverage(data, reach.getValue());
 		return data;
 	}
+	
+	@Override
+	protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+		weightedMovingAverage(data, target, reach.getValue());
+		return true;
+	}
 
 	
 	@Override
@@ -94,6 +100,22 @@ public class WeightedAverageNoiseFilter extends AbstractFilter {
 	 * @return a moving-average smoothed data set
 	 */
 	public static Spectrum weightedMovingAverage(ReadOnlySpectrum data, int windowSpan) {
+		return weightedMovingAverage(data, new ISpectrum(data.size()), windowSpan);
+	}
+	
+	/**
+	 * 
+	 * Performs a center-weighted moving average over a data set, writing the results to the given target
+	 * 
+	 * @param data
+	 *            the data to be averaged
+	 * @param smoothed
+	 *            the spectrum to write the results to, which must not be the same as data
+	 * @param windowSpan
+	 *            the distance from the centrepoint to an edge of the set of numbers being averaged
+	 * @return the given target spectrum, now containing the moving-average smoothed data set
+	 */
+	public static Spectrum weightedMovingAverage(ReadOnlySpectrum data, Spectrum smoothed, int windowSpan) {
 
 		/*
 		 * for a windowSpan n, the center-point's weight will be 2^n. 
@@ -111,8 +133,6 @@ public class WeightedAverageNoiseFilter extends AbstractFilter {
 		weights[windowSpan] = (float) Math.pow(2, windowSpan);
 			
 				
-		Spectrum smoothed = new ISpectrum(data.size());
-		
 		int start, stop;
 		float totalWeight;
 		int pos;
@@ -1,31 +1,35 @@
 package org.peakaboo.mapping;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 
 import org.peakaboo.common.PeakabooLog;
 import org.peakaboo.controller.plotter.data.DataController;
-import org.peakaboo.curvefit.curve.fitting.FittingResult;
-import org.peakaboo.curvefit.curve.fitting.FittingResultSet;
+import org.peakaboo.curvefit.curve.fitting.Curve;
 import org.peakaboo.curvefit.curve.fitting.FittingSet;
 import org.peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
 import org.peakaboo.curvefit.curve.fitting.solver.FittingSolver;
+import org.peakaboo.curvefit.curve.fitting.solver.FittingSolverPlan;
 import org.peakaboo.curvefit.peak.transition.DummyTransitionSeries;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
 import org.peakaboo.dataset.DataSet;
 import org.peakaboo.filter.model.FilterSet;
+import org.peakaboo.filter.model.FilteredScans;
 import org.peakaboo.framework.cyclops.Coord;
 import org.peakaboo.framework.cyclops.GridPerspective;
 import org.peakaboo.framework.cyclops.Range;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
 import org.peakaboo.framework.cyclops.util.Mutable;
 import org.peakaboo.framework.plural.Plural;
 import org.peakaboo.framework.plural.executor.ExecutorSet;
 import org.peakaboo.framework.plural.executor.eachindex.EachIndexExecutor;
 import org.peakaboo.framework.plural.executor.eachindex.implementations.PluralEachIndexExecutor;
+import org.peakaboo.framework.plural.monitor.TaskMonitor.State;
 import org.peakaboo.framework.plural.streams.StreamExecutor;
 import org.peakaboo.mapping.rawmap.RawMap;
 import org.peakaboo.mapping.rawmap.RawMapSet;
@@ -38,6 +42,9 @@ import org.peakaboo.mapping.rawmap.RawMapSet;
 
 public class Mapping {
 	
+	//number of contiguous scans handed to a worker at a time when generating maps
+	private static final int MAP_BLOCK_SIZE = 256;
+	
 	private Mapping() {
 		//Not Constructable
 	}
@@ -69,38 +76,71 @@ public class Mapping {
 			//the dataset is non-contiguous, but provides dimensions and a way to get a coord per index
 			mapsize = dimensions.x * dimensions.y;
 		}
-		RawMapSet maps = new RawMapSet(transitionSeries, mapsize, !noncontiguous);
+		int scanCount = dataset.getScanData().scanCount();
+		int finalMapsize = mapsize;
 		
 		StreamExecutor<RawMapSet> streamer = new StreamExecutor<>("Applying Filters & Fittings");
-		streamer.setTask(new Range(0, dataset.getScanData().scanCount()-1), stream -> {
+		//each element of the stream is the first index of a block of contiguous scans
+		streamer.setTask(new Range(0, Math.max(0, scanCount-1), MAP_BLOCK_SIZE), stream -> {
 			
 			long t1 = System.currentTimeMillis();
 			
-			stream.forEach(index -> {
-				
-				ReadOnlySpectrum data = dataset.getScanData().get(index);
-				if (data == null) return;
-				
-				data = filters.applyFiltersUnsynchronized(data, dataset);
-				
-				FittingResultSet frs = solver.solve(data, fittings, fitter);
+			//everything which depends only on the fittings is worked out once for all spectra
+			FittingSolverPlan plan = solver.prepare(fittings, fitter);
+			List<Curve> curves = plan.getCurves();
+			ThreadLocal<float[]> scalings = ThreadLocal.withInitial(() -> new float[curves.size()]);
+			
+			//if only the fittings have changed since the last run, the filtered spectra are reused
+			FilteredScans scans = filters.filtered(dataset);
+			
+			//fit sums are written straight into one column per map, found by curve index
+			float[][] columns = new float[transitionSeries.size()][finalMapsize];
+			float[][] curveColumns = new float[curves.size()][];
+			for (int i = 0; i < curves.size(); i++) {
+				int map = transitionSeries.indexOf(curves.get(i).getTransitionSeries());
+				curveColumns[i] = map < 0 ? null : columns[map];
+			}
+			
+			stream.forEach(start -> {
 				
-				for (FittingResult result : frs.getFits()) {
+				float[] scales = scalings.get();
+				int stop = Math.min(start + MAP_BLOCK_SIZE, scanCount);
+				for (int index = start; index < stop; index++) {
+					
+					ReadOnlySpectrum data = scans.get(index);
+					if (data == null) continue;
+					
+					solver.solve(plan, data, scales);
+					
+					int translated = index;
 					if (noncontiguous) {
-						int translated = grid.getIndexFromXY(dataset.getDataSize().getDataCoordinatesAtIndex(index));
-						maps.putIntensityInMapAtPoint(result.getFitSum(), result.getTransitionSeries(), translated);	
-					} else {
-						maps.putIntensityInMapAtPoint(result.getFitSum(), result.getTransitionSeries(), index);
+						translated = grid.getIndexFromXY(dataset.getDataSize().getDataCoordinatesAtIndex(index));
 					}
+					for (int i = 0; i < scales.length; i++) {
+						float[] column = curveColumns[i];
+						if (column == null) continue;
+						column[translated] = curves.get(i).scaleSum(scales[i]);
+					}
+					
 				}
-				
+			
 			});
 			
+			//an aborted run leaves the filtered spectra incomplete
+			if (streamer.getState() != State.RUNNING) {
+				scans.discard();
+			}
+			
+			List<RawMap> maps = new ArrayList<>();
+			for (int i = 0; i < transitionSeries.size(); i++) {
+				maps.add(new RawMap(transitionSeries.get(i), new ISpectrum(columns[i], false)));
+			}
+			
 			long t2 = System.currentTimeMillis();
 			PeakabooLog.get().log(Level.INFO, "Generated Maps in " + ((t2-t1)/1000)  + " seconds");
 			
 			System.gc();
-			return maps;
+			return new RawMapSet(maps, finalMapsize, !noncontiguous, true);
 		}); 
 		
 		return streamer;
@@ -108,7 +148,19 @@ public class Mapping {
 	}
 	
 
+	/**
+	 * Generates a map of the intensity of a single channel. When the data set
+	 * keeps a channel-major copy of its data, the channel values are read from
+	 * that rather than from each spectrum in turn.
+	 * @param data the {@link DataController} providing access to data
+	 * @param channel the channel to map
+	 * @return an {@link ExecutorSet} which will return a {@link RawMapSet}
+	 */
 	public static ExecutorSet<RawMapSet> quickMapTask(DataController data, int channel) {
+		return quickMapTask(data, channel, channel+1, "Channel " + channel);
+	}
+	
+	private static ExecutorSet<RawMapSet> quickMapTask(DataController data, int start, int stop, String title) {
 		
 
 		
@@ -126,13 +178,20 @@ public class Mapping {
 		}
 		int finalMapsize = mapsize;
 		
+		//a channel-major copy lets us read one strip instead of every spectrum
+		ReadOnlySpectrum strip = ds.getScanData().getChannels(start, stop).orElse(null);
+		
 		Spectrum map = new ISpectrum(finalMapsize);
 		EachIndexExecutor maptask = new PluralEachIndexExecutor(dataset.getScanData().scanCount(), index -> {
 			int translated = index;
 			if (noncontiguous) {
 				translated = grid.getIndexFromXY(dataset.getDataSize().getDataCoordinatesAtIndex(index));
 			}
-			map.set(translated, ds.getScanData().get(index).get(channel));
+			if (strip != null) {
+				map.set(translated, strip.get(index));
+			} else {
+				map.set(translated, SpectrumCalculations.sumValuesInList(ds.getScanData().get(index), start, stop));
+			}
 		});
 		maptask.setName("Examining Spectra");
 		
@@ -153,7 +212,7 @@ public class Mapping {
 			timerPost.run();
 			
 			//build the RawMapSet now that the map Spectrum has been populated
-			RawMap rawmap = new RawMap(new DummyTransitionSeries("Channel " + channel), map);
+			RawMap rawmap = new RawMap(new DummyTransitionSeries(title), map);
 			return new RawMapSet(
 					Collections.singletonList(rawmap), 
 					finalMapsize, 
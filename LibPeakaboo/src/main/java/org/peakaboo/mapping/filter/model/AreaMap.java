@@ -12,6 +12,7 @@ import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
 import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumQuantiles;
 
 public class AreaMap {
 
@@ -22,6 +23,9 @@ public class AreaMap {
 	
 	private Coord<Bounds<Number>> realDimensions;
 	
+	//calculated from the data the first time it is requested
+	private SpectrumQuantiles quantiles;
+	
 	
 	public AreaMap(ReadOnlySpectrum data, Element e, Coord<Integer> size, Coord<Bounds<Number>> realDims) {
 		this(data, Collections.singletonList(e), size, realDims);
@@ -60,6 +64,17 @@ public class AreaMap {
 		return size;
 	}	
 	
+	/**
+	 * Returns the order statistics (percentiles, maximum, etc) of this map's data.
+	 * These are calculated once and kept with the map.
+	 */
+	public synchronized SpectrumQuantiles getQuantiles() {
+		if (quantiles == null) {
+			quantiles = new SpectrumQuantiles(data);
+		}
+		return quantiles;
+	}
+	
 	public Coord<Bounds<Number>> getRealDimensions() {
 		return realDimensions;
 	}
@@ -76,6 +91,9 @@ public class AreaMap {
 			throw new IllegalArgumentException("Size mismatch");
 		}
 		this.data = SpectrumCalculations.addLists(this.data, other.data);
+		synchronized (this) {
+			this.quantiles = null;
+		}
 	}
 	
 
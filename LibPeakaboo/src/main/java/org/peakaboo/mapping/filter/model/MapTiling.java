@@ -0,0 +1,199 @@
+package org.peakaboo.mapping.filter.model;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs neighbourhood (stencil) filters over a map in parallel. The map is split
+ * into bands of rows called tiles, which are processed with fork/join. Each tile
+ * is copied into its own buffer along with a halo of <tt>radius</tt> extra
+ * pixels on every side, so a stencil can read any neighbour within its radius
+ * by plain index arithmetic without checking the map's bounds. Halo pixels which
+ * fall outside of the map hold 0 and are flagged as such in
+ * {@link Tile#inside}. With a radius of 0 there is no halo, and tiles read
+ * the source directly instead of copying it.
+ *
+ * @author NAS
+ *
+ */
+public class MapTiling {
+	
+	//rough number of pixels in a tile before it is worth splitting
+	private static final int TILE_PIXELS = 1 << 14;
+	
+	//shared and never written, for the inside flags of tiles without a halo
+	private static volatile float[] ones = new float[0];
+	
+	/**
+	 * A band of map rows plus the surrounding halo. Pixel (x, y) of the band is
+	 * stored at <tt>(y + radius) * stride + (x + radius)</tt>, so the neighbour
+	 * at (dx, dy) of the pixel at index i is at <tt>i + dy * stride + dx</tt>.
+	 * Tiles without a halo are the whole source map, so there pixel (x, y) of
+	 * the map is at <tt>y * stride + x</tt>.
+	 */
+	public static class Tile {
+		
+		/**
+		 * Pixel values, 0 outside of the map
+		 */
+		public final float[] values;
+		
+		/**
+		 * 1 for pixels inside of the map, 0 for halo pixels beyond its edges
+		 */
+		public final float[] inside;
+		
+		/**
+		 * The distance between vertically adjacent pixels
+		 */
+		public final int stride;
+		
+		//the index of the first pixel of the band's first row
+		private final int origin;
+		
+		private Tile(float[] values, float[] inside, int stride, int origin) {
+			this.values = values;
+			this.inside = inside;
+			this.stride = stride;
+			this.origin = origin;
+		}
+	
+	}
+	
+	@FunctionalInterface
+	public interface Stencil {
+		
+		/**
+		 * Calculates one row of output.
+		 *
+		 * @param tile the tile containing the row and its neighbourhood
+		 * @param from the index in the tile of the first pixel in the row
+		 * @param target the array to write the results to
+		 * @param to the index in target for the first pixel in the row
+		 * @param width the number of pixels in the row
+		 */
+		void row(Tile tile, int from, float[] target, int to, int width);
+	
+	}
+	
+	private final int width, height, radius;
+	
+	/**
+	 * Creates a tiling for maps of the given dimensions, where stencils read
+	 * neighbours up to radius pixels away in each direction
+	 */
+	public MapTiling(int width, int height, int radius) {
+		if (radius < 0) {
+			throw new IllegalArgumentException("Stencil radius cannot be negative");
+		}
+		this.width = width;
+		this.height = height;
+		this.radius = radius;
+	}
+	
+	/**
+	 * Applies the stencil to every pixel of the source and writes the results to
+	 * the target. The source is not modified, and must not be the same array as
+	 * the target.
+	 */
+	public void apply(float[] source, float[] target, Stencil stencil) {
+		if (source == target) {
+			throw new IllegalArgumentException("Source and target must be different arrays");
+		}
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		int rows = Math.max(1, TILE_PIXELS / width);
+		new TileTask(source, target, stencil, 0, height, rows).invoke();
+	}
+	
+	/**
+	 * Applies the stencil the given number of times, each pass reading the
+	 * output of the one before. The source is not modified.
+	 *
+	 * @return a new array containing the result of the last pass
+	 */
+	public float[] apply(float[] source, Stencil stencil, int repetitions) {
+		float[] target = new float[width * height];
+		float[] spare = null;
+		for (int rep = 0; rep < repetitions; rep++) {
+			apply(source, target, stencil);
+			if (rep + 1 < repetitions) {
+				if (spare == null) {
+					spare = new float[target.length];
+				}
+				source = target;
+				target = spare;
+				spare = source;
+			}
+		}
+		return target;
+	}
+	
+	private Tile load(float[] source, int first, int last) {
+		if (radius == 0) {
+			return new Tile(source, ones(source.length), width, first * width);
+		}
+		
+		int stride = width + 2 * radius;
+		int rows = last - first + 2 * radius;
+		float[] values = new float[rows * stride];
+		float[] inside = new float[rows * stride];
+		for (int row = 0; row < rows; row++) {
+			int y = first - radius + row;
+			if (y < 0 || y >= height) {
+				continue;
+			}
+			int start = row * stride + radius;
+			System.arraycopy(source, y * width, values, start, width);
+			Arrays.fill(inside, start, start + width, 1f);
+		}
+		return new Tile(values, inside, stride, radius * stride + radius);
+	}
+	
+	private static float[] ones(int length) {
+		float[] shared = ones;
+		if (shared.length < length) {
+			shared = new float[length];
+			Arrays.fill(shared, 1f);
+			ones = shared;
+		}
+		return shared;
+	}
+	
+	private class TileTask extends RecursiveAction {
+		
+		private final float[] source, target;
+		private final Stencil stencil;
+		private final int first, last, rows;
+		
+		TileTask(float[] source, float[] target, Stencil stencil, int first, int last, int rows) {
+			this.source = source;
+			this.target = target;
+			this.stencil = stencil;
+			this.first = first;
+			this.last = last;
+			this.rows = rows;
+		}
+		
+		@Override
+		protected void compute() {
+			if (last - first > rows) {
+				int middle = (first + last) >>> 1;
+				invokeAll(
+						new TileTask(source, target, stencil, first, middle, rows),
+						new TileTask(source, target, stencil, middle, last, rows)
+					);
+				return;
+			}
+			
+			Tile tile = load(source, first, last);
+			for (int y = first; y < last; y++) {
+				int from = tile.origin + (y - first) * tile.stride;
+				stencil.row(tile, from, target, y * width, width);
+			}
+		}
+	
+	}
+
+}
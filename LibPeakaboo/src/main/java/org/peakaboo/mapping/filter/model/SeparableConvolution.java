@@ -0,0 +1,336 @@
+package org.peakaboo.mapping.filter.model;
+
+import java.util.Arrays;
+
+/**
+ * Applies a separable convolution kernel to a map as two one-dimensional passes,
+ * one along the rows and one along the columns. A (2r+1)x(2r+1) kernel then
+ * costs 2(2r+1) rather than (2r+1)^2 operations per pixel. Columns are
+ * transposed into rows for the second pass so that both passes read memory in
+ * order. Rows are processed in parallel by {@link MapTiling}.
+ * <br/><br/>
+ * Like the two-dimensional filters, kernel entries falling outside of the map
+ * are left out, and the result is divided by the sum of the entries which were
+ * used. Negative results are clipped to 0.
+ * <br/><br/>
+ * When the kernel and the map have no negative values, the clipping after each
+ * repetition never does anything. Repetitions are then fused: each dimension is
+ * convolved once with the kernel convolved with itself once per repetition.
+ * Pixels near the edges, which are affected by the changing divisor, are
+ * repeated pass by pass so that the result matches repeating the filter.
+ *
+ * @author NAS
+ *
+ */
+public class SeparableConvolution {
+	
+	//entries with error above this fraction of the largest entry are not separable
+	private static final float TOLERANCE = 1e-6f;
+	
+	private final float[] vertical, horizontal;
+	
+	private SeparableConvolution(float[] vertical, float[] horizontal) {
+		this.vertical = vertical;
+		this.horizontal = horizontal;
+	}
+	
+	/**
+	 * Splits a square kernel with an odd width into vertical and horizontal
+	 * kernels whose product is the original. Returns null if the kernel is not
+	 * separable.
+	 */
+	public static SeparableConvolution of(float[][] kernel) {
+		int size = kernel.length;
+		if (size % 2 == 0) {
+			return null;
+		}
+		
+		//the largest entry is used as the pivot to keep the division accurate
+		int p = 0, q = 0;
+		float largest = 0;
+		for (int i = 0; i < size; i++) {
+			if (kernel[i].length != size) {
+				return null;
+			}
+			for (int j = 0; j < size; j++) {
+				if (Math.abs(kernel[i][j]) > largest) {
+					largest = Math.abs(kernel[i][j]);
+					p = i;
+					q = j;
+				}
+			}
+		}
+		if (largest == 0 || Float.isInfinite(largest) || Float.isNaN(largest)) {
+			return null;
+		}
+		
+		float[] vertical = new float[size];
+		float[] horizontal = Arrays.copyOf(kernel[p], size);
+		for (int i = 0; i < size; i++) {
+			vertical[i] = kernel[i][q] / kernel[p][q];
+		}
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (Math.abs(vertical[i] * horizontal[j] - kernel[i][j]) > largest * TOLERANCE) {
+					return null;
+				}
+			}
+		}
+		
+		return new SeparableConvolution(vertical, horizontal);
+	}
+	
+	/**
+	 * Convolves the source the given number of times and returns the result in a
+	 * new array. The source is not modified.
+	 */
+	public float[] apply(float[] source, int width, int height, int repetitions) {
+		int size = width * height;
+		float[] a = new float[size];
+		float[] b = new float[size];
+		if (size == 0 || repetitions <= 0) {
+			System.arraycopy(source, 0, b, 0, size);
+			return b;
+		}
+		
+		boolean fused = repetitions > 1 && fusable(horizontal) && fusable(vertical) && nonNegative(source, size);
+		int rounds = fused ? 1 : repetitions;
+		int passes = fused ? repetitions : 1;
+		
+		//fused passes divide by the kernel weights as they go, otherwise it's done once at the end
+		float[] columnWeights = fused ? null : weights(horizontal, width);
+		float[] rowWeights = fused ? null : weights(vertical, height);
+		
+		//ping-pong between the two buffers, reading the last round's result from b
+		float[] input = source;
+		for (int round = 0; round < rounds; round++) {
+			convolveRows(input, a, width, height, horizontal, passes, fused);
+			transpose(a, b, width, height);
+			convolveRows(b, a, height, width, vertical, passes, fused);
+			finish(a, b, width, height, columnWeights, rowWeights);
+			input = b;
+		}
+		return b;
+	}
+	
+	private static boolean fusable(float[] kernel) {
+		float sum = 0;
+		for (float k : kernel) {
+			if (!(k >= 0)) { return false; }
+			sum += k;
+		}
+		return sum > 0 && !Float.isInfinite(sum);
+	}
+	
+	private static boolean nonNegative(float[] values, int size) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] < 0) { return false; }
+		}
+		return true;
+	}
+	
+	/**
+	 * For each position along a line of the given length, the sum of the kernel
+	 * entries which fall inside of the line
+	 */
+	private static float[] weights(float[] kernel, int length) {
+		int r = kernel.length / 2;
+		float[] weights = new float[length];
+		for (int x = 0; x < length; x++) {
+			float sum = 0;
+			for (int j = 0; j < kernel.length; j++) {
+				int p = x + j - r;
+				if (p >= 0 && p < length) { sum += kernel[j]; }
+			}
+			weights[x] = sum;
+		}
+		return weights;
+	}
+	
+	/**
+	 * Convolves each row of the source with the one-dimensional kernel the given
+	 * number of times and writes the results to the target.
+	 */
+	private static void convolveRows(float[] source, float[] target, int length, int rows, float[] kernel, int passes, boolean normalize) {
+		MapTiling.Stencil stencil;
+		if (passes == 1) {
+			float[] weights = normalize ? weights(kernel, length) : null;
+			stencil = (tile, from, out, to, width) -> {
+				convolve(tile.values, from, out, to, width, kernel, weights);
+			};
+		} else {
+			stencil = new FusedStencil(kernel, passes, length);
+		}
+		new MapTiling(length, rows, 0).apply(source, target, stencil);
+	}
+	
+	/**
+	 * Convolves one line with the kernel. Entries falling outside of the line are
+	 * left out. If weights are given, each result is divided by its weight.
+	 */
+	private static void convolve(float[] in, int from, float[] out, int to, int length, float[] kernel, float[] weights) {
+		int r = kernel.length / 2;
+		
+		//skip the kernel entries which would read outside of the line
+		for (int x = 0; x < length; x++) {
+			int first = Math.max(0, r - x);
+			int last = Math.min(kernel.length, length - x + r);
+			int start = from + x - r;
+			float sum = 0;
+			for (int j = first; j < last; j++) {
+				sum += in[start+j] * kernel[j];
+			}
+			out[to+x] = weights == null ? sum : sum / weights[x];
+		}
+	}
+	
+	/**
+	 * Repeats a normalized one-dimensional convolution by convolving once with
+	 * the fused kernel, except near the ends of the line, where the passes are
+	 * repeated one at a time.
+	 */
+	private static class FusedStencil implements MapTiling.Stencil {
+		
+		//two work lines per thread for the pixels whose passes are repeated one at a time
+		private static final ThreadLocal<float[][]> SCRATCH = ThreadLocal.withInitial(() -> new float[][] {new float[0], new float[0]});
+		
+		private final float[] kernel, fused;
+		private final int passes, length, reach;
+		private final float[] lineWeights, endWeights;
+		
+		FusedStencil(float[] kernel, int passes, int length) {
+			this.kernel = kernel;
+			this.passes = passes;
+			this.length = length;
+			
+			//normalize, then convolve the kernel with itself once per pass
+			float sum = 0;
+			for (float k : kernel) { sum += k; }
+			float[] normalized = new float[kernel.length];
+			for (int j = 0; j < kernel.length; j++) {
+				normalized[j] = kernel[j] / sum;
+			}
+			float[] fused = normalized;
+			for (int pass = 1; pass < passes; pass++) {
+				float[] next = new float[fused.length + normalized.length - 1];
+				for (int i = 0; i < fused.length; i++) {
+					for (int j = 0; j < normalized.length; j++) {
+						next[i+j] += fused[i] * normalized[j];
+					}
+				}
+				fused = next;
+			}
+			this.fused = fused;
+			this.reach = fused.length / 2;
+			
+			this.lineWeights = weights(kernel, length);
+			this.endWeights = weights(kernel, Math.min(length, 2*reach));
+		}
+		
+		@Override
+		public void row(MapTiling.Tile tile, int from, float[] target, int to, int width) {
+			float[] in = tile.values;
+			
+			//short lines have no interior, so repeat every pass over the whole line
+			if (length <= 4*reach) {
+				float[] line = repeat(in, from, length, lineWeights);
+				System.arraycopy(line, 0, target, to, length);
+				return;
+			}
+			
+			//pixels at least reach away from both ends only see full kernels on every pass
+			for (int x = reach; x < length - reach; x++) {
+				float sum = 0;
+				int start = from + x - reach;
+				for (int j = 0; j < fused.length; j++) {
+					sum += in[start+j] * fused[j];
+				}
+				target[to+x] = sum;
+			}
+			
+			/*
+			 * Each pass spreads the effect of a line's end by the kernel's radius. Repeating
+			 * the passes over the first 2*reach pixels gives correct values for the first
+			 * reach pixels, since the false end of this shortened line can't reach them.
+			 */
+			float[] start = repeat(in, from, 2*reach, endWeights);
+			System.arraycopy(start, 0, target, to, reach);
+			
+			//the weights are symmetric, so the same ones serve the far end
+			float[] end = repeat(in, from + length - 2*reach, 2*reach, endWeights);
+			System.arraycopy(end, reach, target, to + length - reach, reach);
+		}
+		
+		/*
+		 * Repeats every pass over count pixels of the input, starting at from. The
+		 * result is left in one of this thread's work lines, which is returned and
+		 * only holds it until the next call.
+		 */
+		private float[] repeat(float[] in, int from, int count, float[] weights) {
+			float[][] lines = SCRATCH.get();
+			if (lines[0].length < count) {
+				lines[0] = new float[count];
+				lines[1] = new float[count];
+			}
+			float[] line = lines[0], scratch = lines[1];
+			convolve(in, from, line, 0, count, kernel, weights);
+			for (int pass = 1; pass < passes; pass++) {
+				convolve(line, 0, scratch, 0, count, kernel, weights);
+				float[] swap = line;
+				line = scratch;
+				scratch = swap;
+			}
+			return line;
+		}
+	
+	}
+	
+	/**
+	 * Writes the transpose of the width x height source to the target, so that
+	 * column x of the source becomes row x of the target
+	 */
+	private static void transpose(float[] source, float[] target, int width, int height) {
+		//work in blocks to keep both arrays' accesses within a few cache lines
+		int block = 32;
+		for (int by = 0; by < height; by += block) {
+			for (int bx = 0; bx < width; bx += block) {
+				int ey = Math.min(by + block, height);
+				int ex = Math.min(bx + block, width);
+				for (int y = by; y < ey; y++) {
+					for (int x = bx; x < ex; x++) {
+						target[x * height + y] = source[y * width + x];
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Transposes the height x width result of the column pass back into the
+	 * width x height target, dividing by the kernel weights if they are given and
+	 * clipping negative values.
+	 */
+	private static void finish(float[] source, float[] target, int width, int height, float[] columnWeights, float[] rowWeights) {
+		int block = 32;
+		for (int by = 0; by < height; by += block) {
+			for (int bx = 0; bx < width; bx += block) {
+				int ey = Math.min(by + block, height);
+				int ex = Math.min(bx + block, width);
+				for (int y = by; y < ey; y++) {
+					for (int x = bx; x < ex; x++) {
+						float value = source[x * height + y];
+						if (columnWeights != null) {
+							float count = columnWeights[x] * rowWeights[y];
+							if (count == 0) {
+								count = 0.01f;
+							}
+							value /= count;
+						}
+						target[y * width + x] = Math.max(0, value);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -3,13 +3,10 @@ package org.peakaboo.mapping.filter.plugin.plugins;
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.IntegerSpinnerStyle;
 import org.peakaboo.framework.autodialog.model.style.editors.RealSpinnerStyle;
-import org.peakaboo.framework.cyclops.GridPerspective;
-import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
-import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
-import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.mapping.filter.model.AreaMap;
+import org.peakaboo.mapping.filter.model.MapTiling;
+import org.peakaboo.mapping.filter.model.SeparableConvolution;
 
-public abstract class AbstractConvolvingMapFilter extends AbstractMapFilter {
+public abstract class AbstractConvolvingMapFilter extends AbstractStencilMapFilter {
 
 
 	/**
@@ -47,49 +44,53 @@ public abstract class AbstractConvolvingMapFilter extends AbstractMapFilter {
 	protected abstract float[][] getKernel(float intensity);
 	
 	@Override
-	public AreaMap filter(AreaMap source) {
-		ReadOnlySpectrum data = source.getData();
-		Spectrum filtered = new ISpectrum(data.size());
-		GridPerspective<Float> grid = new GridPerspective<Float>(source.getSize().x, source.getSize().y, 0f);
-
-		//apply the intenisty value to 
+	protected int getRadius() {
+		return reach;
+	}
+	
+	@Override
+	protected int getRepetitions() {
+		return reps.getValue();
+	}
+	
+	@Override
+	protected float[] filter(float[] values, int width, int height) {
+		//separable kernels can be run as a row pass and a column pass instead
+		SeparableConvolution separable = SeparableConvolution.of(getKernel(intensity.getValue()));
+		if (separable != null) {
+			return separable.apply(values, width, height, getRepetitions());
+		}
+		return super.filter(values, width, height);
+	}
+	
+	@Override
+	protected MapTiling.Stencil getStencil() {
 		float[][] kernel = getKernel(intensity.getValue());
+		return (tile, from, target, to, width) -> {
+			float[] values = tile.values;
+			float[] inside = tile.inside;
+			for (int i = 0; i < width; i++) {
 				
-		for (int rep = 0; rep < reps.getValue(); rep++) {
-		
-			for (int y = 0; y < source.getSize().y; y++) {
-				for (int x = 0; x < source.getSize().x; x++) {
-	
-					float sum = 0f;
-					float count = 0;
-					
-					for (int dy = -reach; dy <= reach; dy++) {
-						int py = y+dy;
-						for (int dx = -reach; dx <= reach; dx++) {
-							int px = x+dx;
-							if (!grid.boundsCheck(px, py)) {
-								continue;
-							}
-							float kval = kernel[reach+dy][reach+dx];
-							sum += grid.get(data, px, py)*kval;
-							count += kval;
-						}
-					}
-					
-					if (count == 0) {
-						count = 0.01f;
+				//pixels outside of the map have a value of 0 and don't count towards the total weight
+				float sum = 0f;
+				float count = 0;
+				for (int dy = -reach; dy <= reach; dy++) {
+					float[] krow = kernel[reach+dy];
+					int row = from + i + dy*tile.stride;
+					for (int dx = -reach; dx <= reach; dx++) {
+						float kval = krow[reach+dx];
+						sum += values[row+dx]*kval;
+						count += inside[row+dx]*kval;
 					}
-					float newValue = Math.max(0, sum/count);
-					grid.set(filtered, x, y, newValue);
-					
 				}
+				
+				if (count == 0) {
+					count = 0.01f;
+				}
+				target[to+i] = Math.max(0, sum/count);
+				
 			}
-			
-			data = filtered;
-			
-		}
-		
-		return new AreaMap(filtered, source);
+		};
 	}
 
 	@Override
@@ -0,0 +1,57 @@
+package org.peakaboo.mapping.filter.plugin.plugins;
+
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.mapping.filter.model.AreaMap;
+import org.peakaboo.mapping.filter.model.MapTiling;
+
+/**
+ * Base class for filters which calculate each pixel from the pixels around it.
+ * Subclasses declare how far from a pixel they read and provide a
+ * {@link MapTiling.Stencil} to do the calculation. The map is split into tiles
+ * which are filtered in parallel, and the map's edges are handled by
+ * {@link MapTiling}.
+ *
+ * @author NAS
+ *
+ */
+public abstract class AbstractStencilMapFilter extends AbstractMapFilter {
+	
+	/**
+	 * The furthest distance in pixels, horizontally or vertically, that the
+	 * stencil reads from the pixel it is calculating
+	 */
+	protected abstract int getRadius();
+	
+	/**
+	 * The number of times the stencil should be applied, with each pass reading
+	 * the output of the one before
+	 */
+	protected int getRepetitions() {
+		return 1;
+	}
+	
+	/**
+	 * Returns the stencil for the current parameter values
+	 */
+	protected abstract MapTiling.Stencil getStencil();
+	
+	@Override
+	public AreaMap filter(AreaMap source) {
+		ReadOnlySpectrum data = source.getData();
+		float[] values = data instanceof Spectrum ? ((Spectrum) data).backingArray() : data.backingArrayCopy();
+		float[] filtered = filter(values, source.getSize().x, source.getSize().y);
+		return new AreaMap(new ISpectrum(filtered, false), source);
+	}
+	
+	/**
+	 * Filters the given width x height map values, returning the result in a new
+	 * array. The values must not be modified.
+	 */
+	protected float[] filter(float[] values, int width, int height) {
+		MapTiling tiling = new MapTiling(width, height, getRadius());
+		return tiling.apply(values, getStencil(), getRepetitions());
+	}
+
+}
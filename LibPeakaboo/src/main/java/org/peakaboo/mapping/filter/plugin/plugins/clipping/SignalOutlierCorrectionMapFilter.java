@@ -1,12 +1,11 @@
 package org.peakaboo.mapping.filter.plugin.plugins.clipping;
 
-import java.util.Arrays;
-
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.RealSpinnerStyle;
 import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumQuantiles;
 import org.peakaboo.mapping.filter.model.AreaMap;
 import org.peakaboo.mapping.filter.plugin.MapFilterDescriptor;
 import org.peakaboo.mapping.filter.plugin.plugins.AbstractMapFilter;
@@ -40,14 +39,13 @@ public class SignalOutlierCorrectionMapFilter extends AbstractMapFilter {
 	@Override
 	public AreaMap filter(AreaMap source) {
 		
-		float[] sorted = source.getData().backingArrayCopy();
-		Arrays.sort(sorted);
-		int index = Math.round((sorted.length-1) * (100f-percent.getValue()) / 100f );
+		SpectrumQuantiles quantiles = source.getQuantiles();
+		int index = Math.round((quantiles.size()-1) * (100f-percent.getValue()) / 100f );
 		//bounds check the index, and we have to trim at least 1 pixel
-		if (index == sorted.length-1) { index = sorted.length-2; }
+		if (index == quantiles.size()-1) { index = quantiles.size()-2; }
 		if (index < 0) { index = 0; }
 		
-		float cap = sorted[index];
+		float cap = quantiles.value(index);
 		
 		ReadOnlySpectrum olddata = source.getData();
 		Spectrum newdata = new ISpectrum(olddata.size());
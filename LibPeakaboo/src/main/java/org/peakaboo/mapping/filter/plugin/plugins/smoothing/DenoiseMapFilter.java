@@ -2,15 +2,11 @@ package org.peakaboo.mapping.filter.plugin.plugins.smoothing;
 
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.RealSpinnerStyle;
-import org.peakaboo.framework.cyclops.GridPerspective;
-import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
-import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
-import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.mapping.filter.model.AreaMap;
+import org.peakaboo.mapping.filter.model.MapTiling;
 import org.peakaboo.mapping.filter.plugin.MapFilterDescriptor;
-import org.peakaboo.mapping.filter.plugin.plugins.AbstractMapFilter;
+import org.peakaboo.mapping.filter.plugin.plugins.AbstractStencilMapFilter;
 
-public class DenoiseMapFilter extends AbstractMapFilter {
+public class DenoiseMapFilter extends AbstractStencilMapFilter {
 
 	Parameter<Float> paramThreshold;
 	
@@ -40,21 +36,24 @@ public class DenoiseMapFilter extends AbstractMapFilter {
 	}
 	
 	@Override
-	public AreaMap filter(AreaMap source) {
-		ReadOnlySpectrum data = source.getData();
-		Spectrum filtered = new ISpectrum(data);
-		GridPerspective<Float> grid = new GridPerspective<Float>(source.getSize().x, source.getSize().y, 0f);
-		
+	protected int getRadius() {
+		return 1;
+	}
+	
+	@Override
+	protected MapTiling.Stencil getStencil() {
 		float threshold = paramThreshold.getValue();
+		int delta[] = {-1, 0, 1};
 		
-		for (int y = 0; y < source.getSize().y; y++) {
-			for (int x = 0; x < source.getSize().x; x++) {
+		return (tile, from, target, to, width) -> {
+			float[] values = tile.values;
+			float[] inside = tile.inside;
+			for (int i = 0; i < width; i++) {
 
+				int centre = from + i;
 				float sum = 0f;
 				int count = 0;
-				float value = grid.get(data, x, y);
-				
-				int delta[] = {-1, 0, 1};
+				float value = values[centre];
 				boolean replace = true;
 				
 				average: 
@@ -64,12 +63,9 @@ public class DenoiseMapFilter extends AbstractMapFilter {
 							continue;
 						}
 						
-						int px = x+dx;
-						int py = y+dy;
-						float pvalue;
-						
-						if (grid.boundsCheck(px, py)) {
-							pvalue = grid.get(data, px, py);
+						int p = centre + dy*tile.stride + dx;
+						if (inside[p] != 0f) {
+							float pvalue = values[p];
 							sum += pvalue; 
 							count ++;
 							
@@ -82,19 +78,16 @@ public class DenoiseMapFilter extends AbstractMapFilter {
 					}
 				}
 
+				target[to+i] = value;
 				if (replace) {
 					float average = sum/count;
 					if (value < average/threshold || value > average*threshold) {
-						grid.set(filtered, x, y, average);
+						target[to+i] = average;
 					}	
 				}
 				
-				
 			}
-		}
-
-		
-		return new AreaMap(filtered, source);
+		};
 	}
 
 	@Override
@@ -17,7 +17,7 @@ public class FastAverageMapFilter extends AbstractConvolvingMapFilter {
 
 	@Override
 	public String getFilterDescription() {
-		return "The Fast Average filter is a simple filter which calculates a 9-point (3x3) average for each point.";
+		return "The Fast Average filter is a simple filter which calculates a 9-point (3x3) average for each point. Each repetition averages the complete output of the one before, so maps filtered with more than one repetition differ slightly from earlier versions of Peakaboo, which fed partly updated values back into the same pass.";
 	}
 
 
@@ -2,15 +2,11 @@ package org.peakaboo.mapping.filter.plugin.plugins.smoothing;
 
 import org.peakaboo.framework.autodialog.model.Parameter;
 import org.peakaboo.framework.autodialog.model.style.editors.IntegerSpinnerStyle;
-import org.peakaboo.framework.cyclops.GridPerspective;
-import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
-import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
-import org.peakaboo.framework.cyclops.spectrum.Spectrum;
-import org.peakaboo.mapping.filter.model.AreaMap;
+import org.peakaboo.mapping.filter.model.MapTiling;
 import org.peakaboo.mapping.filter.plugin.MapFilterDescriptor;
-import org.peakaboo.mapping.filter.plugin.plugins.AbstractMapFilter;
+import org.peakaboo.mapping.filter.plugin.plugins.AbstractStencilMapFilter;
 
-public class WeightedAverageMapFilter extends AbstractMapFilter{
+public class WeightedAverageMapFilter extends AbstractStencilMapFilter {
 
 	Parameter<Integer> radius;
 	Parameter<Integer> reps;
@@ -22,7 +18,7 @@ public class WeightedAverageMapFilter extends AbstractMapFilter{
 
 	@Override
 	public String getFilterDescription() {
-		return "The Weighted Average filter performs a weighted average within a given radius, favouring closer points more than points farther away";
+		return "The Weighted Average filter performs a weighted average within a given radius, favouring closer points more than points farther away. Each repetition averages the complete output of the one before, so maps filtered with more than one repetition differ slightly from earlier versions of Peakaboo, which fed partly updated values back into the same pass.";
 	}
 
 	@Override
@@ -45,65 +41,76 @@ public class WeightedAverageMapFilter extends AbstractMapFilter{
 	}
 	
 	@Override
-	public AreaMap filter(AreaMap source) {
-		ReadOnlySpectrum data = source.getData();
-		Spectrum filtered = new ISpectrum(data.size());
-		GridPerspective<Float> grid = new GridPerspective<Float>(source.getSize().x, source.getSize().y, 0f);
-
+	protected int getRadius() {
+		return radius.getValue();
+	}
+	
+	@Override
+	protected int getRepetitions() {
+		return reps.getValue();
+	}
+	
+	@Override
+	protected MapTiling.Stencil getStencil() {
 		int r = radius.getValue();
 		
-		for (int rep = 0; rep < reps.getValue(); rep++) {
-		
-			for (int y = 0; y < source.getSize().y; y++) {
-				for (int x = 0; x < source.getSize().x; x++) {
-					
-					float sum = 0f;
-					float weights = 0f;
-					
-					for (int dy = -r; dy <= +r; dy++) {
-						int sy = y+dy;
-						for (int dx = -r; dx <= +r; dx++) {
-							int sx = x+dx;
-														
-							//don't include oob points
-							if (!grid.boundsCheck(sx, sy)) {
-								continue;
-							}
-							
-							// do a fast distance check to avoid unneeded sqrt calls
-							// this rough distance should never be less than the pythagorean distance,
-							// although when x or y = 0, it will be equal.
-							int roughdist = Math.abs(dx) + Math.abs(dy);
-							if (roughdist > r+1f) { continue; }
-							
-							
-							//calculate weight for this point and do a proper distance check
-							double dist = Math.sqrt(dx*dx+dy*dy);
-							float weight = (float) (r+1f - dist);
-							if (weight < 0) { continue; }
-							
-							//normalize and square the weight to give extra weight to the central points
-							float maxweight = r+1f;
-							weight = (weight/maxweight);
-							weight *= weight;
-							
-							//add to the sum
-							sum += grid.get(data, sx, sy) * weight;
-							weights += weight;
-						}
-					}
-					
-					grid.set(filtered, x, y, sum/weights);
-					
-				}
+		//the weights only depend on the offset from the centre, so they are worked out once up front
+		int[] dxs = new int[(2*r+1)*(2*r+1)];
+		int[] dys = new int[dxs.length];
+		float[] pointWeights = new float[dxs.length];
+		int points = 0;
+		for (int dy = -r; dy <= +r; dy++) {
+			for (int dx = -r; dx <= +r; dx++) {
+				
+				// do a fast distance check to avoid unneeded sqrt calls
+				// this rough distance should never be less than the pythagorean distance,
+				// although when x or y = 0, it will be equal.
+				int roughdist = Math.abs(dx) + Math.abs(dy);
+				if (roughdist > r+1f) { continue; }
+				
+				
+				//calculate weight for this point and do a proper distance check
+				double dist = Math.sqrt(dx*dx+dy*dy);
+				float weight = (float) (r+1f - dist);
+				if (weight < 0) { continue; }
+				
+				//normalize and square the weight to give extra weight to the central points
+				float maxweight = r+1f;
+				weight = (weight/maxweight);
+				weight *= weight;
+				
+				dxs[points] = dx;
+				dys[points] = dy;
+				pointWeights[points] = weight;
+				points++;
 			}
-			
-			data = filtered;
-			
 		}
-
+		int count = points;
 		
-		return new AreaMap(filtered, source);
+		return (tile, from, target, to, width) -> {
+			float[] values = tile.values;
+			float[] inside = tile.inside;
+			int[] offsets = new int[count];
+			for (int j = 0; j < count; j++) {
+				offsets[j] = dys[j]*tile.stride + dxs[j];
+			}
+			
+			for (int i = 0; i < width; i++) {
+				int centre = from + i;
+				float sum = 0f;
+				float weights = 0f;
+				
+				//pixels outside of the map have a value of 0 and don't count towards the total weight
+				for (int j = 0; j < count; j++) {
+					int p = centre + offsets[j];
+					float weight = pointWeights[j];
+					sum += values[p] * weight;
+					weights += inside[p] * weight;
+				}
+				
+				target[to+i] = sum/weights;
+			}
+		};
 	}
 
 	@Override
@@ -0,0 +1,111 @@
+package org.peakaboo.curvefit.curve.fitting.solver;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NonNegativeLeastSquaresTest {
+	
+	@Test
+	public void unconstrainedSolution() {
+		//the least squares solution is already non-negative
+		double[] x = solve(new double[][] {{1, 0}, {1, 0}, {0, 1}}, new double[] {2, 1, 1});
+		Assert.assertArrayEquals(new double[] {1.5, 1}, x, 1e-9);
+	}
+	
+	@Test
+	public void clampedVariable() {
+		double[] x = solve(new double[][] {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}}, new double[] {1, -2, 3});
+		Assert.assertArrayEquals(new double[] {1, 0, 3}, x, 1e-9);
+	}
+	
+	@Test
+	public void stepsBackOutOfInfeasibleSolution() {
+		/*
+		 * The least squares solution is (4, -1). The second column is chosen first,
+		 * then adding the first makes the second negative, so the solver has to step
+		 * back and drop it, leaving the mean of b.
+		 */
+		double[] x = solve(new double[][] {{1, 1}, {1, 2}, {1, 3}}, new double[] {3, 2, 1});
+		Assert.assertArrayEquals(new double[] {2, 0}, x, 1e-9);
+	}
+	
+	@Test
+	public void degenerateColumns() {
+		double[][] a = {{1, 1}, {1, 1}, {0, 0}};
+		double[] x = solve(a, new double[] {2, 2, 0});
+		Assert.assertEquals(2, x[0] + x[1], 1e-9);
+		Assert.assertTrue(x[0] >= 0 && x[1] >= 0);
+	}
+	
+	@Test
+	public void zeroProblem() {
+		double[] x = solve(new double[][] {{1, 2}, {3, 4}}, new double[] {0, 0});
+		Assert.assertArrayEquals(new double[] {0, 0}, x, 0);
+	}
+	
+	@Test
+	public void satisfiesOptimalityConditions() {
+		Random random = new Random(2009);
+		NonNegativeLeastSquares.Workspace workspace = new NonNegativeLeastSquares.Workspace(8);
+		double[] x = new double[8];
+		for (int trial = 0; trial < 500; trial++) {
+			double[][] a = new double[20][8];
+			double[] b = new double[20];
+			for (int r = 0; r < 20; r++) {
+				for (int c = 0; c < 8; c++) {
+					a[r][c] = random.nextGaussian();
+				}
+				b[r] = random.nextGaussian() * 10;
+			}
+			double[][] gram = gram(a);
+			double[] projection = projection(a, b);
+			NonNegativeLeastSquares.solve(gram, projection, x, workspace);
+			
+			//x is feasible, and no variable can be moved to improve the fit
+			for (int i = 0; i < 8; i++) {
+				double gradient = projection[i];
+				for (int j = 0; j < 8; j++) {
+					gradient -= gram[i][j] * x[j];
+				}
+				Assert.assertFalse(Double.isNaN(x[i]));
+				Assert.assertTrue(x[i] >= 0);
+				if (x[i] > 0) {
+					Assert.assertEquals("trial " + trial, 0, gradient, 1e-6);
+				} else {
+					Assert.assertTrue("trial " + trial, gradient <= 1e-6);
+				}
+			}
+		}
+	}
+	
+	private static double[] solve(double[][] a, double[] b) {
+		return NonNegativeLeastSquares.solve(gram(a), projection(a, b));
+	}
+	
+	private static double[][] gram(double[][] a) {
+		int n = a[0].length;
+		double[][] gram = new double[n][n];
+		for (double[] row : a) {
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					gram[i][j] += row[i] * row[j];
+				}
+			}
+		}
+		return gram;
+	}
+	
+	private static double[] projection(double[][] a, double[] b) {
+		int n = a[0].length;
+		double[] projection = new double[n];
+		for (int r = 0; r < a.length; r++) {
+			for (int i = 0; i < n; i++) {
+				projection[i] += a[r][i] * b[r];
+			}
+		}
+		return projection;
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.peakaboo.curvefit.peak.fitting.functions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.curvefit.curve.fitting.FittingParameters;
+import org.peakaboo.curvefit.curve.fitting.FittingSet;
+import org.peakaboo.curvefit.peak.fitting.FittingContext;
+import org.peakaboo.curvefit.peak.fitting.FittingFunction;
+import org.peakaboo.curvefit.peak.transition.Transition;
+
+public class ConvolvingVoigtFittingFunctionTest {
+	
+	//transition energies in keV, from light elements to heavy K lines
+	private static final float[] ENERGIES = {1.5f, 6.4f, 17.5f, 32f};
+	//the ratio between the FWHM values of adjacent table buckets
+	private static final double BUCKET_RATIO = 1.02;
+	
+	@Test
+	public void matchesDirectConvolution() {
+		for (float energy : ENERGIES) {
+			for (float fwhm : fwhms(energy)) {
+				FittingParameters parameters = withFWHM(fwhm, energy);
+				Transition transition = new Transition(energy, 1f, "Test Transition");
+				FittingContext context = new FittingContext(parameters, transition, null);
+				ConvolvingVoigtFittingFunction function = new ConvolvingVoigtFittingFunction();
+				function.initialize(context);
+				DirectConvolution direct = new DirectConvolution(context);
+				
+				float height = direct.forEnergyAbsolute(energy);
+				float limit = ConvolvingVoigtFittingFunction.cutoffDistance(direct.signal);
+				for (float distance : distances(fwhm, limit)) {
+					for (float sign : new float[] {-1f, 1f}) {
+						float at = energy + sign * distance;
+						//the detector FWHM is undefined for negative energies
+						if (at < 0) continue;
+						String message = "energy " + energy + ", fwhm " + fwhm + ", distance " + (sign * distance);
+						Assert.assertEquals(message, direct.forEnergyAbsolute(at), function.forEnergyAbsolute(at), 0.005f * height);
+					}
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Detector FWHM values from the narrowest possible at the given energy to
+	 * several times that, including values on and either side of the edges
+	 * between table buckets, and halfway between two edges
+	 */
+	private static float[] fwhms(float energy) {
+		FittingParameters parameters = new FittingSet().getFittingParameters();
+		parameters.setFWMHBase(0f);
+		int first = (int) Math.ceil(Math.log(parameters.getFWHM(energy)) / Math.log(BUCKET_RATIO)) + 1;
+		int[] buckets = {first, first + 7, first + 30, first + 60};
+		float[] fwhms = new float[buckets.length * 4];
+		for (int i = 0; i < buckets.length; i++) {
+			double edge = Math.pow(BUCKET_RATIO, buckets[i]);
+			fwhms[i*4 + 0] = (float) (edge * 0.9999);
+			fwhms[i*4 + 1] = (float) edge;
+			fwhms[i*4 + 2] = (float) (edge * 1.0001);
+			fwhms[i*4 + 3] = (float) (edge * Math.sqrt(BUCKET_RATIO));
+		}
+		return fwhms;
+	}
+	
+	/*
+	 * Distances from the peak, closely spaced across the peak itself and then
+	 * spreading out to just past the point where the function is cut off. The
+	 * direct convolution gets slower with distance, so the tails are sampled
+	 * more sparsely.
+	 */
+	private static float[] distances(float fwhm, float limit) {
+		int near = 200;
+		int far = 40;
+		float[] distances = new float[near + far + 1];
+		for (int i = 0; i < near; i++) {
+			distances[i] = i * 4f * fwhm / near;
+		}
+		double ratio = Math.pow(limit / (4f * fwhm), 1.0 / far);
+		for (int i = 0; i < far; i++) {
+			distances[near + i] = (float) (4f * fwhm * Math.pow(ratio, i));
+		}
+		distances[near + far] = limit * 1.01f;
+		return distances;
+	}
+	
+	/*
+	 * Finds the base FWHM setting which gives the requested FWHM at the given
+	 * energy
+	 */
+	private static FittingParameters withFWHM(float fwhm, float energy) {
+		FittingParameters parameters = new FittingSet().getFittingParameters();
+		parameters.setFWMHBase(0f);
+		float energySigma = parameters.getFWHM(energy) / 2.35482f;
+		float sigma = fwhm / 2.35482f;
+		float noise = (float) Math.sqrt(sigma * sigma - energySigma * energySigma);
+		parameters.setFWMHBase(noise * 2.3548f);
+		Assert.assertEquals(fwhm, parameters.getFWHM(energy), 1e-5f * fwhm);
+		return parameters;
+	}
+	
+	/**
+	 * The original implementation, which convolves a new Gaussian kernel with
+	 * the signal at every energy
+	 */
+	private static class DirectConvolution {
+		
+		private final FittingContext context;
+		private final LorentzFittingFunction signal;
+		
+		DirectConvolution(FittingContext context) {
+			this.context = context;
+			signal = new LorentzFittingFunction();
+			signal.initialize(new FittingContext(context) {
+				@Override
+				public float getFWHM() {
+					return 0.010f;
+				}
+			});
+		}
+		
+		float forEnergyAbsolute(float energy) {
+			if(signal.forEnergyAbsolute(energy) < 0.0001) {
+				return 0;
+			}
+			Transition fake = new Transition(energy, 1f, "Fake Transition for Voigt Fitting Function");
+			FittingContext copy = new FittingContext(context.getFittingParameters(), fake, context.getTransitionSeriesType());
+			FittingFunction kernel = new GaussianFittingFunction();
+			kernel.initialize(copy);
+			
+			float max = kernel.forEnergyAbsolute(energy);
+			float deltaEnergy = 0f;
+			float sum = 0f;
+			float kernelValue, signalValue;
+			float normalizer = 0;
+			while (true) {
+				kernelValue = kernel.forEnergyAbsolute(energy + deltaEnergy);
+				signalValue = signal.forEnergyAbsolute(energy + deltaEnergy) + signal.forEnergyAbsolute(energy - deltaEnergy);
+				
+				if (kernelValue < 0.001f * max && kernelValue < 0.1f && signalValue < 0.2f) break;
+				
+				sum += kernelValue * signalValue;
+				normalizer += kernelValue + kernelValue;
+				
+				deltaEnergy += 0.002;
+			}
+			
+			if (normalizer == 0) {
+				return 0;
+			}
+			return sum / normalizer;
+		}
+	
+	}
+
+}
@@ -0,0 +1,103 @@
+package org.peakaboo.datasource.model.components.scandata.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+
+public class DataSourceAnalysisTest {
+	
+	private static final int CHANNELS = 64;
+	private static final int SCANS = 2000;
+	
+	@Test
+	public void stripesMergeToSerialResults() throws Exception {
+		Random random = new Random(2009);
+		float[][] scans = new float[SCANS][CHANNELS];
+		for (float[] scan : scans) {
+			for (int i = 0; i < CHANNELS; i++) {
+				scan[i] = random.nextFloat() * 1000f;
+			}
+		}
+		
+		//feed the scans from many threads, so that they are spread over the stripes
+		DataSourceAnalysis analysis = new DataSourceAnalysis();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> jobs = new ArrayList<>();
+			for (float[] scan : scans) {
+				jobs.add(pool.submit(() -> analysis.process(new ISpectrum(scan))));
+			}
+			for (Future<?> job : jobs) {
+				job.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		
+		float maxIntensity = 0;
+		for (int i = 0; i < CHANNELS; i++) {
+			double sum = 0;
+			float max = 0;
+			float[] column = new float[SCANS];
+			for (int s = 0; s < SCANS; s++) {
+				float value = scans[s][i];
+				sum += value;
+				max = Math.max(max, value);
+				column[s] = value;
+			}
+			double mean = sum / SCANS;
+			double squares = 0;
+			for (float value : column) {
+				squares += (value - mean) * (value - mean);
+			}
+			Arrays.sort(column);
+			float top = 0;
+			for (int s = SCANS - DataSourceAnalysis.TOP_COUNT; s < SCANS; s++) {
+				top += column[s];
+			}
+			top /= DataSourceAnalysis.TOP_COUNT;
+			maxIntensity = Math.max(maxIntensity, max);
+			
+			Assert.assertEquals("average " + i, mean, analysis.averagePlot().get(i), 1e-3);
+			Assert.assertEquals("maximum " + i, max, analysis.maximumPlot().get(i), 0f);
+			Assert.assertEquals("variance " + i, squares / SCANS, analysis.variancePlot().get(i), 1e-5 * squares / SCANS);
+			Assert.assertEquals("top " + i, top, analysis.topAveragePlot().get(i), 1e-3f);
+		}
+		Assert.assertEquals(maxIntensity, analysis.maximumIntensity(), 0f);
+		Assert.assertEquals(CHANNELS, analysis.channelsPerScan());
+	}
+	
+	@Test
+	public void varianceOfKnownValues() {
+		DataSourceAnalysis analysis = new DataSourceAnalysis();
+		//2, 4, 4, 4, 5, 5, 7, 9 has a mean of 5 and a population variance of 4
+		for (float value : new float[] {2, 4, 4, 4, 5, 5, 7, 9}) {
+			analysis.process(new ISpectrum(new float[] {value, 3f}));
+		}
+		ReadOnlySpectrum variance = analysis.variancePlot();
+		Assert.assertEquals(4f, variance.get(0), 1e-6f);
+		Assert.assertEquals(0f, variance.get(1), 0f);
+		//fewer scans than TOP_COUNT are all averaged
+		Assert.assertEquals(5f, analysis.topAveragePlot().get(0), 1e-6f);
+	}
+	
+	@Test
+	public void emptySpectra() {
+		DataSourceAnalysis analysis = new DataSourceAnalysis();
+		analysis.process(new ISpectrum(0));
+		analysis.process(new ISpectrum(0));
+		Assert.assertEquals(0, analysis.channelsPerScan());
+		Assert.assertEquals(0, analysis.variancePlot().size());
+		Assert.assertEquals(0, analysis.maximumIntensity(), 0f);
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.peakaboo.filter;
+
+import java.util.Random;
+
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+/**
+ * Generates repeatable XRF-like spectra for testing filters against reference
+ * implementations: a decaying background with a Gaussian peak every
+ * {@link #PEAK_SPACING} channels and Poisson-like noise.
+ */
+public class SyntheticSpectra {
+	
+	public static final int PEAK_SPACING = 230;
+	
+	private SyntheticSpectra() {}
+	
+	/**
+	 * Returns the source of noise for a test, seeded the same way every time
+	 */
+	public static Random random() {
+		return new Random(2009);
+	}
+	
+	public static Spectrum spectrum(Random random, int size) {
+		Spectrum data = new ISpectrum(size);
+		for (int i = 0; i < size; i++) {
+			float background = 400f * (float) Math.exp(-i / 600f) + 20f;
+			float peaks = 0;
+			for (int centre = 150; centre < size + PEAK_SPACING; centre += PEAK_SPACING) {
+				float distance = (i - centre) / 12f;
+				peaks += 3000f * (float) Math.exp(-distance * distance / 2f);
+			}
+			float value = background + peaks;
+			data.set(i, value + (float) (random.nextGaussian() * Math.sqrt(value)));
+		}
+		return data;
+	}
+	
+	/**
+	 * Empties every fifth run of 100 channels, as a detector with dead regions
+	 * would
+	 */
+	public static Spectrum withEmptyRuns(Spectrum data) {
+		for (int i = 0; i < data.size(); i++) {
+			if ((i / 100) % 5 == 4) {
+				data.set(i, 0);
+			}
+		}
+		return data;
+	}
+	
+	/**
+	 * Makes about one channel in 50 negative, as background subtraction can
+	 */
+	public static Spectrum withNegatives(Random random, Spectrum data) {
+		for (int i = 0; i < data.size(); i++) {
+			if (random.nextInt(50) == 0) {
+				data.set(i, -data.get(i) / 10f);
+			}
+		}
+		return data;
+	}
+
+}
@@ -0,0 +1,202 @@
+package org.peakaboo.filter.model;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.dataset.DataSet;
+import org.peakaboo.dataset.EmptyDataSet;
+import org.peakaboo.filter.SyntheticSpectra;
+import org.peakaboo.filter.plugins.background.BruknerBackgroundFilter;
+import org.peakaboo.filter.plugins.background.SquareSnipBackgroundFilter;
+import org.peakaboo.filter.plugins.mathematical.AdditionMathFilter;
+import org.peakaboo.filter.plugins.mathematical.DerivativeMathFilter;
+import org.peakaboo.filter.plugins.mathematical.IntegralMathFilter;
+import org.peakaboo.filter.plugins.mathematical.MultiplicationMathFilter;
+import org.peakaboo.filter.plugins.noise.FourierNoiseFilter;
+import org.peakaboo.filter.plugins.noise.SavitskyGolayNoiseFilter;
+import org.peakaboo.filter.plugins.noise.SpringNoiseFilter;
+import org.peakaboo.filter.plugins.noise.WeightedAverageNoiseFilter;
+import org.peakaboo.framework.autodialog.model.Parameter;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+public class FilterSetReusingTest {
+	
+	private static final DataSet DATASET = new EmptyDataSet();
+	
+	@Test
+	public void nineFilterChain() {
+		assertEquivalent(chain());
+	}
+	
+	@Test
+	public void nonFiniteCorrectedInBuffer() {
+		//the last filter writes into a buffer, so the correction is done in place
+		FilterSet filters = chain();
+		filters.add(new NonFiniteFilter(true));
+		assertEquivalent(filters);
+	}
+	
+	@Test
+	public void nonFiniteCorrectedFromFallback() {
+		//the last filter allocates its own result, so the correction makes a copy
+		FilterSet filters = chain();
+		filters.add(new NonFiniteFilter(false));
+		assertEquivalent(filters);
+	}
+	
+	@Test
+	public void nonFiniteCarriedThroughChain() {
+		FilterSet filters = chain();
+		filters.add(new NonFiniteFilter(true), 2);
+		filters.add(new NonFiniteFilter(false), 6);
+		assertEquivalent(filters);
+	}
+	
+	@Test
+	public void fallbackOnly() {
+		FilterSet filters = new FilterSet();
+		filters.add(initialized(new SpringNoiseFilter()));
+		filters.add(initialized(new DerivativeMathFilter()));
+		assertEquivalent(filters);
+	}
+	
+	@Test
+	public void noFilters() {
+		assertEquivalent(new FilterSet());
+	}
+	
+	/*
+	 * Nine applied filters, alternating between ones which write into the scratch
+	 * buffers and ones which fall back to allocating, plus some which should be
+	 * skipped
+	 */
+	private static FilterSet chain() {
+		FilterSet filters = new FilterSet();
+		filters.add(initialized(new BruknerBackgroundFilter()));
+		filters.add(initialized(new WeightedAverageNoiseFilter()));
+		filters.add(initialized(new SpringNoiseFilter()));
+		filters.add(initialized(new SavitskyGolayNoiseFilter()));
+		filters.add(amount(initialized(new AdditionMathFilter()), -3f));
+		filters.add(initialized(new DerivativeMathFilter()));
+		filters.add(initialized(new IntegralMathFilter()));
+		filters.add(initialized(new FourierNoiseFilter()));
+		filters.add(amount(initialized(new MultiplicationMathFilter()), 1.7f));
+		
+		AbstractFilter disabled = initialized(new SquareSnipBackgroundFilter());
+		disabled.setEnabled(false);
+		filters.add(disabled, 3);
+		filters.add(null, 5);
+		return filters;
+	}
+	
+	private static void assertEquivalent(FilterSet filters) {
+		Random random = SyntheticSpectra.random();
+		//several sizes, so that the scratch buffers have to be replaced. The Fourier
+		//filter only accepts powers of 2
+		for (int size : new int[] {2048, 2048, 1024, 2048}) {
+			Spectrum data = SyntheticSpectra.spectrum(random, size);
+			float[] original = data.backingArrayCopy();
+			
+			ReadOnlySpectrum expected = filters.applyFiltersUnsynchronized(data, DATASET);
+			float[] expectedValues = expected.backingArrayCopy();
+			ReadOnlySpectrum actual = filters.applyFiltersReusing(data, DATASET);
+			
+			Assert.assertArrayEquals("size " + size, expectedValues, actual.backingArrayCopy(), 0f);
+			Assert.assertArrayEquals("input modified", original, data.backingArray(), 0f);
+			for (int i = 0; i < actual.size(); i++) {
+				Assert.assertTrue(Float.isFinite(actual.get(i)));
+			}
+		}
+	}
+	
+	private static <T extends Filter> T initialized(T filter) {
+		filter.initialize();
+		return filter;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T extends Filter> T amount(T filter, float amount) {
+		((Parameter<Float>) filter.getParameters().get(0)).setValue(amount);
+		return filter;
+	}
+	
+	/**
+	 * Writes NaN and both infinities into a few channels
+	 */
+	private static class NonFiniteFilter extends AbstractFilter {
+		
+		private final boolean reusing;
+		
+		NonFiniteFilter(boolean reusing) {
+			this.reusing = reusing;
+		}
+		
+		@Override
+		protected ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data, DataSet dataset) {
+			Spectrum result = new ISpectrum(data);
+			spoil(result);
+			return result;
+		}
+		
+		@Override
+		protected boolean filterApplyTo(ReadOnlySpectrum data, Spectrum target, DataSet dataset) {
+			if (!reusing) {
+				return false;
+			}
+			target.copy(data);
+			spoil(target);
+			return true;
+		}
+		
+		private static void spoil(Spectrum data) {
+			data.set(10, Float.NaN);
+			data.set(20, Float.POSITIVE_INFINITY);
+			data.set(30, Float.NEGATIVE_INFINITY);
+		}
+		
+		@Override
+		public String pluginVersion() {
+			return "1.0";
+		}
+		
+		@Override
+		public String pluginUUID() {
+			return "00000000-0000-0000-0000-000000000000";
+		}
+		
+		@Override
+		public void initialize() {
+			//NOOP
+		}
+		
+		@Override
+		public String getFilterName() {
+			return "Non-Finite";
+		}
+		
+		@Override
+		public String getFilterDescription() {
+			return "Writes NaN and Infinity into the data";
+		}
+		
+		@Override
+		public FilterType getFilterType() {
+			return FilterType.ADVANCED;
+		}
+		
+		@Override
+		public boolean pluginEnabled() {
+			return false;
+		}
+		
+		@Override
+		public boolean canFilterSubset() {
+			return true;
+		}
+	
+	}
+
+}
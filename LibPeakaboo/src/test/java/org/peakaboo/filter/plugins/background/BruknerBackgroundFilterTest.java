@@ -0,0 +1,101 @@
+package org.peakaboo.filter.plugins.background;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.filter.SyntheticSpectra;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+public class BruknerBackgroundFilterTest {
+	
+	@Test
+	public void matchesWindowSums() {
+		//the running totals are kept in double, so they match window sums kept in double
+		compare(true, 3e-6f);
+	}
+	
+	@Test
+	public void closeToFloatWindowSums() {
+		/*
+		 * The original implementation summed each window in float, rounding at every
+		 * step. Over many iterations with wide windows, that drifts from the true
+		 * averages by up to about 7e-6 relative.
+		 */
+		compare(false, 1e-5f);
+	}
+	
+	private static void compare(boolean doubleSums, float tolerance) {
+		
+		Random random = SyntheticSpectra.random();
+		//the widths the filter accepts, from the smallest to the largest
+		int[] widths = {10, 11, 37, 100, 255, 400};
+		//spectra longer than every window, and ones shorter than the wider windows
+		int[] sizes = {2048, 600, 120, 15};
+		int[] repetitions = {1, 2, 7, 10, 50};
+		
+		for (int size : sizes) {
+			ReadOnlySpectrum data = SyntheticSpectra.spectrum(random, size);
+			for (int width : widths) {
+				for (int reps : repetitions) {
+					float[] expected = bruknerWindowSums(data, width, reps, doubleSums).backingArray();
+					float[] actual = BruknerBackgroundFilter.calcBackgroundBrukner(data, width, reps).backingArray();
+					for (int i = 0; i < size; i++) {
+						String message = "size " + size + ", width " + width + ", reps " + reps + ", channel " + i;
+						Assert.assertEquals(message, expected[i], actual[i], tolerance * Math.abs(expected[i]));
+					}
+				}
+			}
+		}
+		
+	}
+	
+	//the original implementation, which sums every window directly
+	private static Spectrum bruknerWindowSums(ReadOnlySpectrum data, int windowSize, int repetitions, boolean doubleSums) {
+		float iAvg = data.sum() / data.size();
+		float iMin = data.min();
+		float diff = iAvg - iMin;
+		float cutoff = iAvg + 2 * diff;
+		
+		Spectrum result = new ISpectrum(data);
+		for (int i = 0; i < result.size(); i++) {
+			if (result.get(i) > cutoff) result.set(i, cutoff);
+		}
+		
+		Spectrum result2 = new ISpectrum(result.size());
+		int i = 0;
+		while (repetitions > 0) {
+			iteration(result, result2, windowSize, doubleSums);
+			i++;
+			if (i > repetitions) {
+				result = result2;
+				break;
+			}
+			iteration(result2, result, windowSize, doubleSums);
+			i++;
+			if (i > repetitions) break;
+		}
+		return result;
+	}
+	
+	private static void iteration(Spectrum source, Spectrum target, int windowSize, boolean doubleSums) {
+		for (int i = 0; i < source.size(); i++) {
+			int start = Math.max(i - windowSize, 0);
+			int stop = Math.min(i + windowSize + 1, source.size() - 1);
+			float sum = 0;
+			double exact = 0;
+			for (int j = start; j < stop; j++) {
+				sum += source.get(j);
+				exact += source.get(j);
+			}
+			if (doubleSums) {
+				sum = (float) exact;
+			}
+			float average = sum / (windowSize * 2 + 1);
+			target.set(i, Math.min(average, source.get(i)));
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.peakaboo.filter.plugins.background;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.filter.SyntheticSpectra;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+import org.peakaboo.framework.cyclops.spectrum.SpectrumCalculations;
+
+public class PolynomialBackgroundFilterTest {
+
+	@Test
+	public void matchesFittingAtEveryPoint() {
+		
+		Random random = SyntheticSpectra.random();
+		int[] widths = {50, 51, 120, 300, 799};
+		int[] powers = {0, 1, 2, 3, 5, 128};
+		
+		for (int width : widths) {
+			for (int power : powers) {
+				Spectrum function = polynomial(width, power);
+				for (float percent : new float[] {0f, 0.5f, 0.9f, 1f}) {
+					//mostly smooth spectra, some with runs of empty channels and negative values
+					for (int trial = 0; trial < 3; trial++) {
+						ReadOnlySpectrum data = spectrum(random, trial);
+						Spectrum expected = fitAtEveryPoint(data, function, percent);
+						Spectrum actual = PolynomialBackgroundFilter.calcBackgroundFunctionFit(data, function, percent);
+						Assert.assertArrayEquals("width " + width + ", power " + power + ", percent " + percent + ", trial " + trial, 
+								expected.backingArray(), actual.backingArray(), 0f);
+					}
+				}
+			}
+		}
+		
+	}
+	
+	private static ReadOnlySpectrum spectrum(Random random, int kind) {
+		Spectrum data = SyntheticSpectra.spectrum(random, 2048);
+		if (kind == 1) {
+			SyntheticSpectra.withEmptyRuns(data);
+		}
+		if (kind == 2) {
+			SyntheticSpectra.withNegatives(random, data);
+		}
+		return data;
+	}
+	
+	private static Spectrum polynomial(int width, int power) {
+		double centre = width / 2.0;
+		double reach = 1.0 / centre;
+		int raise = power == 0 ? 2 : 1;
+		Spectrum function = new ISpectrum(width);
+		for (int i = 0; i < width; i++) {
+			double x = i - centre;
+			function.set(i, (float) -Math.abs(Math.pow((x * reach), power)) + raise);
+		}
+		SpectrumCalculations.normalize_inplace(function);
+		return function;
+	}
+	
+	//the straightforward fit, which the filter must reproduce exactly
+	private static Spectrum fitAtEveryPoint(ReadOnlySpectrum data, Spectrum function, float percentToRemove) {
+		float value, minRatio, ratio;
+		Spectrum result = new ISpectrum(data.size(), 0.0f);
+		for (int i = -(function.size() - 1); i < data.size(); i++) {
+			minRatio = Float.MAX_VALUE;
+			for (int j = 0; j < function.size(); j++) {
+				if (i + j > 0 && i + j < data.size()) { 
+					ratio = (data.get(i + j) * percentToRemove) / function.get(j);
+					minRatio = Math.min(minRatio, ratio);
+				}
+			}
+			for (int j = 0; j < function.size(); j++) {
+				value = function.get(j) * minRatio;
+				if (i + j > 0 && i + j < data.size() && result.get(i + j) < value) {
+					result.set(i + j, value);
+				}
+			}
+		}
+		return result;
+	}
+	
+}
@@ -0,0 +1,134 @@
+package org.peakaboo.filter.plugins.noise;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.filter.SyntheticSpectra;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
+import org.peakaboo.framework.cyclops.spectrum.Spectrum;
+
+import JSci.maths.Complex;
+import JSci.maths.FourierMath;
+
+public class RealFFTTest {
+	
+	private static final int[] SIZES = {2, 4, 8, 64, 2048, 4096};
+	
+	@Test
+	public void roundTrip() {
+		Random random = SyntheticSpectra.random();
+		for (int size : SIZES) {
+			RealFFT fft = RealFFT.forSize(size);
+			double[] original = new double[size];
+			for (int i = 0; i < size; i++) {
+				original[i] = random.nextGaussian() * 1000;
+			}
+			double[] data = original.clone();
+			fft.forward(data);
+			fft.inverse(data);
+			Assert.assertArrayEquals("size " + size, original, data, 1e-9);
+		}
+	}
+	
+	@Test
+	public void forwardMatchesJSci() {
+		Random random = SyntheticSpectra.random();
+		for (int size : SIZES) {
+			double[] data = new double[size];
+			for (int i = 0; i < size; i++) {
+				data[i] = random.nextGaussian() * 1000;
+			}
+			Complex[] expected = FourierMath.transform(data.clone());
+			RealFFT.forSize(size).forward(data);
+			
+			String message = "size " + size;
+			double tolerance = 1e-9 * size * 1000;
+			int half = size / 2;
+			Assert.assertEquals(message, expected[0].real(), data[0], tolerance);
+			Assert.assertEquals(message, expected[half].real(), data[1], tolerance);
+			for (int k = 1; k < half; k++) {
+				Assert.assertEquals(message + ", frequency " + k, expected[k].real(), data[2 * k], tolerance);
+				//JSci uses the opposite sign in the exponent, giving the complex conjugate
+				Assert.assertEquals(message + ", frequency " + k, -expected[k].imag(), data[2 * k + 1], tolerance);
+			}
+		}
+	}
+	
+	@Test
+	public void invalidSizes() {
+		for (int size : new int[] {0, 1, 3, 1000}) {
+			try {
+				RealFFT.forSize(size);
+				Assert.fail("size " + size);
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+		}
+	}
+	
+	@Test
+	public void lowPassMatchesJSci() {
+		Random random = SyntheticSpectra.random();
+		float[][] wavelengths = {{8f, 6f}, {20f, 4f}, {3f, 2f}, {100f, 50f}};
+		for (FFT.FilterStyle style : FFT.FilterStyle.values()) {
+			for (int size : new int[] {64, 2048}) {
+				ReadOnlySpectrum data = SyntheticSpectra.spectrum(random, size);
+				for (float[] wavelength : wavelengths) {
+					float[] expected = lowPassJSci(data, style, wavelength[0], wavelength[1]).backingArray();
+					float[] actual = FFT.lowPassFilter(data, style, wavelength[0], wavelength[1]).backingArray();
+					String message = style + ", size " + size + ", wavelengths " + wavelength[0] + " to " + wavelength[1];
+					Assert.assertArrayEquals(message, expected, actual, 1e-3f);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * The original low pass filter, which weighted every entry of JSci's full
+	 * complex transform
+	 */
+	private static Spectrum lowPassJSci(ReadOnlySpectrum data, FFT.FilterStyle style, float startWavelength, float endWavelength) {
+		int halfsize = data.size() / 2;
+		int startFrequency = Math.round(data.size() / startWavelength);
+		int endFrequency = Math.round(data.size() / endWavelength);
+		int start = Math.max(0, halfsize - startFrequency);
+		int stop = Math.max(0, halfsize - endFrequency);
+		
+		double[] values = new double[data.size()];
+		for (int i = 0; i < data.size(); i++) {
+			values[i] = data.get(i);
+		}
+		Complex[] transformed = FourierMath.transform(values);
+		
+		double centre = transformed.length / 2.0;
+		for (int i = 0; i < transformed.length; i++) {
+			if (style == FFT.FilterStyle.CUTOFF) {
+				if (i > Math.floor(centre - start) && i < Math.ceil(centre + start)) {
+					transformed[i] = new Complex(0.0, 0.0);
+				}
+				continue;
+			}
+			int di = (int) Math.abs(centre - i);
+			if (di < start && di > stop) {
+				double percentLeftInLine = 1.0 - ((double) (di - start) / (double) (stop - start));
+				double weight = percentLeftInLine;
+				if (style == FFT.FilterStyle.SINE) {
+					weight = (Math.sin(Math.PI * percentLeftInLine - Math.PI / 2.0) + 1.0) / 2.0;
+				}
+				transformed[i] = new Complex(transformed[i].real() * weight, transformed[i].imag() * weight);
+			} else if (di < start) {
+				transformed[i] = new Complex(0.0, 0.0);
+			}
+		}
+		
+		transformed = FourierMath.inverseTransform(transformed);
+		Spectrum result = new ISpectrum(data.size());
+		for (int i = 0; i < data.size(); i++) {
+			result.set(i, Math.max(0f, (float) transformed[i].real()));
+		}
+		return result;
+	}
+
+}
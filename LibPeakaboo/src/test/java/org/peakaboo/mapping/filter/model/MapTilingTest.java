@@ -0,0 +1,71 @@
+package org.peakaboo.mapping.filter.model;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MapTilingTest {
+	
+	@Test
+	public void matchesBoundsCheckedAverage() {
+		
+		Random random = new Random(2009);
+		//sizes from a single pixel up to maps split across several tiles
+		int[][] sizes = {{1, 1}, {7, 3}, {300, 130}, {1000, 70}};
+		
+		for (int[] size : sizes) {
+			int width = size[0], height = size[1];
+			float[] data = new float[width * height];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = random.nextFloat() * 100f;
+			}
+			
+			for (int radius = 0; radius <= 2; radius++) {
+				MapTiling tiling = new MapTiling(width, height, radius);
+				float[] expected = average(average(data, width, height, radius), width, height, radius);
+				float[] actual = tiling.apply(data, stencil(radius), 2);
+				Assert.assertArrayEquals(width + "x" + height + ", radius " + radius, expected, actual, 0f);
+			}
+		}
+	
+	}
+	
+	private static MapTiling.Stencil stencil(int radius) {
+		return (tile, from, target, to, width) -> {
+			for (int i = 0; i < width; i++) {
+				float sum = 0f, count = 0f;
+				for (int dy = -radius; dy <= radius; dy++) {
+					for (int dx = -radius; dx <= radius; dx++) {
+						int p = from + i + dy * tile.stride + dx;
+						sum += tile.values[p];
+						count += tile.inside[p];
+					}
+				}
+				target[to + i] = sum / count;
+			}
+		};
+	}
+	
+	private static float[] average(float[] data, int width, int height, int radius) {
+		float[] averaged = new float[data.length];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0f, count = 0f;
+				for (int dy = -radius; dy <= radius; dy++) {
+					for (int dx = -radius; dx <= radius; dx++) {
+						int px = x + dx, py = y + dy;
+						if (px < 0 || py < 0 || px >= width || py >= height) {
+							continue;
+						}
+						sum += data[py * width + px];
+						count++;
+					}
+				}
+				averaged[y * width + x] = sum / count;
+			}
+		}
+		return averaged;
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.peakaboo.mapping.filter.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SeparableConvolutionTest {
+	
+	@Test
+	public void matchesRepeatedConvolution() {
+		
+		Random random = new Random(2009);
+		float[][][] kernels = {
+			box(1),
+			box(2),
+			{{1, 2, 1}, {2, 4, 2}, {1, 2, 1}},
+			{{0, 0, 0}, {-1, 3, -1}, {0, 0, 0}},
+		};
+		//sizes with no interior, with a thin interior, and split across several tiles
+		int[][] sizes = {{1, 1}, {3, 50}, {64, 40}, {300, 130}};
+		
+		for (float[][] kernel : kernels) {
+			SeparableConvolution separable = SeparableConvolution.of(kernel);
+			Assert.assertNotNull(separable);
+			for (int[] size : sizes) {
+				int width = size[0], height = size[1];
+				//all positive values can be fused, some negative values can't
+				for (float offset : new float[] {0f, -20f}) {
+					float[] data = new float[width * height];
+					for (int i = 0; i < data.length; i++) {
+						data[i] = random.nextFloat() * 100f + offset;
+					}
+					for (int reps : new int[] {1, 2, 5, 10}) {
+						float[] expected = data;
+						for (int rep = 0; rep < reps; rep++) {
+							expected = convolve(expected, width, height, kernel);
+						}
+						float[] actual = separable.apply(data, width, height, reps);
+						String message = width + "x" + height + ", reps " + reps + ", offset " + offset;
+						for (int i = 0; i < expected.length; i++) {
+							Assert.assertEquals(message, expected[i], actual[i], 1e-4f * Math.max(1f, Math.abs(expected[i])));
+						}
+					}
+				}
+			}
+		}
+	
+	}
+	
+	@Test
+	public void rejectsInseparableKernels() {
+		Assert.assertNull(SeparableConvolution.of(new float[][] {{-1, -1, -1}, {-1, 20, -1}, {-1, -1, -1}}));
+		Assert.assertNull(SeparableConvolution.of(new float[][] {{1, 1}, {1, 1}}));
+		Assert.assertNull(SeparableConvolution.of(new float[][] {{0, 0, 0}, {0, 0, 0}, {0, 0, 0}}));
+	}
+	
+	private static float[][] box(int radius) {
+		float[][] kernel = new float[2 * radius + 1][2 * radius + 1];
+		for (float[] row : kernel) {
+			Arrays.fill(row, 1f);
+		}
+		return kernel;
+	}
+	
+	private static float[] convolve(float[] data, int width, int height, float[][] kernel) {
+		int reach = kernel.length / 2;
+		float[] filtered = new float[data.length];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0f, count = 0f;
+				for (int dy = -reach; dy <= reach; dy++) {
+					for (int dx = -reach; dx <= reach; dx++) {
+						int px = x + dx, py = y + dy;
+						if (px < 0 || py < 0 || px >= width || py >= height) {
+							continue;
+						}
+						float kval = kernel[reach + dy][reach + dx];
+						sum += data[py * width + px] * kval;
+						count += kval;
+					}
+				}
+				if (count == 0) {
+					count = 0.01f;
+				}
+				filtered[y * width + x] = Math.max(0, sum / count);
+			}
+		}
+		return filtered;
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.peakaboo.mapping.filter.plugin.plugins;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.peakaboo.framework.autodialog.model.Parameter;
+import org.peakaboo.framework.cyclops.Coord;
+import org.peakaboo.framework.cyclops.spectrum.ISpectrum;
+import org.peakaboo.mapping.filter.model.AreaMap;
+import org.peakaboo.mapping.filter.plugin.plugins.enhancing.SharpenMapFilter;
+import org.peakaboo.mapping.filter.plugin.plugins.smoothing.DenoiseMapFilter;
+import org.peakaboo.mapping.filter.plugin.plugins.smoothing.FastAverageMapFilter;
+import org.peakaboo.mapping.filter.plugin.plugins.smoothing.WeightedAverageMapFilter;
+
+/**
+ * Compares single passes of the tiled stencil filters with the loops they
+ * replaced. Repeated passes are not compared, since the original loops wrote
+ * into the map they were still reading from after the first pass.
+ */
+public class StencilMapFilterTest {
+	
+	//sizes with no interior, with a thin interior, and split across several tiles
+	private static final int[][] SIZES = {{1, 1}, {3, 50}, {64, 40}, {300, 130}};
+	
+	@Test
+	public void denoise() {
+		Random random = new Random(2009);
+		for (float threshold : new float[] {1.1f, 1.5f, 4f}) {
+			DenoiseMapFilter filter = new DenoiseMapFilter();
+			filter.initialize();
+			set(filter, 0, threshold);
+			for (int[] size : SIZES) {
+				float[] data = map(random, size[0], size[1]);
+				float[] expected = denoise(data, size[0], size[1], threshold);
+				assertFiltered("threshold " + threshold, expected, filter, data, size);
+			}
+		}
+	}
+	
+	@Test
+	public void weightedAverage() {
+		Random random = new Random(2009);
+		for (int radius = 1; radius <= 5; radius++) {
+			WeightedAverageMapFilter filter = new WeightedAverageMapFilter();
+			filter.initialize();
+			set(filter, 0, radius);
+			for (int[] size : SIZES) {
+				float[] data = map(random, size[0], size[1]);
+				float[] expected = weightedAverage(data, size[0], size[1], radius);
+				assertFiltered("radius " + radius, expected, filter, data, size);
+			}
+		}
+	}
+	
+	@Test
+	public void sharpen() {
+		//the sharpen kernel isn't separable, so this is the general stencil path
+		Random random = new Random(2009);
+		for (float intensity : new float[] {0.2f, 1f, 1.5f}) {
+			SharpenMapFilter filter = new SharpenMapFilter();
+			filter.initialize();
+			set(filter, 1, intensity);
+			float ci = 20 / intensity;
+			float[][] kernel = {{-1, -1, -1}, {-1, ci, -1}, {-1, -1, -1}};
+			for (int[] size : SIZES) {
+				float[] data = map(random, size[0], size[1]);
+				float[] expected = convolve(data, size[0], size[1], kernel);
+				assertFiltered("intensity " + intensity, expected, filter, data, size);
+			}
+		}
+	}
+	
+	@Test
+	public void fastAverage() {
+		Random random = new Random(2009);
+		FastAverageMapFilter filter = new FastAverageMapFilter();
+		filter.initialize();
+		float[][] kernel = {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}};
+		for (int[] size : SIZES) {
+			float[] data = map(random, size[0], size[1]);
+			float[] expected = convolve(data, size[0], size[1], kernel);
+			assertFiltered("fast average", expected, filter, data, size);
+		}
+	}
+	
+	private static void assertFiltered(String message, float[] expected, AbstractMapFilter filter, float[] data, int[] size) {
+		AreaMap source = new AreaMap(new ISpectrum(data), new ArrayList<>(), new Coord<>(size[0], size[1]), null);
+		float[] actual = filter.filter(source).getData().backingArrayCopy();
+		message += ", " + size[0] + "x" + size[1];
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(message + ", pixel " + i, expected[i], actual[i], 1e-5f * Math.max(1f, Math.abs(expected[i])));
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> void set(AbstractMapFilter filter, int index, T value) {
+		((Parameter<T>) filter.getParameters().get(index)).setValue(value);
+	}
+	
+	//smooth values with some isolated spikes and holes for the denoise filter to find
+	private static float[] map(Random random, int width, int height) {
+		float[] data = new float[width * height];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = 100f + random.nextFloat() * 20f;
+			if (random.nextInt(20) == 0) {
+				data[i] *= 10f;
+			} else if (random.nextInt(20) == 0) {
+				data[i] = 0f;
+			}
+		}
+		return data;
+	}
+	
+	
+	/*
+	 * The original implementations, which check the bounds of every neighbour
+	 */
+	
+	private static boolean inside(int x, int y, int width, int height) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+	
+	private static float[] denoise(float[] data, int width, int height, float threshold) {
+		float[] filtered = data.clone();
+		int delta[] = {-1, 0, 1};
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0f;
+				int count = 0;
+				float value = data[y * width + x];
+				boolean replace = true;
+				
+				average:
+				for (int dx : delta) {
+					for (int dy : delta) {
+						if (dx == 0 && dy == 0) {
+							continue;
+						}
+						int px = x + dx;
+						int py = y + dy;
+						if (inside(px, py, width, height)) {
+							float pvalue = data[py * width + px];
+							sum += pvalue;
+							count++;
+							if (value >= pvalue / threshold && value <= pvalue * threshold) {
+								replace = false;
+								break average;
+							}
+						}
+					}
+				}
+				
+				if (replace) {
+					float average = sum / count;
+					if (value < average / threshold || value > average * threshold) {
+						filtered[y * width + x] = average;
+					}
+				}
+			}
+		}
+		return filtered;
+	}
+	
+	private static float[] weightedAverage(float[] data, int width, int height, int r) {
+		float[] filtered = new float[data.length];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0f;
+				float weights = 0f;
+				for (int dy = -r; dy <= +r; dy++) {
+					int sy = y + dy;
+					for (int dx = -r; dx <= +r; dx++) {
+						int sx = x + dx;
+						if (!inside(sx, sy, width, height)) {
+							continue;
+						}
+						int roughdist = Math.abs(dx) + Math.abs(dy);
+						if (roughdist > r + 1f) { continue; }
+						double dist = Math.sqrt(dx * dx + dy * dy);
+						float weight = (float) (r + 1f - dist);
+						if (weight < 0) { continue; }
+						float maxweight = r + 1f;
+						weight = (weight / maxweight);
+						weight *= weight;
+						sum += data[sy * width + sx] * weight;
+						weights += weight;
+					}
+				}
+				filtered[y * width + x] = sum / weights;
+			}
+		}
+		return filtered;
+	}
+	
+	private static float[] convolve(float[] data, int width, int height, float[][] kernel) {
+		int reach = kernel.length / 2;
+		float[] filtered = new float[data.length];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float sum = 0f;
+				float count = 0;
+				for (int dy = -reach; dy <= reach; dy++) {
+					for (int dx = -reach; dx <= reach; dx++) {
+						int px = x + dx, py = y + dy;
+						if (!inside(px, py, width, height)) {
+							continue;
+						}
+						float kval = kernel[reach + dy][reach + dx];
+						sum += data[py * width + px] * kval;
+						count += kval;
+					}
+				}
+				if (count == 0) {
+					count = 0.01f;
+				}
+				filtered[y * width + x] = Math.max(0, sum / count);
+			}
+		}
+		return filtered;
+	}
+
+}
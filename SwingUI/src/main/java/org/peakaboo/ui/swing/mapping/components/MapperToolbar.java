@@ -16,6 +16,7 @@ import org.peakaboo.calibration.CalibrationProfile;
 import org.peakaboo.calibration.Concentrations;
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.curvefit.peak.transition.ITransitionSeries;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.cyclops.spectrum.ReadOnlySpectrum;
 import org.peakaboo.framework.swidget.icons.IconSize;
 import org.peakaboo.framework.swidget.icons.StockIcon;
@@ -58,14 +59,14 @@ public class MapperToolbar extends JToolBar {
 					.withSignificance(true)
 					.withAction(() -> {
 				
-						List<Integer> indexes = controller.getSelection().getLogicalPoints();
+						IndexSet indexes = controller.getSelection().getLogicalPoints();
 		
 						List<ITransitionSeries> tss = controller.rawDataController.getMapResultSet().stream().map(r -> r.transitionSeries).collect(toList());
 						Function<ITransitionSeries, Float> intensityFunction = ts -> {
 							CalibrationProfile profile = controller.getFitting().getCalibrationProfile();
 							ReadOnlySpectrum data = controller.rawDataController.getMapResultSet().getMap(ts).getData(profile);
 							float sum = 0;
-							for (int index : indexes) {
+							for (int index = indexes.first(); index >= 0; index = indexes.nextIndex(index + 1)) {
 								sum += data.get(index);
 							}
 							sum /= indexes.size();
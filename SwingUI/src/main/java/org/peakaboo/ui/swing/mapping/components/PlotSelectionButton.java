@@ -7,6 +7,7 @@ import javax.swing.JFrame;
 import org.peakaboo.controller.mapper.MappingController;
 import org.peakaboo.controller.plotter.SavedSession;
 import org.peakaboo.datasource.model.internal.SubsetDataSource;
+import org.peakaboo.framework.cyclops.IndexSet;
 import org.peakaboo.framework.swidget.widgets.fluent.button.FluentToolbarButton;
 import org.peakaboo.framework.swidget.widgets.tabbedinterface.TabbedInterface;
 import org.peakaboo.framework.swidget.widgets.tabbedinterface.TabbedLayerPanel;
@@ -41,7 +42,9 @@ public class PlotSelectionButton extends FluentToolbarButton {
 		
 		//update the bad scan indexes to match the new data source's indexing scheme
 		//TODO: Is there a better way to do this?
+		IndexSet backing = sds.getBackingIndexes();
 		settings.data.discards = settings.data.discards.stream()
+				.filter(backing::contains)
 				.map(sds::getUpdatedIndex)
 				.filter(index -> index > 0)
 				.collect(Collectors.toList()